@@ -1,14 +1,12 @@
 package com.example.vrminventory;
 
+import javafx.animation.PauseTransition;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.concurrent.Task;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.geometry.Insets;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.ColumnConstraints;
 import javafx.scene.layout.GridPane;
@@ -19,13 +17,13 @@ import javafx.stage.Modality;
 import javafx.stage.Stage;
 import javafx.stage.StageStyle;
 import javafx.util.Callback;
+import javafx.util.Duration;
 
 import java.io.IOException;
 import java.security.GeneralSecurityException;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
@@ -33,7 +31,7 @@ public class AdminInventoryController {
     // Constants
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("MM/dd/yyyy");
     private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm:ss");
-    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(2);
+    private static final ExecutorService EXECUTOR = TunableThreadPool.newFixedThreadPool(Config.WORKER_THREADS);
 
 
     // Lists
@@ -46,7 +44,7 @@ public class AdminInventoryController {
 
 
     // Fields
-    private GoogleSheetsService sheetsService;
+    private volatile GoogleSheetsService sheetsService; // set once the shared service has started
     private List<InventoryItem> itemList;
     private List<InventoryItem> filteredItemList;
     private BST skuBST;
@@ -71,15 +69,13 @@ public class AdminInventoryController {
 
     private ObservableList<InventoryItem> observableItemList;
     private String currentBranch = "ADMIN"; // Default branch
+    private long refreshGeneration; // FX thread only
+    private long streamedGeneration = -1; // refresh whose rows are being shown as they arrive
+    private PauseTransition reconcileDelay; // FX thread only
 
     public AdminInventoryController() {
-        try {
-            // Initialize Google Sheets service
-            sheetsService = new GoogleSheetsService();
-        } catch (GeneralSecurityException | IOException e) {
-            System.err.println("Failed to initialize Google Sheets service: " + e.getMessage());
-            e.printStackTrace();
-        }
+        // Sign-in runs in the background; refreshData waits for it off the FX thread
+        GoogleSheetsService.startAsync();
     }
 
     @FXML
@@ -112,74 +108,106 @@ public class AdminInventoryController {
         }
     }
 
-    private void initializeData() throws IOException {
-        if (sheetsService == null) {
-            throw new IOException("Google Sheets service is not initialized");
-        }
-
-        if (currentBranch.equals("ADMIN")){
-            System.out.println("yay1");
-            itemList = sheetsService.getAllInventoryItems("InventoryList");
-        }
-        else{
-            System.out.println("yay2");
-            itemList = sheetsService.getAllInventoryItems(currentBranch);
-        }
-        filteredItemList = new ArrayList<>(itemList);
+    private void initializeData() {
+        // Filled in by refreshData once the screen is shown
+        itemList = new ArrayList<>();
+        filteredItemList = new ArrayList<>();
         skuBST = new BST();
-        addItemsToBST();
-        observableItemList = FXCollections.observableArrayList(filteredItemList);
-
-        // Add existing categories for items
-        UNIQUE_CATEGORIES_LIST = sheetsService.loadCategories();
+        observableItemList = FXCollections.observableArrayList();
+        UNIQUE_CATEGORIES_LIST = new ArrayList<>();
     }
 
 
-    // New method to refresh data from Google Sheets
+    // New method to refresh data from Google Sheets, off the FX thread
     public void refreshData() {
-        try {
-            // Clear cache to ensure fresh data
-            sheetsService.clearCache();
-
-            // Get current branch selection
-            String selectedBranch = locationComboBox.getValue();
-            if (selectedBranch != null) {
-                currentBranch = selectedBranch;
-                System.out.println(currentBranch);
-            }
+        // Get current branch selection
+        String selectedBranch = locationComboBox.getValue();
+        if (selectedBranch != null) {
+            currentBranch = selectedBranch;
+        }
 
-            if (currentBranch.equals("ADMIN")){
-                System.out.println("yay1");
-                itemList = sheetsService.getAllInventoryItems("InventoryList");
-            }
-            else{
-                System.out.println("yay2");
-                itemList = sheetsService.getAllInventoryItems(currentBranch);
+        String sheetName = currentBranch.equals("ADMIN") ? "InventoryList" : currentBranch;
+        long generation = ++refreshGeneration;
+
+        EXECUTOR.submit(() -> {
+            try {
+                sheetsService = GoogleSheetsService.getInstance();
+
+                // Retrieve fresh data from Google Sheets, with the catalog the categories come from,
+                // in one request
+                ScreenBootstrap bootstrap = new ScreenBootstrap(sheetsService, sheetName)
+                        .freshCatalog(sheetName, batch -> Platform.runLater(() -> showItemBatch(generation, batch)))
+                        .catalog("InventoryList");
+                bootstrap.load();
+                List<InventoryItem> freshItems = bootstrap.getCatalog(sheetName).getItems();
+                List<String> categories = bootstrap.getCatalog("InventoryList").getCategories();
+
+                Platform.runLater(() -> {
+                    // A newer refresh (or a location switch) has been started since
+                    if (generation != refreshGeneration) {
+                        return;
+                    }
+                    itemList = freshItems;
+                    itemListView.setPlaceholder(new Label("No items found"));
+                    StartupMetrics.mark(StartupMetrics.FIRST_DATA);
+
+                    // Existing categories for new items
+                    UNIQUE_CATEGORIES_LIST = categories;
+                    categoryComboBox.getItems().setAll(categories);
+
+                    // Clear and rebuild the BST
+                    skuBST = new BST();
+                    addItemsToBST();
+
+                    // Update filtered list
+                    showCurrentItems();
+
+                    // Update status
+                    statusLabel.setText("Data refreshed successfully");
+                });
+            } catch (GeneralSecurityException | IOException e) {
+                Platform.runLater(() -> {
+                    itemListView.setPlaceholder(new Label("Could not load items"));
+                    statusLabel.setText("Error refreshing data: " + e.getMessage());
+                });
+                e.printStackTrace();
             }
+        });
+    }
 
-            // Clear and rebuild the BST
+    // Shows the first rows of a load while the rest are still being read. Only used when the list
+    // is empty; a refresh of rows already on screen swaps in the complete result instead.
+    private void showItemBatch(long generation, List<InventoryItem> batch) {
+        if (generation != refreshGeneration) {
+            return;
+        }
+        if (streamedGeneration != generation) {
+            if (!itemList.isEmpty()) {
+                return;
+            }
+            streamedGeneration = generation;
+            itemList = new ArrayList<>();
             skuBST = new BST();
-            addItemsToBST();
+        }
 
-            // Update filtered list
-            String searchFilter = searchFilterComboBox.getValue();
-            String searchText = searchField.getText();
+        itemList.addAll(batch);
+        for (InventoryItem item : batch) {
+            skuBST.insert(item.getSku());
+        }
+        showCurrentItems();
+    }
 
-            if (searchFilter != null && !searchText.isEmpty()) {
-                // Apply search filter if active
-                handleSearch(searchText);
-            } else {
-                // Otherwise reset to full list
-                filteredItemList.clear();
-                filteredItemList.addAll(itemList);
-                applyFilters();
-            }
+    // Re-applies the active search, or the full list, and the sort
+    private void showCurrentItems() {
+        String searchFilter = searchFilterComboBox.getValue();
+        String searchText = searchField.getText();
 
-            // Update status
-            statusLabel.setText("Data refreshed successfully");
-        } catch (IOException e) {
-            statusLabel.setText("Error refreshing data: " + e.getMessage());
-            e.printStackTrace();
+        if (searchFilter != null && !searchText.isEmpty()) {
+            // Apply search filter if active
+            handleSearch(searchText);
+        } else {
+            // Otherwise reset to full list
+            resetToFullList();
         }
     }
 
@@ -287,6 +315,7 @@ public class AdminInventoryController {
 
         // Populate the ListView
         itemListView.setItems(observableItemList);
+        itemListView.setPlaceholder(new Label("Loading items..."));
     }
 
     private GridPane createHeaderGridPane() {
@@ -367,6 +396,11 @@ public class AdminInventoryController {
                 // Ensure the label doesn't get clipped
                 categoryLabel.setMinHeight(Label.USE_COMPUTED_SIZE);
                 categoryLabel.setPrefHeight(Label.USE_COMPUTED_SIZE);
+
+                // The graphic stays attached for the cell's lifetime; the cell height grows with content
+                setPrefHeight(USE_COMPUTED_SIZE);
+                setGraphic(gridPane);
+                gridPane.setVisible(false);
             }
 
             @Override
@@ -375,23 +409,21 @@ public class AdminInventoryController {
 
                 if (empty || item == null) {
                     setText(null);
-                    setGraphic(null);
+                    // Hide the row instead of detaching it so the graphic isn't re-styled on reuse
+                    gridPane.setVisible(false);
                 } else {
-                    // Update labels with item data
-                    skuLabel.setText(String.valueOf(item.getSku()));
+                    // Update labels with the item's cached display strings
+                    skuLabel.setText(item.getSkuText());
                     nameLabel.setText(item.getName());
                     categoryLabel.setText(item.getCategory());
-                    priceLabel.setText(String.format("₱%.2f", item.getPrice()));
+                    priceLabel.setText(item.getPriceText());
                     if(currentBranch.equals("ADMIN")){
                         quantityLabel.setText("");
                     }
                     else{
-                        quantityLabel.setText(String.valueOf(item.getQuantity()));
+                        quantityLabel.setText(item.getQuantityText());
                     }
-
-                    // Set the cell height to grow as needed based on content
-                    setPrefHeight(USE_COMPUTED_SIZE);
-                    setGraphic(gridPane);
+                    gridPane.setVisible(true);
                 }
             }
         };
@@ -552,22 +584,23 @@ public class AdminInventoryController {
                         price);
 
 
-                // Find next row and write data
+                // Append to the sheet; the row is reserved server-side so concurrent terminals don't collide
                 String branchPrefix = "InventoryList!";
-                String range = sheetsService.findNextRow(branchPrefix);
-                return sheetsService.writeData(range, dataToWrite);
+                return GoogleSheetsService.getInstance().appendRow(branchPrefix, dataToWrite);
             }
         };
 
         task.setOnSucceeded(event -> {
             processingAlert.close();
-            int cellsUpdated = task.getValue();
+            int writtenRow = task.getValue();
             Alert resultAlert = new Alert(Alert.AlertType.INFORMATION);
             resultAlert.setTitle("Inventory Entry Result");
             resultAlert.setHeaderText(null);
-            resultAlert.setContentText(cellsUpdated > 0 ? "Inventory entry added successfully." : "Failed to update inventory.");
+            resultAlert.setContentText(writtenRow > 0 ? "Inventory entry added successfully." : "Failed to update inventory.");
             resultAlert.show();
-            refreshData(); // Refresh data after adding log
+            if (writtenRow > 0) {
+                applyNewItem(new InventoryItem(sku, name, category, price, 0));
+            }
             clearFields();
         });
 
@@ -586,79 +619,47 @@ public class AdminInventoryController {
 
 
 
-    @FXML
-    protected void onBackButtonClick() throws IOException {
-
-        Stage loadingStage = new Stage();
-        showLoadingAlert(loadingStage, "Loading Main View...");
-        Stage currentStage = (Stage) entryVBox.getScene().getWindow();
-        currentStage.setOnCloseRequest(event -> event.consume()); // Prevent closing
-        currentStage.getScene().getRoot().setDisable(true);
-        loadingStage.show();
-
-        // Load in BG
-        EXECUTOR.submit(()-> {
-            try {
-                FXMLLoader loader = new FXMLLoader(getClass().getResource("admin-main-view.fxml"));
-                Parent root = loader.load();
-
-                AdminMainViewController mainViewController = loader.getController();
-                mainViewController.setBranch(currentBranch);
-
-                //Update UI
-                Platform.runLater(()-> {
-                    try {
-                        loadingStage.close();
-                        currentStage.setOnCloseRequest(event -> {}); // Reset
-                        currentStage.getScene().getRoot().setDisable(false);
-
-                        Stage mainStage = new Stage();
-                        mainStage.setTitle("VRM Inventory - " + currentBranch);
-                        mainStage.setScene(new Scene(root, 1366, 768));
-                        mainStage.setMaximized(false);
-                        mainStage.setResizable(false);
-                        mainStage.setOnCloseRequest(e -> {
-                            mainViewController.shutdown();
-                            Platform.exit();
-                            System.exit(0);
-                        });
-                        currentStage.close();
-                        mainStage.show();
-
-
-
-                    } catch (Exception e) {
-                        loadingStage.close();
-                        currentStage.setOnCloseRequest(event -> {}); // Reset close handler
-                        currentStage.getScene().getRoot().setDisable(false);
-                        showErrorAlert("Failed to load main view screen", e.getMessage());
-                        e.printStackTrace();
-
-                    }
-
-                });
-
-            } catch (IOException e) {
-                Platform.runLater(() -> {
-                    loadingStage.close();
-
-                    // Re-enable main window
-                    currentStage.setOnCloseRequest(event -> {}); // Reset close handler
-                    currentStage.getScene().getRoot().setDisable(false);
-
-                    // Show error alert
-                    showErrorAlert("Failed to load main view screen", e.getMessage());
-                });
-
-                e.printStackTrace();
-            }
-
-
-        });
+    // Applies a confirmed catalog item to the cached catalog, the categories and the list, instead
+    // of reading the sheet again
+    private void applyNewItem(InventoryItem item) {
+        InventoryCatalog updated = sheetsService.applyNewItem("InventoryList", item);
+        if (updated == null) {
+            // Nothing cached to apply it to (a refresh is under way); read the sheet instead
+            refreshData();
+            return;
+        }
 
+        if (!updated.getCategories().equals(UNIQUE_CATEGORIES_LIST)) {
+            UNIQUE_CATEGORIES_LIST = updated.getCategories();
+            categoryComboBox.getItems().setAll(UNIQUE_CATEGORIES_LIST);
+        }
+        if (currentBranch.equals("ADMIN")) {
+            ++refreshGeneration; // a refresh still in flight may predate the item
+            itemList = updated.getItems();
+            skuBST.insert(item.getSku());
+            showCurrentItems();
+        }
+        scheduleReconcile();
+    }
 
+    // Reads the sheet again once entries have paused, picking up anything the local apply can't
+    // know about, like items added from other terminals
+    private void scheduleReconcile() {
+        if (reconcileDelay == null) {
+            reconcileDelay = new PauseTransition();
+            reconcileDelay.setOnFinished(event -> refreshData());
+        }
+        reconcileDelay.setDuration(Duration.seconds(Config.RECONCILE_DELAY_SECONDS.get()));
+        reconcileDelay.playFromStart();
+    }
 
+    @FXML
+    protected void onBackButtonClick() {
+        SceneNavigator.<AdminMainViewController>navigate(SceneNavigator.Screen.ADMIN_MAIN_VIEW,
+                "VRM Inventory - ADMIN", "Loading Main View...",
+                AdminMainViewController::refreshData);
     }
+
     private void showErrorAlert(String header, String message) {
         Alert errorAlert = new Alert(Alert.AlertType.ERROR);
         errorAlert.setTitle("Error");
@@ -668,30 +669,6 @@ public class AdminInventoryController {
         errorAlert.initStyle(StageStyle.UNDECORATED);       // Remove decorations
         errorAlert.showAndWait();
     }
-    private void showLoadingAlert(Stage loadingStage, String message) {
-        loadingStage.initModality(Modality.APPLICATION_MODAL);
-        loadingStage.initStyle(StageStyle.UNDECORATED);
-        loadingStage.setResizable(false);
-
-        // Create the loading alert content
-        VBox loadingBox = new VBox(10);
-        loadingBox.setAlignment(javafx.geometry.Pos.CENTER);
-        loadingBox.setPadding(new Insets(20));
-        loadingBox.setStyle("-fx-background-color: white; -fx-border-color: #cccccc; -fx-border-width: 1px;");
-
-        Label loadingLabel = new Label(message);
-        loadingLabel.setStyle("-fx-font-size: 14px;");
-
-        ProgressIndicator progress = new ProgressIndicator();
-        progress.setProgress(-1.0f); // Indeterminate progress
-
-        loadingBox.getChildren().addAll(loadingLabel, progress);
-
-        // Set scene for loading stage
-        Scene loadingScene = new Scene(loadingBox, 400, 150);
-        loadingStage.setScene(loadingScene);
-    }
-
 
     private void clearFields() {
         SKUField.clear();
@@ -793,24 +770,7 @@ public class AdminInventoryController {
     }
 
     private void updateObservableList() {
-        observableItemList.setAll(filteredItemList);
-    }
-
-    // In LogEntryController.java
-    public void shutdown() {
-        // Shutdown this controller's executor
-        if (!EXECUTOR.isShutdown()) {
-            EXECUTOR.shutdownNow(); // Force immediate shutdown
-        }
-
-        // Also try to shutdown any executor in the Google Sheets service
-        // This is important as HTTP client pools might still be running
-        if (sheetsService != null && sheetsService.getSheetsService() != null) {
-            try {
-                sheetsService.getSheetsService().getRequestFactory().getTransport().shutdown();
-            } catch (Exception e) {
-                System.err.println("Error shutting down HTTP transport: " + e.getMessage());
-            }
-        }
+        // Apply only what changed so the ListView keeps the cells of unchanged rows
+        ListDiff.apply(observableItemList, filteredItemList, InventoryItem::getSku, InventoryItem::sameContent);
     }
-}
\ No newline at end of file
+}
@@ -1,11 +1,10 @@
 package com.example.vrminventory;
 
 import javafx.application.Platform;
+import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.input.MouseButton;
@@ -21,31 +20,36 @@ import javafx.util.Callback;
 
 import java.io.IOException;
 import java.security.GeneralSecurityException;
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 public class AdminMainViewController {
     // Constants
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("M/dd/yyyy");
-    private static final DateTimeFormatter TIME_FORMATTER_HMS = DateTimeFormatter.ofPattern("H:mm:ss");
-    private static final DateTimeFormatter TIME_FORMATTER_HM = DateTimeFormatter.ofPattern("H:mm");
-    private static final DateTimeFormatter TIME_FORMATTER_FULL = DateTimeFormatter.ofPattern("HH:mm:ss");
-    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(2);
+    private static final ExecutorService EXECUTOR = TunableThreadPool.newFixedThreadPool(Config.WORKER_THREADS);
 
     // Lists
     private static final List<String> BRANCH_LIST = List.of("ADMIN", "Branch1", "Branch2", "Branch3", "Warehouse");
-    private static final List<String> SEARCH_FILTERS = List.of("SKU", "Description");
+    private static final List<String> SEARCH_FILTERS = List.of("SKU", "Description", "Query");
+    private static final List<String> DATE_RANGES =
+            List.of("All Dates", "Today", "Yesterday", "Last 7 Days", "Last 30 Days", "Custom");
+    private static final int DATE_RANGE_LIMIT = 5000;
     private static final List<String> TYPE_FILTERS = List.of("Date and Time", "SKU", "Quantity");
     private static final List<String> ASC_DESC_FILTERS = List.of("Ascending", "Descending");
+    private static final List<String> DASHBOARD_PERIODS = List.of("Hourly", "Daily", "Monthly");
+    private static final List<String> DASHBOARD_GROUPS = List.of("Branch", "Category", "SKU", "All Branches");
+    private static final List<String> RANKING_LOCATIONS = List.of("All Branches", "Branch1", "Branch2", "Branch3");
+    private static final List<String> RANKING_PERIODS = List.of("Today", "This Week", "This Month", "This Year");
+    private static final List<String> RANKINGS = List.of("Best Sellers", "Top Revenue", "Slowest Movers");
+    private static final List<Integer> RANKING_SIZES = List.of(10, 20, 50, 100);
 
     // Fields
-    private GoogleSheetsService sheetsService;
+    private volatile GoogleSheetsService sheetsService; // set once the shared service has started
     private List<LogEntry> logEntries;
     private List<LogEntry> filteredLogEntries;
 
@@ -56,6 +60,10 @@ public class AdminMainViewController {
     @FXML
     private Label mainLabel;
     @FXML
+    private Label lowStockLabel;
+    @FXML
+    private Label resultsNoteLabel;
+    @FXML
     private VBox listViewContainer;
     @FXML
     private ListView<LogEntry> logListView;
@@ -64,6 +72,12 @@ public class AdminMainViewController {
     @FXML
     private TextField searchField;
     @FXML
+    private ComboBox<String> dateRangeComboBox;
+    @FXML
+    private DatePicker fromDatePicker;
+    @FXML
+    private DatePicker toDatePicker;
+    @FXML
     private ComboBox<String> typeFilterComboBox;
     @FXML
     private ComboBox<String> ascOrDescComboBox;
@@ -73,15 +87,22 @@ public class AdminMainViewController {
 
     private ObservableList<LogEntry> observableLogList;
     private String currentBranch;
+    private long refreshGeneration; // FX thread only
+    private PagedLogSource logSource; // FX thread only
+    private boolean pageLoading; // FX thread only
+    private ChangeFeed.Subscription feedSubscription; // FX thread only
+    private LowStockAlerts.Listener lowStockListener; // FX thread only; registered once the service has started
+    private List<LogEntry> queryResults = List.of(); // FX thread only; the last query run from the search field
+    private boolean queryTruncated; // FX thread only; whether the query had more results than its limit
+    private List<LogEntry> dateRangeEntries; // FX thread only; the entries of the date range, null for all dates
+    private boolean dateRangeTruncated; // FX thread only; whether the range had more entries than the limit
+    private long dateRangeGeneration; // FX thread only
+    private boolean settingDateRange; // FX thread only; set while a preset fills in the date pickers
+    private long preparedAt = -1; // FX thread only; when prepareBranch started loading, in nanos
 
     public AdminMainViewController() {
-        try {
-            // Initialize Google Sheets service
-            sheetsService = new GoogleSheetsService();
-        } catch (GeneralSecurityException | IOException e) {
-            System.err.println("Failed to initialize Google Sheets service: " + e.getMessage());
-            e.printStackTrace();
-        }
+        // Sign-in runs in the background; refreshData waits for it off the FX thread
+        GoogleSheetsService.startAsync();
     }
 
     @FXML
@@ -113,148 +134,196 @@ public class AdminMainViewController {
         }
     }
 
-    private void initializeData() throws IOException {
-        if (sheetsService == null) {
-            throw new IOException("Google Sheets service is not initialized");
-        }
-
-        logEntries = getLogEntries();
-        filteredLogEntries = new ArrayList<>(logEntries);
-        observableLogList = FXCollections.observableArrayList(filteredLogEntries);
+    private void initializeData() {
+        // Filled in by refreshData once the screen is shown
+        logEntries = new ArrayList<>();
+        filteredLogEntries = new ArrayList<>();
+        observableLogList = FXCollections.observableArrayList();
     }
 
-    // Method to get log entries from GeneralLogSheet in Google Sheets
-    private List<LogEntry> getLogEntries() throws IOException {
-        List<LogEntry> entries = new ArrayList<>();
-
-        // Get data from General Log Sheet
-        String range;
+    // Method to turn one row of GeneralLogSheet, or of a branch log sheet, into a LogEntry
+    private LogEntry parseLogRow(String currentBranch, RowDecoder decoder, List<Object> row, int rowNumber) {
+        // Empty and malformed rows are skipped; the decoder counts the malformed ones
+        LogEntry logEntry;
         if (Objects.equals(currentBranch, "ADMIN")) {
-            range = "GeneralLogSheet!E18:K10000";  // Range for consolidated logs of InventoryList
+            // GeneralLogSheet rows start with the branch they were logged at
+            if (row.isEmpty()) return null;
+            String branch = row.get(0).toString().trim();
+            logEntry = decoder.decodeLogEntry(row, 1, branch, this::convertActivityCodeToString);
         }
         else{
-            range = currentBranch + "!I21:N5000";
-            System.out.println(range);
-        }
-        var response = sheetsService.getSheetsService().spreadsheets().values()
-                .get(sheetsService.getSpreadsheetId(), range)
-                .execute();
-
-        if (response.getValues() != null) {
-            for (List<Object> row : response.getValues()) {
-
-                String branch;
-                String date;
-                String time;
-                String activity;
-                int sku;
-                int quantity;
-                String description;
-
-                // Skip empty rows or rows with insufficient data
-                if (Objects.equals(currentBranch, "ADMIN")) {
-                    if (row.isEmpty() || row.size() < 6) continue;
-
-                    branch = row.get(0).toString().trim();
-                    date = row.get(1).toString().trim();
-                    time = row.get(2).toString().trim();
-                    activity = convertActivityCodeToString(row.get(3).toString().trim(), branch);
-                    sku = Integer.parseInt(row.get(4).toString().trim());
-                    quantity = Integer.parseInt(row.get(5).toString().trim());
-                    description = row.size() > 6 ? row.get(6).toString().trim() : "";
-                }
-
-                else{
-                    if (row.isEmpty() || row.size() < 5) continue;
+            logEntry = decoder.decodeLogEntry(row, 0, currentBranch, this::convertActivityCodeToString);
+        }
+        if (logEntry == null) return null;
 
-                    branch = currentBranch;
-                    date = row.get(0).toString().trim();
-                    time = row.get(1).toString().trim();
-                    activity = convertActivityCodeToString(row.get(2).toString().trim(), currentBranch);
-                    sku = Integer.parseInt(row.get(3).toString().trim());
-                    quantity = Integer.parseInt(row.get(4).toString().trim());
-                    description = row.size() > 5 ? row.get(5).toString().trim() : "";
-                }
+        logEntry.setRow(rowNumber);
+        enrichLogEntryWithItemDetails(logEntry, logEntry.getBranch());
+        return logEntry;
+    }
 
-                try {
-                    // Create AdminLogEntry and add to list
-                    LogEntry logEntry = new LogEntry(branch, date, time, activity, sku, quantity, description);
-                    logEntry.setBranch(branch); // Set branch in the log entry
-                    enrichLogEntryWithItemDetails(logEntry, branch);
-                    entries.add(logEntry);
-                } catch (Exception e) {
-                    System.err.println("Error processing log entry: " + e.getMessage());
-                }
-            }
+    // Page source for GeneralLogSheet (E18:K) or a branch log sheet (I21:N)
+    private PagedLogSource createLogSource(String branch) {
+        if (Objects.equals(branch, "ADMIN")) {
+            return new PagedLogSource(sheetsService, "GeneralLogSheet", 18, "E", "K",
+                    (decoder, row, rowNumber) -> parseLogRow(branch, decoder, row, rowNumber));
         }
-
-        return entries;
+        return new PagedLogSource(sheetsService, branch, Config.LOG_START_ROW.get(), "I", "N",
+                (decoder, row, rowNumber) -> parseLogRow(branch, decoder, row, rowNumber));
     }
 
     // Method to convert activity codes to their string equivalents
-    private String convertActivityCodeToString(String activityCode, String branch) {
+    private String convertActivityCodeToString(int activityCode, String branch) {
         if (branch.toLowerCase().contains("warehouse")) {
             // Warehouse activity codes (1-2)
             switch (activityCode) {
-                case "1": return "Supply";
-                case "2": return "Transfer-Out";
-                default: return activityCode; // Return original if unrecognized
+                case 1: return "Supply";
+                case 2: return "Transfer-Out";
+                default: return String.valueOf(activityCode); // Return original if unrecognized
             }
         } else {
             // Branch activity codes (1-4)
             switch (activityCode) {
-                case "1": return "Sale";
-                case "2": return "Transfer-In";
-                case "3": return "Transfer-Out";
-                case "4": return "Return/Refund";
-                default: return activityCode; // Return original if unrecognized
+                case 1: return "Sale";
+                case 2: return "Transfer-In";
+                case 3: return "Transfer-Out";
+                case 4: return "Return/Refund";
+                default: return String.valueOf(activityCode); // Return original if unrecognized
             }
         }
     }
 
     // Method to enrich log entry with item details (name, category, price)
     private void enrichLogEntryWithItemDetails(LogEntry logEntry, String branch) {
-        try {
-            // Get inventory items for the branch
-            List<InventoryItem> items = sheetsService.getAllInventoryItems(branch);
-
-            // Find the item that matches the SKU
-            for (InventoryItem item : items) {
-                if (item.getSku() == logEntry.getSku()) {
-                    logEntry.setItemName(item.getName());
-                    logEntry.setItemCategory(item.getCategory());
-                    logEntry.setItemPrice(item.getPrice());
-                    break;
+        // Look up the item by SKU in the branch's catalog, loaded with the log by the bootstrap
+        InventoryItem item = sheetsService.getCatalog(branch).findBySku(logEntry.getSku());
+        if (item != null) {
+            logEntry.setItemName(item.getName());
+            logEntry.setItemCategory(item.getCategory());
+            logEntry.setItemPrice(item.getPrice());
+        }
+    }
+
+    // Method to refresh data from Google Sheets, off the FX thread
+    public void refreshData() {
+        String branch = currentBranch;
+        long generation = ++refreshGeneration;
+        logSource = null; // no paging through the old data while the new data loads
+
+        EXECUTOR.submit(() -> {
+            try {
+                sheetsService = GoogleSheetsService.getInstance();
+                String resumeToken = sheetsService.getChangeFeed().getResumeToken();
+
+                // Retrieve the newest page with the items it refers to in one request; older pages
+                // load as the list scrolls
+                PagedLogSource source = createLogSource(branch);
+                ScreenBootstrap bootstrap = new ScreenBootstrap(sheetsService, branch).log(source);
+                for (String sheetName : BRANCH_LIST) {
+                    // GeneralLogSheet holds the logs of every branch
+                    if (!sheetName.equals("ADMIN") && (branch.equals("ADMIN") || sheetName.equals(branch))) {
+                        bootstrap.catalog(sheetName);
+                    }
                 }
+                bootstrap.load();
+                Map<Integer, List<LogEntry>> firstPages = bootstrap.getFirstPages();
+
+                Platform.runLater(() -> {
+                    // A newer refresh (or a location switch) has been started since
+                    if (generation != refreshGeneration) {
+                        return;
+                    }
+                    logSource = source;
+                    pageLoading = false; // a page still in flight belongs to the old source
+                    firstPages.forEach(source::putPage);
+                    logListView.setPlaceholder(new Label("No log entries found"));
+                    showLoadedEntries();
+                    if (dateRangeEntries != null) {
+                        applyDateRange(); // for the new location, with the rows logged since
+                    }
+                    followChanges(source, generation, resumeToken);
+                    watchLowStock();
+                    StartupMetrics.mark(StartupMetrics.FIRST_DATA);
+                });
+            } catch (GeneralSecurityException | IOException e) {
+                Platform.runLater(() -> {
+                    preparedAt = -1; // don't keep a failed load for the login it was prepared for
+                    logListView.setPlaceholder(new Label("Could not load log entries"));
+                });
+                e.printStackTrace();
             }
-        } catch (IOException e) {
-            System.err.println("Failed to get item details: " + e.getMessage());
+        });
+    }
+
+    // Shows rows logged since the load, here or at other terminals, as the change feed reports them
+    private void followChanges(PagedLogSource source, long generation, String resumeToken) {
+        if (feedSubscription != null) {
+            feedSubscription.close();
         }
+        feedSubscription = source.followChanges(resumeToken,
+                entries -> Platform.runLater(() -> {
+                    if (generation == refreshGeneration && source.addNewEntries(entries)) {
+                        showLoadedEntries();
+                    }
+                }),
+                () -> Platform.runLater(() -> {
+                    if (generation == refreshGeneration) {
+                        refreshData();
+                    }
+                }));
     }
 
-    // Method to refresh data from Google Sheets
-    public void refreshData() {
-        try {
-            // Retrieve fresh data from Google Sheets
-            logEntries = getLogEntries();
+    // Loads an older or newer page of the current log sheet, off the FX thread
+    private void loadPage(int page) {
+        PagedLogSource source = logSource;
+        if (source == null || page < 0 || pageLoading) {
+            return;
+        }
+        pageLoading = true;
+        long generation = refreshGeneration;
 
-            // Update filtered list
-            String searchFilter = searchFilterComboBox.getValue();
-            String searchText = searchField.getText();
+        EXECUTOR.submit(() -> {
+            try {
+                List<LogEntry> entries = source.readPage(page);
 
-            if (searchFilter != null && !searchText.isEmpty()) {
-                // Apply search filter if active
-                handleSearch(searchText);
-            } else {
-                // Otherwise reset to full list
-                filteredLogEntries.clear();
-                filteredLogEntries.addAll(logEntries);
-                applyFilters();
+                Platform.runLater(() -> {
+                    pageLoading = false;
+                    if (generation != refreshGeneration) {
+                        return;
+                    }
+                    source.putPage(page, entries);
+                    showLoadedEntries();
+                });
+            } catch (IOException e) {
+                Platform.runLater(() -> pageLoading = false);
+                e.printStackTrace();
             }
+        });
+    }
 
-        } catch (IOException e) {
+    // Shows the entries of the loaded pages, keeping the current search, sort and scroll position
+    private void showLoadedEntries() {
+        LogEntry firstVisible = ListScrollPaging.firstVisibleItem(logListView);
+        logEntries = logSource.getLoadedEntries();
+        showFilteredEntries();
+        ListScrollPaging.restoreFirstVisible(logListView, firstVisible);
 
-            e.printStackTrace();
+        // A short first page can't be scrolled, so keep going until the list fills up
+        if (logEntries.size() < logSource.getPageSize()) {
+            loadPage(logSource.nextOlderPage());
+        }
+    }
+
+    // Shows the loaded entries, or those of the date range, keeping the current search and sort
+    private void showFilteredEntries() {
+        String searchFilter = searchFilterComboBox.getValue();
+        String searchText = searchField.getText();
+
+        if (searchFilter != null && !searchText.isEmpty()) {
+            // Apply search filter if active
+            handleSearch(searchText);
+        } else {
+            // Otherwise reset to full list
+            resetToFullList();
         }
     }
 
@@ -266,6 +335,8 @@ public class AdminMainViewController {
         searchFilterComboBox.getItems().addAll(SEARCH_FILTERS);
         typeFilterComboBox.getItems().addAll(TYPE_FILTERS);
         ascOrDescComboBox.getItems().addAll(ASC_DESC_FILTERS);
+        dateRangeComboBox.getItems().addAll(DATE_RANGES);
+        dateRangeComboBox.setValue("All Dates");
 
         searchField.setDisable(true);
         searchFilterComboBox.setValue(null);
@@ -275,8 +346,13 @@ public class AdminMainViewController {
 
     private void setupEventListeners() {
         searchFilterComboBox.valueProperty().addListener((observable, oldValue, newValue) -> {
+            queryResults = List.of();
+            queryTruncated = false;
             if (newValue != null && !newValue.isEmpty()) {
                 searchField.setDisable(false);
+                searchField.setPromptText("Query".equals(newValue)
+                        ? "e.g. branch:Branch1 activity:Sale sku:100-199 date:10/1/2026-10/19/2026 qty:>5 screen (Enter to run)"
+                        : "Enter your search information here...");
                 searchField.clear();
                 // Apply the search for an empty string to reset the filtered list
                 handleSearch("");
@@ -288,6 +364,49 @@ public class AdminMainViewController {
 
         searchField.textProperty().addListener((observable, oldValue, newValue) ->
                 handleSearch(newValue));
+        // Queries run over every log, so they run on Enter rather than on each keystroke
+        searchField.setOnAction(event -> {
+            if ("Query".equals(searchFilterComboBox.getValue())) {
+                runQuery(searchField.getText());
+            }
+        });
+
+        // A preset fills in the date pickers; picking a date makes the range custom
+        dateRangeComboBox.valueProperty().addListener((obs, oldVal, newVal) -> {
+            if (newVal == null || newVal.equals("Custom") || settingDateRange) {
+                return;
+            }
+            LocalDate today = LocalDate.now();
+            LocalDate from = switch (newVal) {
+                case "Today" -> today;
+                case "Yesterday" -> today.minusDays(1);
+                case "Last 7 Days" -> today.minusDays(6);
+                case "Last 30 Days" -> today.minusDays(29);
+                default -> null;
+            };
+            LocalDate to = switch (newVal) {
+                case "All Dates" -> null;
+                case "Yesterday" -> today.minusDays(1);
+                default -> today;
+            };
+            settingDateRange = true;
+            fromDatePicker.setValue(from);
+            toDatePicker.setValue(to);
+            settingDateRange = false;
+            applyDateRange();
+        });
+        for (DatePicker datePicker : List.of(fromDatePicker, toDatePicker)) {
+            datePicker.valueProperty().addListener((obs, oldVal, newVal) -> {
+                if (settingDateRange) {
+                    return;
+                }
+                settingDateRange = true;
+                boolean allDates = fromDatePicker.getValue() == null && toDatePicker.getValue() == null;
+                dateRangeComboBox.setValue(allDates ? "All Dates" : "Custom");
+                settingDateRange = false;
+                applyDateRange();
+            });
+        }
 
         typeFilterComboBox.valueProperty().addListener((obs, oldVal, newVal) -> applyFilters());
         ascOrDescComboBox.valueProperty().addListener((obs, oldVal, newVal) -> applyFilters());
@@ -339,6 +458,12 @@ public class AdminMainViewController {
 
         // Populate the ListView
         logListView.setItems(observableLogList);
+        logListView.setPlaceholder(new Label("Loading log entries..."));
+
+        // Fetch older entries near the bottom, and evicted newer ones again near the top
+        ListScrollPaging.install(logListView,
+                () -> { if (logSource != null) loadPage(logSource.nextNewerPage()); },
+                () -> { if (logSource != null) loadPage(logSource.nextOlderPage()); });
     }
 
     private GridPane createHeaderGridPane() {
@@ -420,6 +545,11 @@ public class AdminMainViewController {
                 descriptionLabel.setMaxWidth(columnWidths[6] - 10);
                 descriptionLabel.setMinHeight(Label.USE_COMPUTED_SIZE);
                 descriptionLabel.setPrefHeight(Label.USE_COMPUTED_SIZE);
+
+                // The graphic stays attached for the cell's lifetime; the cell height grows with content
+                setPrefHeight(USE_COMPUTED_SIZE);
+                setGraphic(gridPane);
+                gridPane.setVisible(false);
             }
 
             @Override
@@ -428,27 +558,18 @@ public class AdminMainViewController {
 
                 if (empty || entry == null) {
                     setText(null);
-                    setGraphic(null);
+                    // Hide the row instead of detaching it so the graphic isn't re-styled on reuse
+                    gridPane.setVisible(false);
                 } else {
                     // Update labels with entry data (branch added)
                     branchLabel.setText(entry.getBranch());
                     dateLabel.setText(entry.getDate());
                     timeLabel.setText(entry.getTime());
                     activityLabel.setText(entry.getActivity());
-                    skuLabel.setText(String.valueOf(entry.getSku()));
-                    quantityLabel.setText(String.valueOf(entry.getQuantity()));
-
-                    // Truncate description if needed
-                    String desc = entry.getDescription();
-                    if (desc != null && desc.length() > 20) {
-                        descriptionLabel.setText(desc.substring(0, 20) + "...");
-                    } else {
-                        descriptionLabel.setText(desc);
-                    }
-
-                    // Set the cell height to grow as needed based on content
-                    setPrefHeight(USE_COMPUTED_SIZE);
-                    setGraphic(gridPane);
+                    skuLabel.setText(entry.getSkuText());
+                    quantityLabel.setText(entry.getQuantityText());
+                    descriptionLabel.setText(entry.getDescriptionPreview());
+                    gridPane.setVisible(true);
                 }
             }
         };
@@ -541,42 +662,8 @@ public class AdminMainViewController {
 
         switch (typeFilter) {
             case "Date and Time":
-                // More robust DateTime comparator
-                primaryComparator = Comparator.comparing(entry -> {
-                    try {
-                        // Parse the date
-                        LocalDate date = LocalDate.parse(entry.getDate(), DATE_FORMATTER);
-
-                        // Try different time formats
-                        LocalTime time;
-                        String timeStr = entry.getTime().trim();
-
-                        try {
-                            // First try HH:mm:ss format
-                            time = LocalTime.parse(timeStr, TIME_FORMATTER_FULL);
-                        } catch (Exception e1) {
-                            try {
-                                // Then try H:mm:ss format (single digit hour)
-                                time = LocalTime.parse(timeStr, TIME_FORMATTER_HMS);
-                            } catch (Exception e2) {
-                                try {
-                                    // Finally try H:mm format (no seconds)
-                                    time = LocalTime.parse(timeStr, TIME_FORMATTER_HM);
-                                } catch (Exception e3) {
-                                    // If all parsing fails, use midnight as default
-                                    System.err.println("Could not parse time: " + timeStr + " for date: " + entry.getDate());
-                                    time = LocalTime.MIDNIGHT;
-                                }
-                            }
-                        }
-
-                        return LocalDateTime.of(date, time);
-                    } catch (Exception e) {
-                        // For unparseable dates, use a default value
-                        System.err.println("Date parsing error: " + e.getMessage() + " for " + entry.getDate());
-                        return LocalDateTime.now();
-                    }
-                });
+                // Timestamps are decoded once, when the rows are read
+                primaryComparator = LogEntry.BY_TIMESTAMP;
                 break;
             case "SKU":
                 primaryComparator = Comparator.comparingInt(LogEntry::getSku);
@@ -600,7 +687,10 @@ public class AdminMainViewController {
     }
 
     private void updateObservableList() {
-        observableLogList.setAll(filteredLogEntries);
+        // Apply only what changed so the ListView keeps the cells of unchanged rows
+        // Query results mix logs, so rows are keyed by their sheet too
+        ListDiff.apply(observableLogList, filteredLogEntries, entry -> entry.getBranch() + "!" + entry.getRow(),
+                LogEntry::sameContent);
     }
 
     private void handleSearch(String searchText) {
@@ -608,12 +698,18 @@ public class AdminMainViewController {
         searchText = searchText.trim().toLowerCase();
 
         // Reset to full list first to ensure we're searching all items
-        List<LogEntry> baseList = new ArrayList<>(logEntries);
+        List<LogEntry> baseList = new ArrayList<>(dateRangeEntries != null ? dateRangeEntries : logEntries);
 
         // If no filter or empty search, use full list
+        boolean showingQuery = false;
         if (filter == null || searchText.isEmpty()) {
             filteredLogEntries.clear();
             filteredLogEntries.addAll(baseList);
+        } else if (filter.equals("Query")) {
+            showingQuery = true;
+            // Query results come from every log, not only the loaded pages
+            filteredLogEntries.clear();
+            filteredLogEntries.addAll(queryResults);
         } else {
             // Apply filter based on search criteria
             String finalSearchText = searchText;
@@ -624,6 +720,7 @@ public class AdminMainViewController {
             filteredLogEntries.clear();
             filteredLogEntries.addAll(searchResults);
         }
+        showResultsNote(showingQuery);
 
         // Apply current sort filters to maintain consistency
         applyFilters();
@@ -643,108 +740,435 @@ public class AdminMainViewController {
 
     private void resetToFullList() {
         filteredLogEntries.clear();
-        filteredLogEntries.addAll(logEntries);
+        filteredLogEntries.addAll(dateRangeEntries != null ? dateRangeEntries : logEntries);
+        showResultsNote(false);
         applyFilters();
     }
 
-    @FXML
-    private void onAddLogEntryButtonClick() throws IOException {
-        // Create a new stage for modal loading alert
-        Stage loadingStage = new Stage();
-        loadingStage.initModality(Modality.APPLICATION_MODAL);
-        loadingStage.initStyle(StageStyle.UNDECORATED);
-        loadingStage.setResizable(false);
+    // Says when the list holds only the newest entries of a query or date range that has more
+    private void showResultsNote(boolean showingQuery) {
+        String note = null;
+        if (showingQuery && queryTruncated) {
+            note = "Showing the newest " + queryResults.size() + " matches of more; narrow the query or the dates"
+                    + " to see the rest";
+        } else if (!showingQuery && dateRangeEntries != null && dateRangeTruncated) {
+            note = "Showing the newest " + dateRangeEntries.size() + " entries of more in these dates; narrow the"
+                    + " dates to see the rest";
+        }
+        resultsNoteLabel.setText(note != null ? note : "");
+        resultsNoteLabel.setVisible(note != null);
+        resultsNoteLabel.setManaged(note != null);
+    }
 
-        // Create the loading alert content
-        VBox loadingBox = new VBox(10);
-        loadingBox.setAlignment(javafx.geometry.Pos.CENTER);
-        loadingBox.setPadding(new javafx.geometry.Insets(20));
-        loadingBox.setStyle("-fx-background-color: white; -fx-border-color: #cccccc; -fx-border-width: 1px;");
+    // Reads the entries of the date pickers' range at the current location from the query engine's
+    // time index, loading it on first use, off the FX thread
+    private void applyDateRange() {
+        long generation = ++dateRangeGeneration;
+        if (fromDatePicker.getValue() == null && toDatePicker.getValue() == null) {
+            dateRangeEntries = null;
+            showFilteredEntries();
+            return;
+        }
+        // One entry over the limit tells whether there are more
+        LogQuery query = withDateRange(new LogQuery()).limit(DATE_RANGE_LIMIT + 1);
+        if (!currentBranch.equals("ADMIN")) {
+            query.branch(currentBranch);
+        }
+        logListView.setPlaceholder(new Label("Loading log entries..."));
 
-        Label loadingLabel = new Label("Loading Log Entry Screen...");
-        loadingLabel.setStyle("-fx-font-size: 14px;");
+        EXECUTOR.submit(() -> {
+            try {
+                LogQueryEngine engine = GoogleSheetsService.getInstance().getLogQueryEngine();
+                engine.load();
+                List<LogEntry> entries = engine.find(query);
 
-        ProgressIndicator progress = new ProgressIndicator();
-        progress.setProgress(-1.0f); // Indeterminate progress
+                Platform.runLater(() -> {
+                    if (generation == dateRangeGeneration) {
+                        dateRangeTruncated = entries.size() > DATE_RANGE_LIMIT;
+                        dateRangeEntries = dateRangeTruncated ? entries.subList(0, DATE_RANGE_LIMIT) : entries;
+                        logListView.setPlaceholder(new Label("No log entries found"));
+                        showFilteredEntries();
+                    }
+                });
+            } catch (GeneralSecurityException | IOException e) {
+                Platform.runLater(() -> logListView.setPlaceholder(new Label("Could not load log entries")));
+                Logger.logError("Failed to read the date range", e);
+            }
+        });
+    }
 
-        loadingBox.getChildren().addAll(loadingLabel, progress);
+    // Limits a query to the days of the date pickers, either of which may be empty
+    private LogQuery withDateRange(LogQuery query) {
+        LocalDate from = fromDatePicker.getValue();
+        LocalDate to = toDatePicker.getValue();
+        if (from == null && to == null) {
+            return query;
+        }
+        return query.between(from != null ? from.atStartOfDay() : null, to != null ? to.atTime(23, 59, 59) : null);
+    }
 
-        // Set scene for loading stage
-        Scene loadingScene = new Scene(loadingBox, 400, 150);
-        loadingStage.setScene(loadingScene);
+    // Runs a query over every log through the query engine, loading it on first use, off the FX thread
+    private void runQuery(String queryText) {
+        if (queryText.isBlank()) {
+            return;
+        }
+        LogQuery query;
+        try {
+            query = LogQuery.parse(queryText);
+            if (!query.hasTimeRange()) {
+                withDateRange(query);
+            }
+            // One result over the limit tells whether there are more
+            query.limit(query.getLimit() + 1);
+        } catch (IllegalArgumentException e) {
+            showErrorAlert("Invalid Query", e.getMessage());
+            return;
+        }
 
-        // Get current stage to disable it
-        Stage currentStage = (Stage) mainLabel.getScene().getWindow();
+        EXECUTOR.submit(() -> {
+            try {
+                LogQueryEngine engine = GoogleSheetsService.getInstance().getLogQueryEngine();
+                engine.load();
+                LogQueryEngine.Plan plan = engine.explain(query);
+                List<LogEntry> found = engine.find(query);
+                int limit = query.getLimit() - 1;
+                boolean truncated = found.size() > limit;
+                List<LogEntry> results = truncated ? found.subList(0, limit) : found;
+                Logger.log(Logger.Level.INFO, "ADMIN", "Query \"" + queryText + "\" used the " + plan.index()
+                        + " index: " + plan.estimatedRows() + " of " + plan.totalRows() + " entries checked, "
+                        + results.size() + (truncated ? "+" : "") + " found");
 
-        // Disable the main window before showing loading dialog
-        currentStage.setOnCloseRequest(event -> event.consume()); // Prevent closing while loading
-        currentStage.getScene().getRoot().setDisable(true);
+                Platform.runLater(() -> {
+                    if (queryText.equals(searchField.getText()) && "Query".equals(searchFilterComboBox.getValue())) {
+                        queryResults = results;
+                        queryTruncated = truncated;
+                        handleSearch(queryText);
+                    }
+                });
+            } catch (GeneralSecurityException | IOException e) {
+                Platform.runLater(() -> showErrorAlert("Query Failed", "Could not read the logs: " + e.getMessage()));
+                Logger.logError("Failed to run log query", e);
+            }
+        });
+    }
 
-        // Show the loading dialog
-        loadingStage.show();
+    @FXML
+    private void onAddLogEntryButtonClick() {
+        SceneNavigator.<AdminInventoryController>navigate(SceneNavigator.Screen.ADMIN_INVENTORY,
+                "Add Log Entry - " + "GeneralLogSheet", "Loading Log Entry Screen...",
+                AdminInventoryController::refreshData);
+    }
+
+    @FXML
+    private void onDashboardButtonClick() {
+        Stage dashboardStage = new Stage();
+        dashboardStage.initModality(Modality.APPLICATION_MODAL);
+        dashboardStage.initStyle(StageStyle.DECORATED);
+        dashboardStage.setTitle("Dashboard");
+
+        TabPane tabs = new TabPane(new Tab("Sales", createSalesPane()), new Tab("Rankings", createRankingsPane()),
+                new Tab("Transfers", createTransfersPane()));
+        tabs.setTabClosingPolicy(TabPane.TabClosingPolicy.UNAVAILABLE);
+
+        Button closeButton = new Button("Close");
+        closeButton.setStyle("-fx-font-size: 14px; -fx-padding: 5 15 5 15;");
+        closeButton.setOnAction(e -> dashboardStage.close());
+
+        VBox content = new VBox(10, tabs, closeButton);
+        content.setPadding(new javafx.geometry.Insets(20));
+        content.setStyle("-fx-background-color: white;");
+        VBox.setVgrow(tabs, javafx.scene.layout.Priority.ALWAYS);
+
+        dashboardStage.setScene(new Scene(content, 750, 600));
+        dashboardStage.show();
+    }
+
+    private VBox createSalesPane() {
+        ComboBox<String> periodComboBox = new ComboBox<>(FXCollections.observableArrayList(DASHBOARD_PERIODS));
+        periodComboBox.setValue("Daily");
+        ComboBox<String> groupComboBox = new ComboBox<>(FXCollections.observableArrayList(DASHBOARD_GROUPS));
+        groupComboBox.setValue("Branch");
+
+        // One row per bucket and branch, category or SKU, newest bucket first
+        TableView<SalesRollups.Rollup> table = new TableView<>();
+        TableColumn<SalesRollups.Rollup, String> periodColumn = new TableColumn<>("Period");
+        TableColumn<SalesRollups.Rollup, String> keyColumn = new TableColumn<>("Group");
+        TableColumn<SalesRollups.Rollup, String> soldColumn = new TableColumn<>("Sold");
+        TableColumn<SalesRollups.Rollup, String> returnedColumn = new TableColumn<>("Returned");
+        TableColumn<SalesRollups.Rollup, String> revenueColumn = new TableColumn<>("Revenue");
+        periodColumn.setCellValueFactory(cell -> new SimpleStringProperty(
+                formatPeriod(periodComboBox.getValue(), cell.getValue().start())));
+        keyColumn.setCellValueFactory(cell -> new SimpleStringProperty(cell.getValue().key()));
+        soldColumn.setCellValueFactory(cell -> new SimpleStringProperty(String.valueOf(cell.getValue().unitsSold())));
+        returnedColumn.setCellValueFactory(cell -> new SimpleStringProperty(String.valueOf(cell.getValue().unitsReturned())));
+        revenueColumn.setCellValueFactory(cell -> new SimpleStringProperty(String.format("₱%.2f", cell.getValue().revenue())));
+        table.getColumns().addAll(List.of(periodColumn, keyColumn, soldColumn, returnedColumn, revenueColumn));
+        table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+
+        Runnable refresh = () -> showSalesRollups(table, periodComboBox.getValue(), groupComboBox.getValue());
+        periodComboBox.valueProperty().addListener((obs, oldVal, newVal) -> refresh.run());
+        groupComboBox.valueProperty().addListener((obs, oldVal, newVal) -> refresh.run());
+
+        Button refreshButton = new Button("Refresh");
+        refreshButton.setStyle("-fx-font-size: 14px; -fx-padding: 5 15 5 15;");
+        refreshButton.setOnAction(e -> refresh.run());
+
+        GridPane controls = new GridPane();
+        controls.setHgap(10);
+        controls.add(new Label("Period:"), 0, 0);
+        controls.add(periodComboBox, 1, 0);
+        controls.add(new Label("Group by:"), 2, 0);
+        controls.add(groupComboBox, 3, 0);
+        controls.add(refreshButton, 4, 0);
+
+        VBox pane = new VBox(10, controls, table);
+        pane.setPadding(new javafx.geometry.Insets(10, 0, 0, 0));
+        VBox.setVgrow(table, javafx.scene.layout.Priority.ALWAYS);
+        refresh.run();
+        return pane;
+    }
+
+    private VBox createRankingsPane() {
+        ComboBox<String> locationBox = new ComboBox<>(FXCollections.observableArrayList(RANKING_LOCATIONS));
+        locationBox.setValue("All Branches");
+        ComboBox<String> periodBox = new ComboBox<>(FXCollections.observableArrayList(RANKING_PERIODS));
+        periodBox.setValue("This Week");
+        ComboBox<String> rankingBox = new ComboBox<>(FXCollections.observableArrayList(RANKINGS));
+        rankingBox.setValue("Best Sellers");
+        ComboBox<Integer> sizeBox = new ComboBox<>(FXCollections.observableArrayList(RANKING_SIZES));
+        sizeBox.setValue(20);
+
+        TableView<SalesRollups.RankedItem> table = new TableView<>();
+        TableColumn<SalesRollups.RankedItem, String> rankColumn = new TableColumn<>("#");
+        TableColumn<SalesRollups.RankedItem, String> skuColumn = new TableColumn<>("SKU");
+        TableColumn<SalesRollups.RankedItem, String> nameColumn = new TableColumn<>("Name");
+        TableColumn<SalesRollups.RankedItem, String> soldColumn = new TableColumn<>("Sold");
+        TableColumn<SalesRollups.RankedItem, String> revenueColumn = new TableColumn<>("Revenue");
+        rankColumn.setCellValueFactory(cell -> new SimpleStringProperty(String.valueOf(cell.getValue().rank())));
+        skuColumn.setCellValueFactory(cell -> new SimpleStringProperty(String.valueOf(cell.getValue().sku())));
+        nameColumn.setCellValueFactory(cell -> new SimpleStringProperty(cell.getValue().name()));
+        soldColumn.setCellValueFactory(cell -> new SimpleStringProperty(String.valueOf(cell.getValue().unitsSold())));
+        revenueColumn.setCellValueFactory(cell -> new SimpleStringProperty(String.format("₱%.2f", cell.getValue().revenue())));
+        table.getColumns().addAll(List.of(rankColumn, skuColumn, nameColumn, soldColumn, revenueColumn));
+        table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+
+        Runnable refresh = () -> showRanking(table, locationBox.getValue(), periodBox.getValue(),
+                rankingBox.getValue(), sizeBox.getValue());
+        for (ComboBox<?> box : List.of(locationBox, periodBox, rankingBox, sizeBox)) {
+            box.valueProperty().addListener((obs, oldVal, newVal) -> refresh.run());
+        }
+
+        GridPane controls = new GridPane();
+        controls.setHgap(10);
+        controls.add(locationBox, 0, 0);
+        controls.add(periodBox, 1, 0);
+        controls.add(rankingBox, 2, 0);
+        controls.add(new Label("Show:"), 3, 0);
+        controls.add(sizeBox, 4, 0);
+
+        VBox pane = new VBox(10, controls, table);
+        pane.setPadding(new javafx.geometry.Insets(10, 0, 0, 0));
+        VBox.setVgrow(table, javafx.scene.layout.Priority.ALWAYS);
+        refresh.run();
+        return pane;
+    }
+
+    // Ranks items from the rollups, loading them on first use, off the FX thread
+    private void showRanking(TableView<SalesRollups.RankedItem> table, String location, String period,
+                             String rankingName, int size) {
+        String branch = location.equals("All Branches") ? null : location;
+        SalesRollups.Ranking ranking = switch (rankingName) {
+            case "Top Revenue" -> SalesRollups.Ranking.REVENUE;
+            case "Slowest Movers" -> SalesRollups.Ranking.SLOWEST;
+            default -> SalesRollups.Ranking.UNITS_SOLD;
+        };
+        LocalDate today = LocalDate.now();
+        LocalDate from = switch (period) {
+            case "This Week" -> today.with(DayOfWeek.MONDAY);
+            case "This Month" -> today.withDayOfMonth(1);
+            case "This Year" -> today.withDayOfYear(1);
+            default -> today;
+        };
+        table.getItems().clear();
+        table.setPlaceholder(new Label("Loading sales..."));
 
-        // Use a background thread to load the new screen
         EXECUTOR.submit(() -> {
             try {
-                // Load the log entry view in background
-                FXMLLoader loader = new FXMLLoader(getClass().getResource("admin-inventory.fxml"));
-                Parent root = loader.load();
-
-                // Get controller and set the branch
-                AdminInventoryController controller = loader.getController();
+                SalesRollups rollups = GoogleSheetsService.getInstance().getSalesRollups();
+                rollups.load();
+                List<SalesRollups.RankedItem> ranked = rollups.rank(ranking, branch, from.atStartOfDay(),
+                        LocalDateTime.now(), size);
 
-                // Update UI on JavaFX thread
                 Platform.runLater(() -> {
-                    try {
-                        // Close the loading alert
-                        loadingStage.close();
-
-                        // Re-enable main window in case of any issue
-                        currentStage.setOnCloseRequest(event -> {}); // Reset close handler
-                        currentStage.getScene().getRoot().setDisable(false);
-
-                        // Create and show the stage
-                        Stage inventoryStage = new Stage();
-                        inventoryStage.setTitle("Add Log Entry - " + "GeneralLogSheet");
-                        inventoryStage.setScene(new Scene(root, 1366, 768));
-                        inventoryStage.setResizable(false);
-
-                        // Close current window
-                        currentStage.close();
-
-                        // Show new window
-                        inventoryStage.show();
-                    } catch (Exception e) {
-                        // Close loading alert in case of error
-                        loadingStage.close();
-
-                        // Re-enable main window
-                        currentStage.setOnCloseRequest(event -> {}); // Reset close handler
-                        currentStage.getScene().getRoot().setDisable(false);
-
-                        // Show error alert
-                        showErrorAlert("Failed to load inventory screen", e.getMessage());
-                        e.printStackTrace();
-                    }
+                    table.getItems().setAll(ranked);
+                    table.setPlaceholder(new Label("No sales in this period"));
                 });
-            } catch (IOException e) {
-                // Close loading alert in case of error
-                Platform.runLater(() -> {
-                    loadingStage.close();
+            } catch (GeneralSecurityException | IOException e) {
+                Platform.runLater(() -> table.setPlaceholder(new Label("Could not load sales")));
+                Logger.logError("Failed to rank items", e);
+            }
+        });
+    }
+
+    private VBox createTransfersPane() {
+        // Transfers not paired with their other half yet, oldest first
+        TableView<TransferReconciler.Reconciliation> table = new TableView<>();
+        TableColumn<TransferReconciler.Reconciliation, String> statusColumn = new TableColumn<>("Status");
+        TableColumn<TransferReconciler.Reconciliation, String> directionColumn = new TableColumn<>("Activity");
+        TableColumn<TransferReconciler.Reconciliation, String> sheetColumn = new TableColumn<>("Location");
+        TableColumn<TransferReconciler.Reconciliation, String> dateColumn = new TableColumn<>("Date and Time");
+        TableColumn<TransferReconciler.Reconciliation, String> skuColumn = new TableColumn<>("SKU");
+        TableColumn<TransferReconciler.Reconciliation, String> quantityColumn = new TableColumn<>("Quantity");
+        statusColumn.setCellValueFactory(cell -> new SimpleStringProperty(
+                cell.getValue().status() == TransferReconciler.Status.UNMATCHED ? "Unmatched"
+                        : cell.getValue().transfer().outgoing() ? "In transit" : "Awaiting Transfer-Out"));
+        directionColumn.setCellValueFactory(cell -> new SimpleStringProperty(
+                cell.getValue().transfer().outgoing() ? "Transfer-Out" : "Transfer-In"));
+        sheetColumn.setCellValueFactory(cell -> new SimpleStringProperty(cell.getValue().transfer().sheetName()));
+        dateColumn.setCellValueFactory(cell -> new SimpleStringProperty(
+                cell.getValue().transfer().timestamp().format(RowDecoder.DATE_DISPLAY) + " "
+                        + cell.getValue().transfer().timestamp().format(RowDecoder.TIME_DISPLAY)));
+        skuColumn.setCellValueFactory(cell -> new SimpleStringProperty(String.valueOf(cell.getValue().transfer().sku())));
+        quantityColumn.setCellValueFactory(cell -> new SimpleStringProperty(String.valueOf(cell.getValue().transfer().quantity())));
+        table.getColumns().addAll(List.of(statusColumn, directionColumn, sheetColumn, dateColumn, skuColumn, quantityColumn));
+        table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+
+        Label summaryLabel = new Label();
+        Button refreshButton = new Button("Refresh");
+        refreshButton.setStyle("-fx-font-size: 14px; -fx-padding: 5 15 5 15;");
+        refreshButton.setOnAction(e -> showTransfers(table, summaryLabel));
+
+        GridPane controls = new GridPane();
+        controls.setHgap(10);
+        controls.add(summaryLabel, 0, 0);
+        controls.add(refreshButton, 1, 0);
+
+        VBox pane = new VBox(10, controls, table);
+        pane.setPadding(new javafx.geometry.Insets(10, 0, 0, 0));
+        VBox.setVgrow(table, javafx.scene.layout.Priority.ALWAYS);
+        showTransfers(table, summaryLabel);
+        return pane;
+    }
 
-                    // Re-enable main window
-                    currentStage.setOnCloseRequest(event -> {}); // Reset close handler
-                    currentStage.getScene().getRoot().setDisable(false);
+    // Reads the open transfers from the reconciler, loading it on first use, off the FX thread
+    private void showTransfers(TableView<TransferReconciler.Reconciliation> table, Label summaryLabel) {
+        table.getItems().clear();
+        table.setPlaceholder(new Label("Loading transfers..."));
+
+        EXECUTOR.submit(() -> {
+            try {
+                TransferReconciler reconciler = GoogleSheetsService.getInstance().getTransferReconciler();
+                reconciler.load();
+                List<TransferReconciler.Reconciliation> open = reconciler.getOpen();
+                long matched = reconciler.getMatchedCount();
+                long unmatched = open.stream()
+                        .filter(reconciliation -> reconciliation.status() == TransferReconciler.Status.UNMATCHED)
+                        .count();
 
-                    // Show error alert
-                    showErrorAlert("Failed to load log entry screen", e.getMessage());
+                Platform.runLater(() -> {
+                    table.getItems().setAll(open);
+                    table.setPlaceholder(new Label("Every transfer has been matched"));
+                    summaryLabel.setText(matched + " matched, " + (open.size() - unmatched) + " in transit, "
+                            + unmatched + " unmatched");
                 });
+            } catch (GeneralSecurityException | IOException e) {
+                Platform.runLater(() -> table.setPlaceholder(new Label("Could not load transfers")));
+                Logger.logError("Failed to reconcile transfers", e);
+            }
+        });
+    }
 
-                e.printStackTrace();
+    // Reads the latest buckets from the rollups, loading them on first use, off the FX thread
+    private void showSalesRollups(TableView<SalesRollups.Rollup> table, String period, String group) {
+        SalesRollups.Granularity granularity = switch (period) {
+            case "Hourly" -> SalesRollups.Granularity.HOUR;
+            case "Monthly" -> SalesRollups.Granularity.MONTH;
+            default -> SalesRollups.Granularity.DAY;
+        };
+        SalesRollups.Dimension dimension = switch (group) {
+            case "Category" -> SalesRollups.Dimension.CATEGORY;
+            case "SKU" -> SalesRollups.Dimension.SKU;
+            case "All Branches" -> SalesRollups.Dimension.ALL;
+            default -> SalesRollups.Dimension.BRANCH;
+        };
+        table.getItems().clear();
+        table.setPlaceholder(new Label("Loading sales..."));
+
+        EXECUTOR.submit(() -> {
+            try {
+                SalesRollups rollups = GoogleSheetsService.getInstance().getSalesRollups();
+                rollups.load();
+
+                // The last 48 hours, 31 days or 12 months
+                LocalDateTime now = LocalDateTime.now();
+                LocalDateTime from = switch (granularity) {
+                    case HOUR -> now.minusHours(47);
+                    case DAY -> now.minusDays(30);
+                    case MONTH -> now.minusMonths(11);
+                };
+                List<SalesRollups.Rollup> rows = rollups.query(granularity, dimension, from, now);
+                rows.sort(Comparator.comparing(SalesRollups.Rollup::start).reversed()
+                        .thenComparing(Comparator.comparingDouble(SalesRollups.Rollup::revenue).reversed()));
+
+                Platform.runLater(() -> {
+                    table.getItems().setAll(rows);
+                    table.setPlaceholder(new Label("No sales in this period"));
+                });
+            } catch (GeneralSecurityException | IOException e) {
+                Platform.runLater(() -> table.setPlaceholder(new Label("Could not load sales")));
+                Logger.logError("Failed to load sales rollups", e);
             }
         });
     }
 
+    private static String formatPeriod(String period, LocalDateTime start) {
+        return switch (period) {
+            case "Hourly" -> start.format(RowDecoder.DATE_DISPLAY) + " " + start.getHour() + ":00";
+            case "Monthly" -> start.format(DateTimeFormatter.ofPattern("MMMM yyyy"));
+            default -> start.format(RowDecoder.DATE_DISPLAY);
+        };
+    }
+
+    // Shows the low stock alerts of the current location, updated as soon as the alert engine raises them
+    private void watchLowStock() {
+        if (lowStockListener == null) {
+            lowStockListener = raised -> Platform.runLater(this::showLowStock);
+            sheetsService.getLowStockAlerts().addListener(lowStockListener);
+        }
+        showLowStock();
+    }
+
+    private void showLowStock() {
+        List<LowStockAlerts.StockAlert> alerts = getLowStockAlerts();
+        lowStockLabel.setVisible(!alerts.isEmpty());
+        lowStockLabel.setManaged(!alerts.isEmpty());
+        if (alerts.isEmpty()) {
+            return;
+        }
+        String text = "⚠ Low stock: " + alerts.get(0).describe(currentBranch.equals("ADMIN"));
+        if (alerts.size() > 1) {
+            text += " (+" + (alerts.size() - 1) + " more, click for all)";
+        }
+        lowStockLabel.setText(text);
+    }
+
+    private List<LowStockAlerts.StockAlert> getLowStockAlerts() {
+        return sheetsService.getLowStockAlerts().getAlerts(currentBranch.equals("ADMIN") ? null : currentBranch);
+    }
+
+    @FXML
+    private void onLowStockLabelClick() {
+        StringBuilder content = new StringBuilder();
+        for (LowStockAlerts.StockAlert alert : getLowStockAlerts()) {
+            content.append(alert.describe(currentBranch.equals("ADMIN"))).append('\n');
+        }
+        Alert lowStockAlert = new Alert(Alert.AlertType.WARNING);
+        lowStockAlert.setTitle("Low Stock");
+        lowStockAlert.setHeaderText("These items are at or below their reorder level:");
+        lowStockAlert.setContentText(content.toString());
+        lowStockAlert.showAndWait();
+    }
+
     private void showErrorAlert(String header, String message) {
         Alert errorAlert = new Alert(Alert.AlertType.ERROR);
         errorAlert.setTitle("Error");
@@ -754,28 +1178,23 @@ public class AdminMainViewController {
     }
 
     @FXML
-    private void onLogoutButtonClick() throws IOException {
-        // Load the login screen
-        FXMLLoader loader = new FXMLLoader(getClass().getResource("login.fxml"));
-        Parent root = loader.load();
-
-        // Create a new stage for the login screen
-        Stage loginStage = new Stage();
-        loginStage.setTitle("VRM Inventory System - Login");
-        loginStage.setScene(new Scene(root, 720, 720));
-        loginStage.setResizable(false);
-
-        // Close current window
-        Stage currentStage = (Stage) mainLabel.getScene().getWindow();
-        currentStage.close();
-
-        // Show login window
-        loginStage.show();
+    private void onLogoutButtonClick() {
+        SceneNavigator.<LoginController>navigate(SceneNavigator.Screen.LOGIN,
+                "VRM Inventory System - Login", "Loading...", LoginController::reset);
     }
 
     // Add this method to MainViewController.java
+    /**
+     * Starts loading a location's data before the screen is shown, e.g. while the user is still
+     * logging in. A {@link #setBranch(String)} for the same location shortly after uses it as it is.
+     */
+    public void prepareBranch(String branch) {
+        setBranch(branch);
+        preparedAt = System.nanoTime();
+    }
+
     public void setBranch(String branch) {
-        this.currentBranch = branch;
+        boolean prepared = branch.equals(currentBranch) && isPrepared();
         if (branchLabel != null) {
             branchLabel.setText("ADMIN");
         }
@@ -783,28 +1202,19 @@ public class AdminMainViewController {
             mainLabel.setText("ADMIN - General Log Sheet");
         }
 
-        // Refresh data with the new branch
-        try {
-            if (sheetsService != null) {
-                logEntries = getLogEntries();
-                filteredLogEntries = new ArrayList<>(logEntries);
-                if (observableLogList != null) {
-                    observableLogList.setAll(filteredLogEntries);
-                }
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
+        // Selecting the location refreshes through the combo box listener
+        if (!branch.equals(locationComboBox.getValue())) {
+            locationComboBox.setValue(branch);
+        } else if (!prepared) {
+            this.currentBranch = branch;
+            refreshData();
         }
     }
 
-    // Add this method to MainViewController.java
-    public void shutdown() {
-        // Shutdown any background tasks
-        if (EXECUTOR != null && !EXECUTOR.isShutdown()) {
-            EXECUTOR.shutdownNow();
-        }
-
-        // Add any other cleanup needed
-        // ...
+    private boolean isPrepared() {
+        long maxAgeNanos = TimeUnit.SECONDS.toNanos(Config.PREPARED_MAX_AGE_SECONDS.get());
+        boolean prepared = preparedAt >= 0 && System.nanoTime() - preparedAt < maxAgeNanos;
+        preparedAt = -1; // prepared data is only used once
+        return prepared;
     }
-}
\ No newline at end of file
+}
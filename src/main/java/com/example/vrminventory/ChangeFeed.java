@@ -0,0 +1,234 @@
+package com.example.vrminventory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A sequenced stream of the row inserts and updates seen by the data layer, per sheet.
+ * <p>
+ * Every change gets the next sequence number. Subscribers start from a resume token, a point in
+ * the stream they have already seen, and receive everything after it, then every later change in
+ * order. A token from before the retained history, or from before a restart, can't be resumed; the
+ * subscriber is told to reload instead.
+ * <p>
+ * Log rows are inserted once: a row that was already published, for example by the append that
+ * wrote it and again by a poll that read it back, is dropped. Catalog changes are published as the
+ * items that differ from the previous catalog, so applying the same change twice publishes nothing.
+ * <p>
+ * Listeners are called on one feed thread, in sequence order, never on the FX thread.
+ */
+public class ChangeFeed {
+    /**
+     * What happened to a row.
+     */
+    public enum Kind { INSERT, UPDATE }
+
+    /**
+     * One changed row.
+     *
+     * @param sequence The change's position in the stream
+     * @param sheetName The sheet changed (e.g., "Branch1")
+     * @param kind Whether the row is new or was changed
+     * @param row The row's number in the sheet, or 0 for catalog items, which are identified by SKU
+     * @param values The cells of the row; for catalog items the SKU, name, category, price and
+     *               quantity
+     */
+    public record Change(long sequence, String sheetName, Kind kind, int row, List<Object> values) {
+    }
+
+    /**
+     * The cells of one row, for {@link #publishAll(String, Kind, List)}.
+     */
+    public record RowValues(int row, List<Object> values) {
+    }
+
+    /**
+     * Receives changes from a subscription.
+     */
+    public interface Listener {
+        /**
+         * @param changes The next changes, in sequence order
+         */
+        void onChanges(List<Change> changes);
+
+        /**
+         * Called instead of a replay when the resume token can't be resumed from; reload
+         * everything derived from the feed. Changes after the reload point follow as usual.
+         */
+        default void onReset() {
+        }
+    }
+
+    /**
+     * A registered listener.
+     */
+    public interface Subscription extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    // Tells feeds of earlier runs apart, so their tokens aren't mistaken for this run's
+    private final long epoch = System.currentTimeMillis();
+
+    private final ArrayDeque<Change> history = new ArrayDeque<>();
+    private final Map<String, BitSet> insertedRows = new HashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private long lastSequence;
+
+    private final ExecutorService delivery = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "change-feed");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Publishes a changed row.
+     *
+     * @return The change, or null if it is a log row that was already published
+     */
+    public Change publish(String sheetName, Kind kind, int row, List<Object> values) {
+        List<Change> published = publishAll(sheetName, kind, Collections.singletonList(new RowValues(row, values)));
+        return published.isEmpty() ? null : published.get(0);
+    }
+
+    /**
+     * Publishes several changed rows of a sheet, delivered to listeners together.
+     *
+     * @return The changes published, without the log rows that were already published
+     */
+    public List<Change> publishAll(String sheetName, Kind kind, List<RowValues> rows) {
+        List<Change> published = new ArrayList<>(rows.size());
+        synchronized (this) {
+            BitSet seen = insertedRows.computeIfAbsent(sheetName, name -> new BitSet());
+            for (RowValues rowValues : rows) {
+                if (kind == Kind.INSERT && rowValues.row() > 0) {
+                    if (seen.get(rowValues.row())) {
+                        continue;
+                    }
+                    seen.set(rowValues.row());
+                }
+                Change change = new Change(++lastSequence, sheetName, kind, rowValues.row(),
+                        Collections.unmodifiableList(new ArrayList<>(rowValues.values())));
+                published.add(change);
+                history.addLast(change);
+            }
+            while (history.size() > Config.FEED_RETAINED_CHANGES.get()) {
+                history.removeFirst();
+            }
+
+            // Queued under the lock, so deliveries keep sequence order
+            if (!published.isEmpty()) {
+                List<Change> batch = Collections.unmodifiableList(published);
+                delivery.execute(() -> listeners.forEach(listener -> deliver(listener, batch)));
+            }
+        }
+        return published;
+    }
+
+    /**
+     * Subscribes from a resume token.
+     *
+     * @param resumeToken A token from {@link #getResumeToken()} or {@link #tokenOf(Change)}, or null
+     *                    to receive only changes from now on
+     */
+    public Subscription subscribe(String resumeToken, Listener listener) {
+        synchronized (this) {
+            long after = resumeToken == null ? lastSequence : sequenceOf(resumeToken);
+            if (after < 0) {
+                delivery.execute(() -> listener.onReset());
+            } else {
+                List<Change> replay = changesAfter(after, Integer.MAX_VALUE);
+                if (!replay.isEmpty()) {
+                    delivery.execute(() -> deliver(listener, replay));
+                }
+            }
+            delivery.execute(() -> listeners.add(listener));
+        }
+        return () -> delivery.execute(() -> listeners.remove(listener));
+    }
+
+    /**
+     * Reads changes after a resume token without subscribing, for clients that poll.
+     *
+     * @param max The most changes to return
+     * @return The changes, or null if the token can't be resumed from
+     */
+    public synchronized List<Change> read(String resumeToken, int max) {
+        long after = resumeToken == null ? lastSequence : sequenceOf(resumeToken);
+        return after < 0 ? null : changesAfter(after, max);
+    }
+
+    /**
+     * Tells all listeners to reload, for when changes may have been missed.
+     */
+    public synchronized void reset() {
+        delivery.execute(() -> listeners.forEach(Listener::onReset));
+    }
+
+    /**
+     * @return A token for the current end of the stream
+     */
+    public synchronized String getResumeToken() {
+        return token(lastSequence);
+    }
+
+    /**
+     * @return A token for the point in the stream just after a change
+     */
+    public String tokenOf(Change change) {
+        return token(change.sequence());
+    }
+
+    public void shutdown() {
+        delivery.shutdown();
+    }
+
+    // The sequence a token points at, or -1 if it can't be resumed from
+    private long sequenceOf(String resumeToken) {
+        int separator = resumeToken.indexOf(':');
+        try {
+            long tokenEpoch = Long.parseLong(resumeToken.substring(0, Math.max(separator, 0)), 16);
+            long sequence = Long.parseLong(resumeToken.substring(separator + 1));
+            long oldestKept = history.isEmpty() ? lastSequence + 1 : history.peekFirst().sequence();
+            if (tokenEpoch != epoch || sequence > lastSequence || sequence < oldestKept - 1) {
+                return -1;
+            }
+            return sequence;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private List<Change> changesAfter(long sequence, int max) {
+        List<Change> changes = new ArrayList<>();
+        for (Change change : history) {
+            if (changes.size() >= max) {
+                break;
+            }
+            if (change.sequence() > sequence) {
+                changes.add(change);
+            }
+        }
+        return changes;
+    }
+
+    private String token(long sequence) {
+        return Long.toHexString(epoch) + ":" + sequence;
+    }
+
+    private static void deliver(Listener listener, List<Change> changes) {
+        try {
+            listener.onChanges(changes);
+        } catch (RuntimeException e) {
+            Logger.logError("Change feed listener failed", e);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.vrminventory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Brings changes made by other terminals into a service's {@link ChangeFeed}.
+ * <p>
+ * Talking to Sheets directly, it reads only the rows below the newest row seen of each log being
+ * watched, all logs in one {@code values.batchGet}, and publishes the rows found as inserts. Using
+ * an {@link InventoryServer}, it reads the server's feed from where it left off instead.
+ * <p>
+ * Polls run every {@code feed.pollSeconds} on a daemon thread.
+ */
+public class ChangePoller {
+    private static final int MAX_POLLS_PER_ROUND = 10; // keeps a burst of rows from starving the next round
+
+    private final GoogleSheetsService sheetsService;
+
+    // Logs being watched, with the next row to read, by sheet
+    private final Map<String, Tail> tails = new ConcurrentHashMap<>();
+    private String serverToken; // poller thread only
+
+    private ScheduledExecutorService scheduler;
+
+    private static final class Tail {
+        final PagedLogSource source;
+        volatile int nextRow;
+
+        Tail(PagedLogSource source) {
+            // A tail started at the first row would publish the whole log as new rows
+            if (!source.hasDataEnd()) {
+                throw new IllegalStateException(source.getSheetName() + " log hasn't been opened; its end is unknown");
+            }
+            this.source = source;
+            this.nextRow = source.getNextRow();
+        }
+    }
+
+    ChangePoller(GoogleSheetsService sheetsService) {
+        this.sheetsService = sheetsService;
+    }
+
+    /**
+     * Starts watching the log of an opened source for new rows, and starts polling if needed.
+     * Watching a log again only moves its start further down.
+     *
+     * @throws IllegalStateException If the source hasn't found the end of its log yet
+     */
+    public void watch(PagedLogSource source) {
+        tails.merge(source.getSheetName(), new Tail(source), (current, added) -> {
+            current.nextRow = Math.max(current.nextRow, added.nextRow);
+            return current;
+        });
+        start();
+    }
+
+    public boolean isWatching(String sheetName) {
+        return tails.containsKey(sheetName);
+    }
+
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "change-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        schedule();
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private synchronized void schedule() {
+        if (scheduler != null && !scheduler.isShutdown()) {
+            scheduler.schedule(this::pollRound, Config.FEED_POLL_SECONDS.get(), TimeUnit.SECONDS);
+        }
+    }
+
+    private void pollRound() {
+        try {
+            for (int poll = 0; poll < MAX_POLLS_PER_ROUND; poll++) {
+                boolean more = sheetsService.usesServer() ? pollServer() : pollLogs();
+                if (!more) {
+                    break;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            Logger.logError("Failed to poll for changes", e);
+        } finally {
+            schedule();
+        }
+    }
+
+    /**
+     * Reads the rows below the newest row seen of every watched log.
+     *
+     * @return Whether a log had more new rows than were read
+     * @throws IOException If an API error occurs
+     */
+    public boolean pollLogs() throws IOException {
+        List<Tail> watched = new ArrayList<>(tails.values());
+        if (watched.isEmpty()) {
+            return false;
+        }
+
+        int rows = Config.FEED_POLL_ROWS.get();
+        List<Integer> startRows = new ArrayList<>(watched.size());
+        List<String> ranges = new ArrayList<>(watched.size());
+        List<List<ChangeFeed.RowValues>> found = new ArrayList<>(watched.size());
+        List<GoogleSheetsService.RowHandler> handlers = new ArrayList<>(watched.size());
+        for (Tail tail : watched) {
+            int startRow = tail.nextRow;
+            List<ChangeFeed.RowValues> tailRows = new ArrayList<>();
+            startRows.add(startRow);
+            ranges.add(tail.source.getRowsRange(startRow, rows));
+            found.add(tailRows);
+            handlers.add((row, rowIndex) -> {
+                if (!row.isEmpty()) {
+                    tailRows.add(new ChangeFeed.RowValues(startRow + rowIndex, new ArrayList<>(row)));
+                }
+            });
+        }
+
+        sheetsService.batchStreamValues("change poll", ranges, handlers, rangeIndex -> { });
+
+        boolean more = false;
+        for (int i = 0; i < watched.size(); i++) {
+            List<ChangeFeed.RowValues> tailRows = found.get(i);
+            if (tailRows.isEmpty()) {
+                continue;
+            }
+            Tail tail = watched.get(i);
+            int lastRow = tailRows.get(tailRows.size() - 1).row();
+            tail.nextRow = Math.max(tail.nextRow, lastRow + 1);
+            sheetsService.getChangeFeed().publishAll(tail.source.getSheetName(), ChangeFeed.Kind.INSERT, tailRows);
+            more |= lastRow == startRows.get(i) + rows - 1; // the range was full
+        }
+        return more;
+    }
+
+    /**
+     * Reads the server's feed from where the last poll left off, applying catalog changes to the
+     * cached catalogs and publishing log rows.
+     *
+     * @return Whether the server had more changes than were read
+     * @throws IOException If the server can't be reached
+     */
+    public boolean pollServer() throws IOException {
+        InventoryClient.ChangeBatch batch = sheetsService.getServer().readChanges(serverToken);
+        boolean first = serverToken == null;
+        serverToken = batch.token();
+
+        if (batch.reset() && !first) {
+            // Changes were missed; read catalogs again and have listeners reload
+            sheetsService.clearCache();
+            sheetsService.getChangeFeed().reset();
+            return false;
+        }
+
+        for (ChangeFeed.Change change : batch.changes()) {
+            if (change.row() == 0) {
+                InventoryItem item = itemOf(change);
+                if (item != null) {
+                    sheetsService.applyItemChanges(change.sheetName(), List.of(item));
+                }
+            } else {
+                sheetsService.getChangeFeed().publish(change.sheetName(), change.kind(), change.row(), change.values());
+            }
+        }
+        return batch.more();
+    }
+
+    private static InventoryItem itemOf(ChangeFeed.Change change) {
+        RowDecoder decoder = new RowDecoder(change.sheetName());
+        InventoryItem item = decoder.decodeInventoryItem(change.values(), true);
+        decoder.report();
+        return item;
+    }
+}
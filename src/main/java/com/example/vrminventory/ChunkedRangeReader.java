@@ -0,0 +1,122 @@
+package com.example.vrminventory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Reads a sheet from a row to the end of its data in windows of {@code read.windowRows} rows,
+ * with up to {@code read.parallelWindows} windows in flight, instead of in one response.
+ * <p>
+ * Windows are issued down the sheet, no further than its cached grid row count, until one comes
+ * back short: the data ends there, and no more windows are issued, so blank rows below the data
+ * cost nothing. Rows are handed over in order as each window arrives; a window that arrives early
+ * waits for the ones before it. Only if the windows fill the grid without one coming back short is
+ * the count read again, in case the sheet has grown since.
+ */
+final class ChunkedRangeReader {
+    private static final ExecutorService WINDOWS = TunableThreadPool.newFixedThreadPool(Config.READ_PARALLEL_WINDOWS,
+            runnable -> {
+                Thread thread = new Thread(runnable, "range-reader");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private record Window(int firstRow, int lastRow, Future<List<List<Object>>> rows) {
+    }
+
+    private ChunkedRangeReader() {
+    }
+
+    /**
+     * Reads the rows from {@code firstRow} down, between two columns. Belongs on a background
+     * thread.
+     *
+     * @param sheetName The sheet (e.g., "Branch1")
+     * @param firstColumn The first column (e.g., "I")
+     * @param lastColumn The last column (e.g., "N")
+     * @param handler Receives the rows in order, with their positions from {@code firstRow};
+     *                trailing empty rows of the sheet are omitted
+     * @return The number of rows read
+     * @throws IOException If an API error occurs
+     */
+    static int read(GoogleSheetsService sheetsService, String sheetName, int firstRow, String firstColumn,
+                    String lastColumn, GoogleSheetsService.RowHandler handler) throws IOException {
+        int windowRows = Config.READ_WINDOW_ROWS.get();
+        int parallelWindows = Config.READ_PARALLEL_WINDOWS.get();
+        int gridRows = sheetsService.getCachedGridRowCount(sheetName);
+        if (gridRows < 0) {
+            gridRows = sheetsService.getGridRowCount(sheetName);
+        }
+
+        Deque<Window> inFlight = new ArrayDeque<>();
+        int nextRow = firstRow;
+        int rowsRead = 0;
+        boolean dataEnded = false;
+        boolean gridChecked = false;
+        try {
+            while (true) {
+                while (!dataEnded && inFlight.size() < parallelWindows && nextRow <= gridRows) {
+                    int lastRow = Math.min(nextRow + windowRows - 1, gridRows);
+                    String range = sheetName + "!" + firstColumn + nextRow + ":" + lastColumn + lastRow;
+                    Future<List<List<Object>>> rows = WINDOWS.submit(() -> readWindow(sheetsService, sheetName, range));
+                    inFlight.add(new Window(nextRow, lastRow, rows));
+                    nextRow = lastRow + 1;
+                }
+                Window window = inFlight.poll();
+                if (window == null) {
+                    return rowsRead;
+                }
+
+                List<List<Object>> rows = await(window.rows());
+                for (int i = 0; i < rows.size(); i++) {
+                    handler.onRow(rows.get(i), window.firstRow() - firstRow + i);
+                }
+                rowsRead += rows.size();
+
+                // Trailing empty rows are omitted, so a short window holds the end of the data; windows
+                // already in flight are still read, and one with rows after a blank gap resumes the read
+                boolean full = rows.size() == window.lastRow() - window.firstRow() + 1;
+                dataEnded = !full;
+
+                // Data down to the last row of the grid may go on in rows added since it was counted
+                if (full && window.lastRow() == gridRows && !gridChecked) {
+                    gridChecked = true;
+                    gridRows = sheetsService.getGridRowCount(sheetName);
+                }
+            }
+        } finally {
+            for (Window window : inFlight) {
+                window.rows().cancel(true);
+            }
+        }
+    }
+
+    // Reads one window, copying the rows the parser reuses
+    private static List<List<Object>> readWindow(GoogleSheetsService sheetsService, String sheetName, String range)
+            throws IOException {
+        List<List<Object>> rows = new ArrayList<>();
+        sheetsService.streamValues(sheetName, range, (row, rowIndex) -> rows.add(new ArrayList<>(row)));
+        return rows;
+    }
+
+    private static List<List<Object>> await(Future<List<List<Object>>> rows) throws IOException {
+        try {
+            return rows.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading a sheet");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+}
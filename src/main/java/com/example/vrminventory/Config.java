@@ -2,20 +2,283 @@ package com.example.vrminventory;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
+/**
+ * Application settings, read from {@code config.properties} in the working directory (or the file
+ * named by the {@code vrm.config} system property) on top of the defaults below.
+ * <p>
+ * The file is watched while the application runs, and a change is applied without a restart: every
+ * setting is read again, values that don't parse or are out of range are logged and ignored, and
+ * listeners of the settings that changed are told. Most settings are read where they are used, so
+ * they take effect with the next load, page or write; a few, noted below, only at startup.
+ */
 public class Config {
-    private static Properties properties = new Properties();
+    private static final String FILE_NAME = "config.properties";
+
+    private static final List<Setting<?>> SETTINGS = new ArrayList<>();
+
+    // Sheets (fixed at startup: open logs, tails and appends all count rows from these)
+    public static final Setting<String> SPREADSHEET_ID = text("sheets.spreadsheetId",
+            "1ztEDIb6npREKC6a9uJxjlQFkFGGgwDfL_v2Lpo2aSdc").fixedAtStartup();
+    public static final Setting<Integer> LOG_START_ROW = integer("sheets.logStartRow", 21, 1, 1000).fixedAtStartup();
+    public static final Setting<Integer> INVENTORY_LIST_START_ROW = integer("sheets.inventoryListStartRow", 12, 1, 1000)
+            .fixedAtStartup();
+
+    // Reading
+    public static final Setting<Integer> LOG_PAGE_SIZE = integer("log.pageSize", 200, 20, 5000);
+    public static final Setting<Integer> LOG_MAX_LOADED_PAGES = integer("log.maxLoadedPages", 10, 2, 100);
+    public static final Setting<Integer> FIRST_BATCH_SIZE = integer("stream.firstBatchSize", 50, 1, 10_000);
+    public static final Setting<Integer> MAX_BATCH_SIZE = integer("stream.maxBatchSize", 2000, 1, 100_000);
+    public static final Setting<Integer> READ_WINDOW_ROWS = integer("read.windowRows", 5000, 100, 100_000);
+    public static final Setting<Integer> READ_PARALLEL_WINDOWS = integer("read.parallelWindows", 4, 1, 16);
+    public static final Setting<Integer> CATALOG_TTL_SECONDS = integer("cache.catalogTtlSeconds", 0, 0, 86_400); // 0 keeps catalogs until refreshed
+
+    // Writing and sync
+    public static final Setting<Integer> APPEND_MAX_ATTEMPTS = integer("append.maxAttempts", 5, 1, 20);
+    public static final Setting<Integer> APPEND_BACKOFF_MILLIS = integer("append.backoffMillis", 250, 10, 60_000);
+    public static final Setting<Integer> RECONCILE_DELAY_SECONDS = integer("sync.reconcileDelaySeconds", 5, 1, 3600);
+    public static final Setting<Integer> PREPARED_MAX_AGE_SECONDS = integer("login.preparedMaxAgeSeconds", 60, 0, 3600);
+
+    // Change feed
+    public static final Setting<Integer> FEED_RETAINED_CHANGES = integer("feed.retainedChanges", 10_000, 100, 1_000_000);
+    public static final Setting<Integer> FEED_POLL_SECONDS = integer("feed.pollSeconds", 10, 1, 3600);
+    public static final Setting<Integer> FEED_POLL_ROWS = integer("feed.pollRows", 100, 10, 5000);
+
+    // Stock ledger and alerts
+    public static final Setting<Integer> LEDGER_VERIFY_SECONDS = integer("ledger.verifySeconds", 300, 30, 86_400);
+    public static final Setting<Integer> REORDER_LEVEL = integer("alerts.reorderLevel", 5, 0, 1_000_000); // .sku.<sku> and .category.<name> override
+
+    // Transfers
+    public static final Setting<Integer> TRANSFER_WINDOW_HOURS = integer("transfers.windowHours", 72, 1, 24 * 90);
+    public static final Setting<Integer> TRANSFER_MATCHED_DAYS = integer("transfers.matchedDays", 30, 1, 3650); // pairs kept for listing
+
+    // Threads
+    public static final Setting<Integer> WORKER_THREADS = integer("executor.workerThreads", 2, 1, 32);
+
+    // Inventory server (URL, address and port read at startup)
+    public static final Setting<String> SERVER_URL = text("server.url", ""); // empty talks to Sheets directly
+    public static final Setting<String> SERVER_BIND_ADDRESS = text("server.bindAddress", "127.0.0.1"); // 0.0.0.0 for every interface
+    public static final Setting<Integer> SERVER_PORT = integer("server.port", 8470, 1, 65_535);
+    public static final Setting<String> SERVER_SECRET = text("server.secret", ""); // shared by the server and its terminals
+    public static final Setting<Integer> SERVER_THREADS = integer("server.threads", 4, 1, 64);
+    public static final Setting<Integer> SERVER_APPEND_WINDOW_MILLIS = integer("server.appendWindowMillis", 50, 0, 5000);
+    public static final Setting<Integer> SERVER_SYNC_SECONDS = integer("server.syncSeconds", 60, 5, 3600);
+
+    private static final Properties properties = new Properties();
+    private static Thread watcher;
 
     static {
-        try (InputStream input = Config.class.getResourceAsStream("/config.properties")) {
-            properties.load(input);
-        } catch (IOException e) {
-            Logger.logError("Failed to load configuration", e);
+        reload();
+    }
+
+    /**
+     * A typed setting with a default, and listeners for changes.
+     */
+    public static final class Setting<T> {
+        private final String key;
+        private final T defaultValue;
+        private final Function<String, T> parser; // throws IllegalArgumentException for bad values
+        private final List<Consumer<T>> listeners = new CopyOnWriteArrayList<>();
+        private volatile T value;
+        private boolean fixedAtStartup;
+        private boolean loaded;
+
+        private Setting(String key, T defaultValue, Function<String, T> parser) {
+            this.key = key;
+            this.defaultValue = defaultValue;
+            this.parser = parser;
+            this.value = defaultValue;
         }
+
+        public T get() {
+            return value;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * Calls {@code listener} with the new value whenever a reload changes it, on the watcher thread.
+         */
+        public void onChange(Consumer<T> listener) {
+            listeners.add(listener);
+        }
+
+        // Keeps the value first loaded; later changes are logged and wait for a restart
+        private Setting<T> fixedAtStartup() {
+            fixedAtStartup = true;
+            return this;
+        }
+
+        // Reads the setting from the properties; true if its value changed
+        private boolean load(Properties source) {
+            String text = source.getProperty(key);
+            T newValue = defaultValue;
+            if (text != null && !text.isBlank()) {
+                try {
+                    newValue = parser.apply(text.trim());
+                } catch (IllegalArgumentException e) {
+                    Logger.log(Logger.Level.WARN, "config", "Ignoring " + key + "=" + text + ": " + e.getMessage());
+                    return false; // keep the current value
+                }
+            }
+            if (newValue.equals(value)) {
+                return false;
+            }
+            if (fixedAtStartup && loaded) {
+                Logger.log(Logger.Level.WARN, "config", key + "=" + newValue + " takes effect after a restart");
+                return false;
+            }
+            value = newValue;
+            return true;
+        }
+
+        private void notifyListeners() {
+            for (Consumer<T> listener : listeners) {
+                try {
+                    listener.accept(value);
+                } catch (RuntimeException e) {
+                    Logger.logError("Failed to apply " + key, e);
+                }
+            }
+        }
+    }
+
+    private static Setting<String> text(String key, String defaultValue) {
+        return register(new Setting<>(key, defaultValue, Function.identity()));
+    }
+
+    private static Setting<Integer> integer(String key, int defaultValue, int min, int max) {
+        return register(new Setting<>(key, defaultValue, text -> {
+            int value = Integer.parseInt(text); // NumberFormatException is an IllegalArgumentException
+            if (value < min || value > max) {
+                throw new IllegalArgumentException("must be between " + min + " and " + max);
+            }
+            return value;
+        }));
+    }
+
+    private static <T> Setting<T> register(Setting<T> setting) {
+        SETTINGS.add(setting);
+        return setting;
     }
 
     public static String getProperty(String key) {
-        return properties.getProperty(key);
+        synchronized (properties) {
+            return properties.getProperty(key);
+        }
+    }
+
+    /**
+     * @return The external configuration file
+     */
+    public static Path getConfigFile() {
+        return Path.of(System.getProperty("vrm.config", FILE_NAME)).toAbsolutePath();
+    }
+
+    /**
+     * Reads the configuration again and applies the settings that changed.
+     */
+    public static void reload() {
+        Properties loaded = new Properties();
+
+        // Defaults bundled with the application, if any, then the external file on top
+        try (InputStream input = Config.class.getResourceAsStream("/" + FILE_NAME)) {
+            if (input != null) {
+                loaded.load(input);
+            }
+        } catch (IOException e) {
+            Logger.logError("Failed to load bundled configuration", e);
+        }
+        Path file = getConfigFile();
+        if (Files.isRegularFile(file)) {
+            try (InputStream input = Files.newInputStream(file)) {
+                loaded.load(input);
+            } catch (IOException e) {
+                Logger.logError("Failed to load configuration from " + file, e);
+                return; // keep the current settings rather than fall back to defaults
+            }
+        }
+
+        synchronized (properties) {
+            properties.clear();
+            properties.putAll(loaded);
+        }
+
+        List<Setting<?>> changed = new ArrayList<>();
+        for (Setting<?> setting : SETTINGS) {
+            if (setting.load(loaded)) {
+                changed.add(setting);
+            }
+            setting.loaded = true;
+        }
+        for (Setting<?> setting : changed) {
+            Logger.log(Logger.Level.INFO, "config", setting.key + " = " + setting.value);
+            setting.notifyListeners();
+        }
+    }
+
+    /**
+     * Starts watching the configuration file for changes, if that hasn't happened yet.
+     */
+    public static synchronized void startWatching() {
+        if (watcher != null) {
+            return;
+        }
+
+        Path file = getConfigFile();
+        WatchService watchService;
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            Logger.logError("Failed to watch " + file + "; configuration changes need a restart", e);
+            return;
+        }
+
+        watcher = new Thread(() -> watch(watchService, file), "config-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private static void watch(WatchService watchService, Path file) {
+        try (watchService) {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean relevant = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (file.getFileName().equals(event.context())) {
+                        relevant = true;
+                    }
+                }
+                key.reset();
+
+                if (relevant) {
+                    // Editors often write a file in several steps; let them finish first
+                    Thread.sleep(100);
+                    reload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            Logger.logError("Stopped watching " + file, e);
+        }
     }
-}
\ No newline at end of file
+}
@@ -3,15 +3,18 @@ package com.example.vrminventory;
 import com.google.api.client.auth.oauth2.Credential;
 import com.google.api.client.extensions.java6.auth.oauth2.AuthorizationCodeInstalledApp;
 import com.google.api.client.extensions.jetty.auth.oauth2.LocalServerReceiver;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
 import com.google.api.client.googleapis.auth.oauth2.GoogleAuthorizationCodeFlow;
 import com.google.api.client.googleapis.auth.oauth2.GoogleClientSecrets;
 import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
+import com.google.api.client.http.HttpResponse;
 import com.google.api.client.http.javanet.NetHttpTransport;
 import com.google.api.client.json.JsonFactory;
 import com.google.api.client.json.gson.GsonFactory;
 import com.google.api.client.util.store.FileDataStoreFactory;
 import com.google.api.services.sheets.v4.Sheets;
 import com.google.api.services.sheets.v4.SheetsScopes;
+import com.google.api.services.sheets.v4.model.AppendValuesResponse;
 import com.google.api.services.sheets.v4.model.Spreadsheet;
 import com.google.api.services.sheets.v4.model.UpdateValuesResponse;
 import com.google.api.services.sheets.v4.model.ValueRange;
@@ -20,8 +23,15 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 /**
  * Service class for Google Sheets API operations
@@ -34,21 +44,105 @@ public class GoogleSheetsService {
     private static final List<String> SCOPES = Collections.singletonList(SheetsScopes.SPREADSHEETS);
     private static final String CREDENTIALS_FILE_PATH = "/credentials.json";
 
-    // Default values
-    private static final int DEFAULT_START_ROW = 21;
-
     // Fields
     private final Sheets sheetsService;
     private final String spreadsheetId;
+    private final InventoryClient server; // null when catalogs and writes go straight to Sheets
+
+    // Changes seen by this service, and what brings in the changes made elsewhere
+    private final ChangeFeed changeFeed = new ChangeFeed();
+    private final ChangePoller changePoller;
+
+    // Current stock per branch and SKU, following the change feed
+    private final StockLedger stockLedger;
+    private final LowStockAlerts lowStockAlerts;
+
+    // Sales over time, transfers paired across logs and log queries, all built from one read of the
+    // logs on first use
+    private final LogFollower logFollower;
+    private final SalesRollups salesRollups;
+    private final TransferReconciler transferReconciler;
+    private final LogQueryEngine logQueryEngine;
 
-    // Cache for inventory items
-    private List<InventoryItem> cachedInventoryItems = null;
+    // Cache for inventory items, per sheet, and when each was loaded
+    private final Map<String, InventoryCatalog> cachedCatalogs = new ConcurrentHashMap<>();
+    private final Map<String, Long> catalogLoadedAt = new ConcurrentHashMap<>();
+
+    // Grid row counts of all sheets as last read; a hint for where a log ends
+    private final Map<String, Integer> gridRowCounts = new ConcurrentHashMap<>();
+
+    // Shared instance used by the screens, created in the background at startup
+    private static CompletableFuture<GoogleSheetsService> startup;
 
     /**
-     * Constructs a GoogleSheetsService with the default spreadsheet ID.
+     * Starts creating the shared service on a background thread, if that hasn't happened yet.
+     * <p>
+     * Creating the service sets up the HTTP transport and runs the OAuth flow, which can take
+     * seconds, so it is started as early as possible and never on the FX thread. A failed attempt
+     * is retried on the next call.
+     *
+     * @return A future that completes with the shared GoogleSheetsService
+     */
+    public static synchronized CompletableFuture<GoogleSheetsService> startAsync() {
+        if (startup == null || startup.isCompletedExceptionally()) {
+            startup = CompletableFuture.supplyAsync(() -> {
+                try {
+                    GoogleSheetsService service = new GoogleSheetsService();
+                    StartupMetrics.mark(StartupMetrics.SHEETS_READY);
+                    return service;
+                } catch (GeneralSecurityException | IOException e) {
+                    Logger.logError("Failed to initialize Google Sheets service", e);
+                    throw new CompletionException(e);
+                }
+            }, GoogleSheetsService::startupThread);
+
+            // Sheet sizes let the first screen read its newest log page along with its other data
+            startup.thenAcceptAsync(GoogleSheetsService::preloadGridRowCounts, GoogleSheetsService::startupThread);
+        }
+        return startup;
+    }
+
+    private static void startupThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "sheets-startup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void preloadGridRowCounts() {
+        try {
+            loadGridRowCounts();
+        } catch (IOException e) {
+            Logger.logError("Failed to read sheet sizes", e);
+        }
+    }
+
+    /**
+     * Returns the service shared by all screens, waiting for it to finish starting if needed.
+     * <p>
+     * Authorization and transport setup happen only once per session, however often the user
+     * navigates between screens. Don't call this on the FX thread.
+     *
+     * @return The shared GoogleSheetsService
+     */
+    public static GoogleSheetsService getInstance() throws GeneralSecurityException, IOException {
+        try {
+            return startAsync().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof GeneralSecurityException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            throw new IOException("Failed to initialize Google Sheets service", e.getCause());
+        }
+    }
+
+    /**
+     * Constructs a GoogleSheetsService with the spreadsheet ID and inventory server from {@link Config}.
      */
     public GoogleSheetsService() throws GeneralSecurityException, IOException {
-        this("1ztEDIb6npREKC6a9uJxjlQFkFGGgwDfL_v2Lpo2aSdc");
+        this(Config.SPREADSHEET_ID.get(), Config.SERVER_URL.get());
     }
 
     /**
@@ -57,11 +151,34 @@ public class GoogleSheetsService {
      * @param spreadsheetId The ID of the Google Spreadsheet to interact with
      */
     public GoogleSheetsService(String spreadsheetId) throws GeneralSecurityException, IOException {
+        this(spreadsheetId, "");
+    }
+
+    /**
+     * Constructs a GoogleSheetsService that reads catalogs and appends rows through an
+     * {@link InventoryServer}; logs are still read from Sheets.
+     *
+     * @param spreadsheetId The ID of the Google Spreadsheet to interact with
+     * @param serverUrl The inventory server's address, or empty to use Sheets for everything
+     */
+    public GoogleSheetsService(String spreadsheetId, String serverUrl) throws GeneralSecurityException, IOException {
         this.spreadsheetId = spreadsheetId;
         NetHttpTransport httpTransport = GoogleNetHttpTransport.newTrustedTransport();
         this.sheetsService = new Sheets.Builder(httpTransport, JSON_FACTORY, getCredentials(httpTransport))
                 .setApplicationName(APPLICATION_NAME)
                 .build();
+        this.server = serverUrl.isBlank() ? null : new InventoryClient(serverUrl, httpTransport, JSON_FACTORY);
+        this.changePoller = new ChangePoller(this);
+        this.stockLedger = new StockLedger(this);
+        stockLedger.start();
+        this.lowStockAlerts = new LowStockAlerts(this);
+        this.logFollower = new LogFollower(this);
+        this.salesRollups = new SalesRollups(this);
+        this.transferReconciler = new TransferReconciler(this);
+        this.logQueryEngine = new LogQueryEngine(this);
+        if (server != null) {
+            changePoller.start(); // follow the server's feed; in direct mode polling starts with the first log watched
+        }
     }
 
     /**
@@ -94,6 +211,9 @@ public class GoogleSheetsService {
 
     /**
      * Finds the next available row in a specific branch sheet.
+     * <p>
+     * The returned row is only a snapshot: another terminal may write to it before this one does.
+     * Use {@link #appendRow(String, List)} for log and catalog entries.
      *
      * @param branch The branch sheet name including the trailing exclamation mark (e.g., "Branch1!")
      * @return A string representing the range for the next available row
@@ -102,10 +222,10 @@ public class GoogleSheetsService {
     public String findNextRow(String branch) throws IOException {
         String nextRow;
         if (branch.equals("InventoryList!")){
-            nextRow = findNextRow(branch, 12);
+            nextRow = findNextRow(branch, Config.INVENTORY_LIST_START_ROW.get());
         }
         else{
-            nextRow = findNextRow(branch, DEFAULT_START_ROW);
+            nextRow = findNextRow(branch, Config.LOG_START_ROW.get());
         }
         return nextRow;
     }
@@ -121,9 +241,11 @@ public class GoogleSheetsService {
     public String findNextRow(String branch, int startRow) throws IOException {
         if (branch.equals("InventoryList!")){
             String range = branch + "F" + startRow + ":I";
+            long started = System.nanoTime();
             ValueRange response = sheetsService.spreadsheets().values()
                     .get(spreadsheetId, range)
                     .execute();
+            Logger.logSheetCall(branch, "values.get " + range, elapsedMillis(started));
 
             if (response.getValues() == null || response.getValues().isEmpty()) {
                 return branch + "F" + startRow + ":I" + startRow;
@@ -144,9 +266,11 @@ public class GoogleSheetsService {
 
         else{
             String range = branch + "I" + startRow + ":N";
+            long started = System.nanoTime();
             ValueRange response = sheetsService.spreadsheets().values()
                     .get(spreadsheetId, range)
                     .execute();
+            Logger.logSheetCall(branch, "values.get " + range, elapsedMillis(started));
 
             if (response.getValues() == null || response.getValues().isEmpty()) {
                 return branch + "I" + startRow + ":N" + startRow;
@@ -188,121 +312,656 @@ public class GoogleSheetsService {
     }
 
     /**
-     * Retrieves all inventory items from a specific sheet, using cache if available.
+     * Appends a row to the log area of a branch sheet, or to the catalog area of InventoryList.
+     * <p>
+     * The row is reserved by the Sheets append endpoint, which serializes concurrent appends on the
+     * server, so two terminals logging at the same time always land on different rows. The written
+     * row is then read back; if a writer that still uses {@link #findNextRow(String)} and
+     * {@link #writeData(String, List)} has overwritten it, the append is retried.
+     * <p>
+     * A rate-limited append (429) is retried as is. After a server error, conflict or timeout the
+     * append may have been applied without saying where, so the end of the table is read back
+     * first: if the entry isn't there it is appended again, and if a row with the same entry is,
+     * the append fails rather than risk a duplicate. Rows count as written only at the row numbers
+     * an append response gave.
      *
-     * @param sheetName The name of the sheet to read from (e.g., "Branch1")
-     * @return A list of InventoryItem objects
-     * @throws IOException If an API error occurs
+     * @param branch The branch sheet name including the trailing exclamation mark (e.g., "Branch1!")
+     * @param data The data to write
+     * @return The sheet row number the data was written to
+     * @throws IOException If an API error occurs or the row could not be written after retrying
      */
-    public List<InventoryItem> getAllInventoryItems(String sheetName) throws IOException {
-        try {
-            if (cachedInventoryItems != null) {
-                return cachedInventoryItems; // Return cached items if available
-            }
-
-            List<InventoryItem> items = new ArrayList<>();
-
-            // Get sheet metadata to verify sheet exists
-            Spreadsheet spreadsheet = sheetsService.spreadsheets().get(spreadsheetId).execute();
-            boolean sheetExists = spreadsheet.getSheets().stream()
-                    .anyMatch(sheet -> sheetName.equals(sheet.getProperties().getTitle()));
+    public int appendRow(String branch, List<Object> data) throws IOException {
+        return appendRows(branch, Collections.singletonList(data))[0];
+    }
 
-            if (!sheetExists) {
-                throw new IOException(sheetName + " sheet not found");
+    /**
+     * Appends several rows with one request, in the same way as {@link #appendRow(String, List)}.
+     * <p>
+     * The rows land next to each other. If another writer overwrote some of them, only those rows
+     * are appended again, so the others aren't duplicated.
+     *
+     * @param branch The branch sheet name including the trailing exclamation mark (e.g., "Branch1!")
+     * @param rows The rows to write
+     * @return The sheet row number each row was written to, in the order given
+     * @throws IOException If an API error occurs or the rows could not be written after retrying
+     */
+    public int[] appendRows(String branch, List<List<Object>> rows) throws IOException {
+        // The server appends and checks the rows the same way
+        int[] writtenRows = server != null ? server.appendRows(branch, rows) : appendRowsToSheet(branch, rows);
+
+        // Catalog rows are published as catalog changes once applied; log rows are published here
+        String sheetName = branch.substring(0, branch.length() - 1);
+        if (!sheetName.equals("InventoryList")) {
+            List<ChangeFeed.RowValues> written = new ArrayList<>(rows.size());
+            for (int i = 0; i < rows.size(); i++) {
+                written.add(new ChangeFeed.RowValues(writtenRows[i], asReadCells(rows.get(i))));
             }
+            changeFeed.publishAll(sheetName, ChangeFeed.Kind.INSERT, written);
+        }
+        return writtenRows;
+    }
 
-            String range;
-            // Fetch data from sheet
-            if (sheetName.equals("InventoryList")){
-                range = "InventoryList!F12:I";
-            }
-            else{
-                range = sheetName + "!B" + DEFAULT_START_ROW + ":F";
+    // The cells of a written row as a read of the sheet returns them (whole numbers as Long), so
+    // consumers of the change feed decode the rows written here like the rows read
+    private static List<Object> asReadCells(List<Object> row) {
+        List<Object> cells = new ArrayList<>(row.size());
+        for (Object cell : row) {
+            if (cell instanceof Number number && !(cell instanceof Long) && !(cell instanceof Double)) {
+                double value = number.doubleValue();
+                boolean whole = value == Math.rint(value) && Math.abs(value) <= Long.MAX_VALUE;
+                cells.add(whole ? (Object) number.longValue() : (Object) value);
+            } else {
+                cells.add(cell);
             }
+        }
+        return cells;
+    }
 
-            ValueRange response = sheetsService.spreadsheets().values()
-                    .get(spreadsheetId, range)
-                    .execute();
+    private int[] appendRowsToSheet(String branch, List<List<Object>> rows) throws IOException {
+        boolean catalog = branch.equals("InventoryList!");
+        String firstColumn = catalog ? "F" : "I";
+        String lastColumn = catalog ? "I" : "N";
+        int tableStartRow = catalog ? Config.INVENTORY_LIST_START_ROW.get() : Config.LOG_START_ROW.get();
+        String tableRange = branch + firstColumn + tableStartRow + ":" + lastColumn;
+        int[] writtenRows = new int[rows.size()];
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            pending.add(i);
+        }
 
-            if (sheetName.equals("InventoryList")){
-                if (response.getValues() != null) {
-                    for (List<Object> row : response.getValues()) {
-                        if (row.size() >= 4) {
-                            try {
-                                int sku = Integer.parseInt(row.get(0).toString());
-                                String name = row.get(1).toString();
-                                String category = row.get(2).toString();
-                                double price = Double.parseDouble(row.get(3).toString());
-
-                                items.add(new InventoryItem(sku, name, category, price, 0));
-                            } catch (NumberFormatException e) {
-                                System.err.println("Invalid number format: " + e.getMessage());
-                            }
+        int maxAttempts = Config.APPEND_MAX_ATTEMPTS.get();
+        IOException lastFailure = null;
+        // Set when an append failed in a way that may still have written the rows
+        boolean outcomeUnknown = false;
+        // The range the last append reported writing, until it has been read back
+        String unchecked = null;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                if (unchecked == null) {
+                    if (outcomeUnknown) {
+                        int sameEntryRow = findSameEntry(branch, firstColumn, lastColumn, tableStartRow, rows, pending,
+                                catalog);
+                        if (sameEntryRow > 0) {
+                            throw new AppendUncertainException("The write may have gone through: row " + sameEntryRow
+                                    + " of " + branch.substring(0, branch.length() - 1)
+                                    + " holds the same entry. Check the log before entering it again.", lastFailure);
                         }
+                        outcomeUnknown = false;
                     }
+                    unchecked = append(branch, tableRange, rows, pending, writtenRows);
                 }
-            }
-            else{
-                if (response.getValues() != null) {
-                    for (List<Object> row : response.getValues()) {
-                        if (row.size() >= 5) {
-                            try {
-                                int sku = Integer.parseInt(row.get(0).toString());
-                                String name = row.get(1).toString();
-                                String category = row.get(2).toString();
-                                double price = Double.parseDouble(row.get(3).toString());
-                                int quantity = Integer.parseInt(row.get(4).toString());
-
-                                items.add(new InventoryItem(sku, name, category, price, quantity));
-                            } catch (NumberFormatException e) {
-                                System.err.println("Invalid number format: " + e.getMessage());
-                            }
-                        }
-                    }
+
+                List<Integer> overwritten = findOverwrittenRows(unchecked, rows, pending, catalog);
+                String checked = unchecked;
+                unchecked = null;
+                if (overwritten.isEmpty()) {
+                    return writtenRows;
+                }
+
+                Logger.log(Logger.Level.WARN, branch, "Append collision on " + overwritten.size() + " of "
+                        + checked + ", retrying (attempt " + attempt + ")");
+                lastFailure = new IOException(overwritten.size() + " rows of " + checked
+                        + " were overwritten by another writer");
+                pending = overwritten;
+            } catch (GoogleJsonResponseException e) {
+                int statusCode = e.getStatusCode();
+                if (statusCode != 429 && !isOutcomeUnknown(statusCode)) {
+                    throw e;
                 }
+                // A 429 is refused before anything is written; other failures may come after the write.
+                // A failed read-back is simply read again, as the rows' positions are known
+                outcomeUnknown |= unchecked == null && statusCode != 429;
+                lastFailure = e;
+            } catch (InterruptedIOException | AppendUncertainException e) {
+                throw e;
+            } catch (IOException e) {
+                // A timeout or dropped connection, possibly after the rows were written
+                Logger.log(Logger.Level.WARN, branch, "Append failed (" + e.getMessage() + "), retrying (attempt "
+                        + attempt + ")");
+                outcomeUnknown |= unchecked == null;
+                lastFailure = e;
             }
 
+            backoff(attempt);
+        }
 
-            cachedInventoryItems = items; // Cache the items for future use
-            return items;
+        throw new IOException("Failed to append " + pending.size() + " rows to " + branch + " after "
+                + maxAttempts + " attempts", lastFailure);
+    }
 
-            } catch (IOException e) {
-            Logger.logError("Failed to get inventory items from sheet: " + sheetName, e);
-            return Collections.emptyList(); // Return an empty list on error
+    // Appends the pending rows, records the rows the response says they were written to, and
+    // returns the range written
+    private String append(String branch, String tableRange, List<List<Object>> rows, List<Integer> pending,
+                          int[] writtenRows) throws IOException {
+        List<List<Object>> batch = new ArrayList<>(pending.size());
+        for (int index : pending) {
+            batch.add(rows.get(index));
         }
+        ValueRange body = new ValueRange().setValues(batch);
+
+        long started = System.nanoTime();
+        AppendValuesResponse result = sheetsService.spreadsheets().values()
+                .append(spreadsheetId, tableRange, body)
+                .setValueInputOption("USER_ENTERED")
+                .setInsertDataOption("OVERWRITE")
+                .execute();
+        Logger.logSheetCall(branch, "values.append " + tableRange + " (" + batch.size() + " rows)",
+                elapsedMillis(started));
 
+        String updatedRange = result.getUpdates().getUpdatedRange();
+        int firstRow = parseStartRow(updatedRange);
+        for (int i = 0; i < pending.size(); i++) {
+            writtenRows[pending.get(i)] = firstRow + i;
+        }
+        return updatedRange;
     }
 
-    public List<String> loadCategories() throws IOException {
-        // Define the range for the categories column (e.g., "InventoryList!H12:H" for column H)
-        String range = "InventoryList!H12:H"; // Adjust the range as needed
+    // Thrown when a failed append may have written the rows after all
+    private static final class AppendUncertainException extends IOException {
+        AppendUncertainException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
 
-        // Fetch the values from the specified column range
-        ValueRange response = sheetsService.spreadsheets().values()
+    // After an append that may or may not have gone through, looks for the pending rows at the end of
+    // the table before they are appended again, and returns the row of the first found, or 0. Without
+    // the row numbers of a response, a row there with the same entry can't be told from another
+    // terminal's, so rather than take it for ours or write a duplicate, the append stops and the user
+    // checks the log. The search covers the pending rows plus a poll's worth of rows from other writers
+    private int findSameEntry(String branch, String firstColumn, String lastColumn, int tableStartRow,
+                              List<List<Object>> rows, List<Integer> pending, boolean catalog) throws IOException {
+        String sheetName = branch.substring(0, branch.length() - 1);
+        int[] lastDataRow = {tableStartRow - 1};
+        streamValues(sheetName, branch + firstColumn + tableStartRow + ":" + firstColumn, (row, rowIndex) -> {
+            if (!row.isEmpty()) {
+                lastDataRow[0] = tableStartRow + rowIndex;
+            }
+        });
+        if (lastDataRow[0] < tableStartRow) {
+            return 0;
+        }
+
+        int searchFrom = Math.max(tableStartRow, lastDataRow[0] - pending.size() - Config.FEED_POLL_ROWS.get() + 1);
+        List<List<Object>> tail =
+                readForComparison(branch + firstColumn + searchFrom + ":" + lastColumn + lastDataRow[0]);
+        for (int i = tail.size() - 1; i >= 0; i--) {
+            for (int index : pending) {
+                if (isRowIntact(tail.get(i), rows.get(index), catalog)) {
+                    return searchFrom + i;
+                }
+            }
+        }
+        Logger.log(Logger.Level.INFO, branch, "None of the " + pending.size()
+                + " rows of the failed append were written, appending them again");
+        return 0;
+    }
+
+    // Reads the written rows back and returns those of the pending rows that no longer hold what was written
+    private List<Integer> findOverwrittenRows(String updatedRange, List<List<Object>> rows, List<Integer> pending,
+                                              boolean catalog) throws IOException {
+        List<List<Object>> actual = readForComparison(updatedRange);
+
+        List<Integer> overwritten = new ArrayList<>();
+        for (int i = 0; i < pending.size(); i++) {
+            if (i >= actual.size() || !isRowIntact(actual.get(i), rows.get(pending.get(i)), catalog)) {
+                overwritten.add(pending.get(i));
+            }
+        }
+        return overwritten;
+    }
+
+    // Numbers as numbers and dates and times as serials, as RowDecoder reads them
+    private List<List<Object>> readForComparison(String range) throws IOException {
+        ValueRange written = sheetsService.spreadsheets().values()
                 .get(spreadsheetId, range)
+                .setValueRenderOption("UNFORMATTED_VALUE")
+                .setDateTimeRenderOption("SERIAL_NUMBER")
                 .execute();
-        List<List<Object>> values = response.getValues();
+        return written.getValues() != null ? written.getValues() : Collections.emptyList();
+    }
+
+    // Whether a row read back holds the entry written, compared on its typed cells only: date, time,
+    // activity code, SKU and quantity of a log row, SKU and price of a catalog row. Text cells are
+    // left out, as the sheet may reformat what was typed in them ("50%", "1,000", "TRUE")
+    private static boolean isRowIntact(List<Object> actual, List<Object> expected, boolean catalog) {
+        RowDecoder read = new RowDecoder("append check");
+        RowDecoder written = new RowDecoder("append check");
+        read.begin(actual);
+        written.begin(expected);
+        boolean same;
+        if (catalog) {
+            same = read.intAt(0) == written.intAt(0) && Math.abs(read.doubleAt(3) - written.doubleAt(3)) <= 0.000001;
+        } else {
+            same = read.dateAt(0).equals(written.dateAt(0)) && read.timeAt(1).equals(written.timeAt(1));
+            for (int column = 2; column <= 4; column++) {
+                same &= read.intAt(column) == written.intAt(column);
+            }
+        }
+        return read.end() & written.end() && same;
+    }
 
-        // Use a Set to store unique categories (case insensitive)
-        Set<String> uniqueCategories = new HashSet<>();
+    // Extracts the first row number from an A1 range such as "Branch1!I57:N57"
+    private static int parseStartRow(String a1Range) throws IOException {
+        String cells = a1Range.substring(a1Range.lastIndexOf('!') + 1);
+        int start = 0;
+        while (start < cells.length() && !Character.isDigit(cells.charAt(start))) {
+            start++;
+        }
+        int end = start;
+        while (end < cells.length() && Character.isDigit(cells.charAt(end))) {
+            end++;
+        }
+        if (start == end) {
+            throw new IOException("Unexpected range in append response: " + a1Range);
+        }
+        return Integer.parseInt(cells.substring(start, end));
+    }
 
-        if (values != null) {
-            for (List<Object> row : values) {
-                if (!row.isEmpty()) {
-                    String category = row.get(0).toString().trim(); // Assuming the category is in the first column
-                    if (!category.isEmpty()) {
-                        uniqueCategories.add(category.toUpperCase()); // Add to set in lowercase for case insensitivity
-                    }
-                }
+    private static long elapsedMillis(long startedNanos) {
+        return (System.nanoTime() - startedNanos) / 1_000_000;
+    }
+
+    // A conflict or server error may come after the append was applied
+    private static boolean isOutcomeUnknown(int statusCode) {
+        return statusCode == 409 || statusCode >= 500;
+    }
+
+    private static void backoff(int attempt) throws IOException {
+        try {
+            // Exponential backoff with jitter so competing terminals spread out
+            long backoffMillis = Config.APPEND_BACKOFF_MILLIS.get();
+            long delay = backoffMillis * (1L << (attempt - 1));
+            Thread.sleep(delay + (long) (Math.random() * backoffMillis));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while retrying append", e);
+        }
+    }
+
+    /**
+     * Retrieves all inventory items from a specific sheet, using cache if available.
+     *
+     * @param sheetName The name of the sheet to read from (e.g., "Branch1")
+     * @return A list of InventoryItem objects
+     * @throws IOException If an API error occurs
+     */
+    public List<InventoryItem> getAllInventoryItems(String sheetName) throws IOException {
+        return getCatalog(sheetName).getItems();
+    }
+
+    /**
+     * Retrieves all inventory items from a specific sheet, handing them on in batches while the
+     * response is still being read.
+     *
+     * @param sheetName The name of the sheet to read from (e.g., "Branch1")
+     * @param onBatch Receives the items in batches as they are decoded, on the calling thread; may be
+     *                null. Not called when the items come from the cache.
+     * @return A list of all InventoryItem objects
+     * @throws IOException If an API error occurs
+     */
+    public List<InventoryItem> getAllInventoryItems(String sheetName, Consumer<List<InventoryItem>> onBatch)
+            throws IOException {
+        return getCatalog(sheetName, onBatch).getItems();
+    }
+
+    /**
+     * Retrieves the catalog of a specific sheet, using cache if available.
+     *
+     * @param sheetName The name of the sheet to read from (e.g., "Branch1")
+     * @return The sheet's catalog, empty if it couldn't be read
+     */
+    public InventoryCatalog getCatalog(String sheetName) {
+        return getCatalog(sheetName, null);
+    }
+
+    /**
+     * Retrieves the catalog of a specific sheet, handing the items on in batches while the response
+     * is still being read.
+     * <p>
+     * A sheet that doesn't exist fails the values request itself, so no metadata is read first.
+     *
+     * @param sheetName The name of the sheet to read from (e.g., "Branch1")
+     * @param onBatch Receives the items in batches as they are decoded, on the calling thread; may be
+     *                null. Not called when the catalog comes from the cache.
+     * @return The sheet's catalog, empty if it couldn't be read
+     */
+    public InventoryCatalog getCatalog(String sheetName, Consumer<List<InventoryItem>> onBatch) {
+        InventoryCatalog cached = isCatalogCached(sheetName) ? cachedCatalogs.get(sheetName) : null;
+        if (cached != null) {
+            return cached; // Return cached items if available
+        }
+
+        try {
+            InventoryCatalog catalog;
+            if (server != null) {
+                catalog = server.getCatalog(sheetName, onBatch);
+            } else {
+                // Decode rows as they are read rather than after the whole response is parsed
+                InventoryCatalog.Reader reader = catalogReader(sheetName, onBatch);
+                streamValues(sheetName, inventoryRange(sheetName), reader);
+                catalog = reader.finish();
             }
+
+            putCatalog(sheetName, catalog); // Cache the items for future use
+            return catalog;
+        } catch (IOException e) {
+            Logger.logError(sheetName, "Failed to get inventory items", e);
+            return InventoryCatalog.EMPTY; // Return an empty catalog on error
+        }
+    }
+
+    /**
+     * @return The cached catalog of a sheet however old it is, or an empty catalog; never reads the
+     *         sheet
+     */
+    InventoryCatalog getCachedCatalog(String sheetName) {
+        return cachedCatalogs.getOrDefault(sheetName, InventoryCatalog.EMPTY);
+    }
+
+    /**
+     * @return Whether the catalog of a sheet is cached and younger than the configured TTL
+     */
+    public boolean isCatalogCached(String sheetName) {
+        Long loadedAt = catalogLoadedAt.get(sheetName);
+        if (loadedAt == null || !cachedCatalogs.containsKey(sheetName)) {
+            return false;
+        }
+        int ttlSeconds = Config.CATALOG_TTL_SECONDS.get();
+        return ttlSeconds == 0 || System.nanoTime() - loadedAt < ttlSeconds * 1_000_000_000L;
+    }
+
+    /**
+     * @return Whether catalogs are read through an inventory server rather than from Sheets
+     */
+    public boolean usesServer() {
+        return server != null;
+    }
+
+    InventoryClient getServer() {
+        return server;
+    }
+
+    /**
+     * @return The changes seen by this service: its own writes and reads, and what the change
+     *         poller brings in from other terminals
+     */
+    public ChangeFeed getChangeFeed() {
+        return changeFeed;
+    }
+
+    public ChangePoller getChangePoller() {
+        return changePoller;
+    }
+
+    public StockLedger getStockLedger() {
+        return stockLedger;
+    }
+
+    public LowStockAlerts getLowStockAlerts() {
+        return lowStockAlerts;
+    }
+
+    LogFollower getLogFollower() {
+        return logFollower;
+    }
+
+    public SalesRollups getSalesRollups() {
+        return salesRollups;
+    }
+
+    public TransferReconciler getTransferReconciler() {
+        return transferReconciler;
+    }
+
+    public LogQueryEngine getLogQueryEngine() {
+        return logQueryEngine;
+    }
+
+    /**
+     * The A1 range holding the items of an inventory sheet: InventoryList!F12:I for the catalog,
+     * which has no quantities, or B21:F of a branch.
+     */
+    static String inventoryRange(String sheetName) {
+        if (sheetName.equals("InventoryList")) {
+            return "InventoryList!F" + Config.INVENTORY_LIST_START_ROW.get() + ":I";
+        }
+        return sheetName + "!B" + Config.LOG_START_ROW.get() + ":F";
+    }
+
+    static InventoryCatalog.Reader catalogReader(String sheetName, Consumer<List<InventoryItem>> onBatch) {
+        return new InventoryCatalog.Reader(sheetName, !sheetName.equals("InventoryList"), onBatch);
+    }
+
+    /**
+     * Applies confirmed log writes to the cached catalog of a sheet, instead of reading the sheet
+     * again.
+     *
+     * @param sheetName The name of the sheet (e.g., "Branch1")
+     * @param deltas The change in quantity, by SKU
+     * @return The changed catalog, or null if the sheet isn't cached
+     */
+    public InventoryCatalog applyQuantityChanges(String sheetName, Map<Integer, Integer> deltas) {
+        return cachedCatalogs.computeIfPresent(sheetName, (name, catalog) ->
+                publishCatalogChanges(sheetName, catalog, catalog.withQuantityChanges(deltas)));
+    }
+
+    /**
+     * Applies a confirmed item write to the cached catalog of a sheet, instead of reading the sheet
+     * again.
+     *
+     * @param sheetName The name of the sheet (e.g., "InventoryList")
+     * @param item The item written
+     * @return The changed catalog, or null if the sheet isn't cached
+     */
+    public InventoryCatalog applyNewItem(String sheetName, InventoryItem item) {
+        return cachedCatalogs.computeIfPresent(sheetName, (name, catalog) ->
+                publishCatalogChanges(sheetName, catalog, catalog.withItem(item)));
+    }
+
+    /**
+     * Applies items changed elsewhere, as reported by a change feed, to the cached catalog of a
+     * sheet.
+     *
+     * @param sheetName The name of the sheet (e.g., "Branch1")
+     * @param items The new or changed items
+     * @return The changed catalog, or null if the sheet isn't cached
+     */
+    public InventoryCatalog applyItemChanges(String sheetName, List<InventoryItem> items) {
+        return cachedCatalogs.computeIfPresent(sheetName, (name, catalog) ->
+                publishCatalogChanges(sheetName, catalog, catalog.withChangedItems(items)));
+    }
+
+    // Caches a catalog read as part of a batch
+    void putCatalog(String sheetName, InventoryCatalog catalog) {
+        catalogLoadedAt.put(sheetName, System.nanoTime());
+        cachedCatalogs.compute(sheetName, (name, cached) ->
+                cached == null ? catalog : publishCatalogChanges(sheetName, cached, catalog));
+        stockLedger.seed(sheetName, catalog); // only the first read of a branch seeds it
+    }
+
+    // Publishes the items that differ between two catalogs of a sheet. Called while the cache entry
+    // is locked, so the changes of one sheet are published in the order they are cached.
+    private InventoryCatalog publishCatalogChanges(String sheetName, InventoryCatalog before, InventoryCatalog after) {
+        List<ChangeFeed.RowValues> added = new ArrayList<>();
+        List<ChangeFeed.RowValues> changed = new ArrayList<>();
+        after.diffFrom(before, item -> added.add(itemValues(item)), item -> changed.add(itemValues(item)));
+        if (!added.isEmpty()) {
+            changeFeed.publishAll(sheetName, ChangeFeed.Kind.INSERT, added);
+        }
+        if (!changed.isEmpty()) {
+            changeFeed.publishAll(sheetName, ChangeFeed.Kind.UPDATE, changed);
+        }
+        return after;
+    }
+
+    private static ChangeFeed.RowValues itemValues(InventoryItem item) {
+        return new ChangeFeed.RowValues(0, Arrays.asList(item.getSku(), item.getName(), item.getCategory(),
+                item.getPrice(), item.getQuantity()));
+    }
+
+    /**
+     * Receives the rows of a streamed range one at a time.
+     */
+    @FunctionalInterface
+    public interface RowHandler {
+        /**
+         * @param row The cell values of the row. The list is reused for the next row, so copy
+         *            anything that has to be kept.
+         * @param rowIndex The row's position in the range, starting at 0
+         */
+        void onRow(List<Object> row, int rowIndex);
+    }
+
+    /**
+     * Reads the values of a range, passing each row to the handler as soon as it has been read
+     * from the response.
+     * <p>
+     * Values are unformatted: numbers arrive as Long or Double and dates and times as serial
+     * numbers, ready for {@link RowDecoder}.
+     *
+     * @param sheetName The sheet the range belongs to, for logging (e.g., "Branch1")
+     * @param range The A1 range including the sheet name (e.g., "Branch1!I21:N220")
+     * @param handler Receives the rows in order; trailing empty rows are omitted by the API
+     * @return The number of rows read
+     * @throws IOException If an API error occurs
+     */
+    public int streamValues(String sheetName, String range, RowHandler handler) throws IOException {
+        long started = System.nanoTime();
+        HttpResponse response = sheetsService.spreadsheets().values()
+                .get(spreadsheetId, range)
+                .setValueRenderOption("UNFORMATTED_VALUE")
+                .setDateTimeRenderOption("SERIAL_NUMBER")
+                .executeUnparsed();
+
+        int rows;
+        try (InputStream content = response.getContent()) {
+            rows = ValuesStreamParser.parse(JSON_FACTORY.createJsonParser(content, StandardCharsets.UTF_8), handler);
+        } finally {
+            response.disconnect();
+        }
+        Logger.logSheetCall(sheetName, "values.get " + range, elapsedMillis(started));
+        return rows;
+    }
+
+    /**
+     * Reads several ranges in one request, passing the rows of each range to its handler as soon
+     * as they have been read from the response.
+     *
+     * @param label What the ranges are for, for logging (e.g., "Branch1 bootstrap")
+     * @param ranges The A1 ranges including the sheet names
+     * @param handlers One handler per range, in the same order
+     * @param onRangeEnd Called with the index of each range once all its rows have been handled
+     * @return The number of rows read
+     * @throws IOException If an API error occurs
+     */
+    public int batchStreamValues(String label, List<String> ranges, List<? extends RowHandler> handlers,
+                                 IntConsumer onRangeEnd) throws IOException {
+        long started = System.nanoTime();
+        HttpResponse response = sheetsService.spreadsheets().values()
+                .batchGet(spreadsheetId)
+                .setRanges(ranges)
+                .setValueRenderOption("UNFORMATTED_VALUE")
+                .setDateTimeRenderOption("SERIAL_NUMBER")
+                .executeUnparsed();
+
+        int rows;
+        try (InputStream content = response.getContent()) {
+            rows = ValuesStreamParser.parseBatch(JSON_FACTORY.createJsonParser(content, StandardCharsets.UTF_8),
+                    handlers, onRangeEnd);
+        } finally {
+            response.disconnect();
+        }
+        Logger.logSheetCall(label, "values.batchGet " + String.join(",", ranges), elapsedMillis(started));
+        return rows;
+    }
+
+    /**
+     * Gets the number of rows in a sheet's grid, including empty rows at the bottom.
+     *
+     * @param sheetName The name of the sheet (e.g., "Branch1")
+     * @return The grid row count
+     * @throws IOException If an API error occurs or the sheet doesn't exist
+     */
+    public int getGridRowCount(String sheetName) throws IOException {
+        loadGridRowCounts();
+        Integer rowCount = gridRowCounts.get(sheetName);
+        if (rowCount == null) {
+            throw new IOException(sheetName + " sheet not found");
         }
+        return rowCount;
+    }
 
-        // Convert the Set back to a List and return
-        return new ArrayList<>(uniqueCategories);
+    /**
+     * Gets the number of rows in a sheet's grid as last read, without a request.
+     * <p>
+     * The grid only grows, so the count can be too small but never too large.
+     *
+     * @param sheetName The name of the sheet (e.g., "Branch1")
+     * @return The grid row count, or -1 if it hasn't been read yet
+     */
+    public int getCachedGridRowCount(String sheetName) {
+        return gridRowCounts.getOrDefault(sheetName, -1);
     }
 
+    // Reads the grid row counts of all sheets at once; they come in the same response anyway
+    private void loadGridRowCounts() throws IOException {
+        long started = System.nanoTime();
+        Spreadsheet spreadsheet = sheetsService.spreadsheets().get(spreadsheetId)
+                .setFields("sheets.properties(title,gridProperties.rowCount)")
+                .execute();
+        Logger.logSheetCall("spreadsheet", "spreadsheets.get gridProperties", elapsedMillis(started));
+
+        spreadsheet.getSheets().forEach(sheet -> gridRowCounts.put(sheet.getProperties().getTitle(),
+                sheet.getProperties().getGridProperties().getRowCount()));
+    }
+
+    /**
+     * Gets the distinct categories of the catalog, derived from the cached InventoryList rather
+     * than read separately.
+     *
+     * @return The categories, in upper case
+     */
+    public List<String> loadCategories() {
+        return getCatalog("InventoryList").getCategories();
+    }
+
+    /**
+     * Makes every cached catalog read again on its next use.
+     * <p>
+     * The catalogs themselves are kept until then, as the baseline for the changes published when
+     * they are read again.
+     */
     public void clearCache() {
-        cachedInventoryItems = null;
+        catalogLoadedAt.clear();
+    }
+
+    /**
+     * Makes the cached inventory items of one sheet read again on their next use.
+     *
+     * @param sheetName The name of the sheet (e.g., "Branch1")
+     */
+    public void clearCache(String sheetName) {
+        catalogLoadedAt.remove(sheetName);
     }
 
     /**
@@ -327,6 +986,13 @@ public class GoogleSheetsService {
      * Shuts down the sheets service and its underlying resources.
      */
     public void shutdown() {
+        changePoller.stop();
+        stockLedger.stop();
+        logFollower.shutdown();
+        salesRollups.shutdown();
+        transferReconciler.shutdown();
+        logQueryEngine.shutdown();
+        changeFeed.shutdown();
         try {
             if (sheetsService != null && sheetsService.getRequestFactory() != null &&
                     sheetsService.getRequestFactory().getTransport() != null) {
@@ -0,0 +1,167 @@
+package com.example.vrminventory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+/**
+ * The items of one inventory sheet, with what the screens derive from them: a lookup by SKU and
+ * the set of categories.
+ * <p>
+ * Both are built once when the sheet is read, so looking up the item of a log entry doesn't scan
+ * the list and the category choices don't need a download of their own.
+ * <p>
+ * A catalog is never changed once built; a confirmed write is applied by building a changed copy,
+ * so readers on other threads always see a consistent catalog.
+ */
+public class InventoryCatalog {
+    public static final InventoryCatalog EMPTY = new InventoryCatalog(Collections.emptyList());
+
+    private final List<InventoryItem> items;
+    private final Map<Integer, InventoryItem> itemsBySku;
+    private final List<String> categories;
+
+    public InventoryCatalog(List<InventoryItem> items) {
+        this.items = items;
+        this.itemsBySku = new HashMap<>(items.size() * 2);
+
+        // Categories are compared case insensitively and shown in upper case
+        TreeSet<String> uniqueCategories = new TreeSet<>();
+        for (InventoryItem item : items) {
+            itemsBySku.putIfAbsent(item.getSku(), item); // the first row of a SKU wins, as with a list scan
+            String category = item.getCategory() == null ? "" : item.getCategory().trim();
+            if (!category.isEmpty()) {
+                uniqueCategories.add(category.toUpperCase());
+            }
+        }
+        this.categories = Collections.unmodifiableList(new ArrayList<>(uniqueCategories));
+    }
+
+    public List<InventoryItem> getItems() {
+        return items;
+    }
+
+    /**
+     * @return The item with the given SKU, or null if the sheet has none
+     */
+    public InventoryItem findBySku(int sku) {
+        return itemsBySku.get(sku);
+    }
+
+    /**
+     * @return The distinct categories of the items, in upper case and sorted
+     */
+    public List<String> getCategories() {
+        return categories;
+    }
+
+    /**
+     * @param deltas The change in quantity, by SKU; SKUs without an item are ignored
+     * @return A copy of this catalog with the quantities changed
+     */
+    public InventoryCatalog withQuantityChanges(Map<Integer, Integer> deltas) {
+        List<InventoryItem> changedItems = new ArrayList<>(items.size());
+        for (InventoryItem item : items) {
+            Integer delta = itemsBySku.get(item.getSku()) == item ? deltas.get(item.getSku()) : null;
+            changedItems.add(delta == null ? item : new InventoryItem(item.getSku(), item.getName(),
+                    item.getCategory(), item.getPrice(), item.getQuantity() + delta));
+        }
+        return new InventoryCatalog(changedItems);
+    }
+
+    /**
+     * @return A copy of this catalog with an item added at the end
+     */
+    public InventoryCatalog withItem(InventoryItem item) {
+        List<InventoryItem> changedItems = new ArrayList<>(items.size() + 1);
+        changedItems.addAll(items);
+        changedItems.add(item);
+        return new InventoryCatalog(changedItems);
+    }
+
+    /**
+     * @param changedItems Items that replace the item with the same SKU, or are added at the end
+     * @return A copy of this catalog with the items changed
+     */
+    public InventoryCatalog withChangedItems(List<InventoryItem> changedItems) {
+        Map<Integer, InventoryItem> bySku = new LinkedHashMap<>();
+        for (InventoryItem item : changedItems) {
+            bySku.put(item.getSku(), item);
+        }
+
+        List<InventoryItem> newItems = new ArrayList<>(items.size() + changedItems.size());
+        for (InventoryItem item : items) {
+            InventoryItem replacement = itemsBySku.get(item.getSku()) == item ? bySku.remove(item.getSku()) : null;
+            newItems.add(replacement == null ? item : replacement);
+        }
+        newItems.addAll(bySku.values());
+        return new InventoryCatalog(newItems);
+    }
+
+    /**
+     * Lists the items that are new or different in this catalog compared with an earlier one.
+     *
+     * @param added Receives the items whose SKU the earlier catalog doesn't have
+     * @param changed Receives the items that differ from the earlier catalog's item with their SKU
+     */
+    public void diffFrom(InventoryCatalog earlier, Consumer<InventoryItem> added, Consumer<InventoryItem> changed) {
+        for (InventoryItem item : items) {
+            if (itemsBySku.get(item.getSku()) != item) {
+                continue; // a later row of a SKU isn't looked up, so it can't have changed for readers
+            }
+            InventoryItem before = earlier.findBySku(item.getSku());
+            if (before == null) {
+                added.accept(item);
+            } else if (!before.sameContent(item)) {
+                changed.accept(item);
+            }
+        }
+    }
+
+    /**
+     * Decodes the rows of an inventory range as they are streamed.
+     */
+    static class Reader implements GoogleSheetsService.RowHandler {
+        private final RowDecoder decoder;
+        private final boolean withQuantity;
+        private final RowBatcher<InventoryItem> batcher;
+        private final List<InventoryItem> items = new ArrayList<>();
+
+        /**
+         * @param onBatch Receives the items in batches as they are decoded; may be null
+         */
+        Reader(String sheetName, boolean withQuantity, Consumer<List<InventoryItem>> onBatch) {
+            this.decoder = new RowDecoder(sheetName);
+            this.withQuantity = withQuantity;
+            this.batcher = onBatch != null ? new RowBatcher<>(onBatch) : null;
+        }
+
+        @Override
+        public void onRow(List<Object> row, int rowIndex) {
+            // Empty and malformed rows are skipped; the decoder counts the malformed ones
+            InventoryItem item = decoder.decodeInventoryItem(row, withQuantity);
+            if (item != null) {
+                items.add(item);
+                if (batcher != null) {
+                    batcher.add(item);
+                }
+            }
+        }
+
+        /**
+         * Publishes the last batch and reports bad rows. Call once the range has been read.
+         */
+        InventoryCatalog finish() {
+            if (batcher != null) {
+                batcher.flush();
+            }
+            decoder.report();
+            return new InventoryCatalog(items);
+        }
+    }
+}
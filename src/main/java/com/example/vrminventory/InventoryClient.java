@@ -0,0 +1,224 @@
+package com.example.vrminventory;
+
+import com.google.api.client.http.ByteArrayContent;
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpRequestFactory;
+import com.google.api.client.http.HttpResponse;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.JsonGenerator;
+import com.google.api.client.json.JsonParser;
+import com.google.api.client.json.JsonToken;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Talks to an {@link InventoryServer} on the local network in place of Sheets, for catalogs and
+ * appends.
+ * <p>
+ * Every request carries {@code server.secret}, which the server checks.
+ * <p>
+ * Catalogs arrive in the same shape as a {@code values.get} response and are decoded as they are
+ * read, just like a catalog read from Sheets.
+ */
+public class InventoryClient {
+    private final String baseUrl;
+    private final HttpRequestFactory requestFactory;
+    private final JsonFactory jsonFactory;
+
+    /**
+     * Changes read from the server's feed.
+     *
+     * @param token Where to continue reading from
+     * @param reset Whether the token given couldn't be resumed from, so changes may have been missed
+     * @param more Whether more changes are waiting
+     * @param changes The changes, in sequence order; catalog items have row 0
+     */
+    public record ChangeBatch(String token, boolean reset, boolean more, List<ChangeFeed.Change> changes) {
+    }
+
+    /**
+     * @param baseUrl The server's address (e.g., "http://192.168.1.20:8470")
+     */
+    public InventoryClient(String baseUrl, HttpTransport transport, JsonFactory jsonFactory) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.requestFactory = transport.createRequestFactory(request -> {
+            String secret = Config.SERVER_SECRET.get();
+            if (!secret.isBlank()) {
+                request.getHeaders().setAuthorization("Bearer " + secret);
+            }
+        });
+        this.jsonFactory = jsonFactory;
+    }
+
+    /**
+     * Reads the catalog of a sheet from the server.
+     *
+     * @param onBatch Receives the items in batches as they are decoded; may be null
+     * @throws IOException If the server can't be reached or answers with an error
+     */
+    public InventoryCatalog getCatalog(String sheetName, Consumer<List<InventoryItem>> onBatch) throws IOException {
+        GenericUrl url = new GenericUrl(baseUrl + "/api/catalog");
+        url.set("sheet", sheetName);
+
+        long started = System.nanoTime();
+        HttpResponse response = requestFactory.buildGetRequest(url).execute();
+        try (InputStream content = response.getContent()) {
+            InventoryCatalog.Reader reader = GoogleSheetsService.catalogReader(sheetName, onBatch);
+            ValuesStreamParser.parse(jsonFactory.createJsonParser(content, StandardCharsets.UTF_8), reader);
+            InventoryCatalog catalog = reader.finish();
+            Logger.logSheetCall(sheetName, "server catalog", (System.nanoTime() - started) / 1_000_000);
+            return catalog;
+        } finally {
+            response.disconnect();
+        }
+    }
+
+    /**
+     * Appends rows through the server, which writes them to the sheet together with the rows of
+     * other terminals.
+     *
+     * @param branch The branch sheet name including the trailing exclamation mark (e.g., "Branch1!")
+     * @return The sheet row number each row was written to, in the order given
+     * @throws IOException If the server can't be reached or the rows couldn't be written
+     */
+    public int[] appendRows(String branch, List<List<Object>> rows) throws IOException {
+        // The body is a ValueRange, so the server reads it with the values parser
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (JsonGenerator generator = jsonFactory.createJsonGenerator(body, StandardCharsets.UTF_8)) {
+            generator.writeStartObject();
+            generator.writeFieldName("values");
+            generator.writeStartArray();
+            for (List<Object> row : rows) {
+                writeRow(generator, row);
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+
+        GenericUrl url = new GenericUrl(baseUrl + "/api/append");
+        url.set("sheet", branch.endsWith("!") ? branch.substring(0, branch.length() - 1) : branch);
+
+        long started = System.nanoTime();
+        HttpRequest request = requestFactory.buildPostRequest(url,
+                new ByteArrayContent("application/json", body.toByteArray()));
+        request.setReadTimeout(0); // the server may be retrying a collision with backoff
+        HttpResponse response = request.execute();
+
+        List<Integer> writtenRows = new ArrayList<>(rows.size());
+        try (InputStream content = response.getContent()) {
+            JsonParser parser = jsonFactory.createJsonParser(content, StandardCharsets.UTF_8);
+            parser.nextToken();
+            parser.skipToKey("rows");
+            if (parser.getCurrentToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Unexpected append response from server");
+            }
+            while (parser.nextToken() == JsonToken.VALUE_NUMBER_INT) {
+                writtenRows.add(parser.getIntValue());
+            }
+        } finally {
+            response.disconnect();
+        }
+        Logger.logSheetCall(branch, "server append (" + rows.size() + " rows)", (System.nanoTime() - started) / 1_000_000);
+
+        if (writtenRows.size() != rows.size()) {
+            throw new IOException("Server confirmed " + writtenRows.size() + " of " + rows.size() + " rows");
+        }
+        return writtenRows.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Reads the server's change feed after a resume token.
+     *
+     * @param resumeToken The token of the last batch read, or null to start from now
+     * @throws IOException If the server can't be reached or answers with an error
+     */
+    public ChangeBatch readChanges(String resumeToken) throws IOException {
+        GenericUrl url = new GenericUrl(baseUrl + "/api/changes");
+        if (resumeToken != null) {
+            url.set("since", resumeToken);
+        }
+
+        HttpResponse response = requestFactory.buildGetRequest(url).execute();
+        String token = resumeToken;
+        boolean reset = false;
+        boolean more = false;
+        List<ChangeFeed.Change> changes = new ArrayList<>();
+        try (InputStream content = response.getContent()) {
+            JsonParser parser = jsonFactory.createJsonParser(content, StandardCharsets.UTF_8);
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Unexpected changes response from server");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "token" -> token = parser.getText();
+                    case "reset" -> reset = value == JsonToken.VALUE_TRUE;
+                    case "more" -> more = value == JsonToken.VALUE_TRUE;
+                    case "changes" -> {
+                        while (parser.nextToken() == JsonToken.START_OBJECT) {
+                            changes.add(readChange(parser));
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+        } finally {
+            response.disconnect();
+        }
+        return new ChangeBatch(token, reset, more, changes);
+    }
+
+    // Reads one change object, its start already consumed
+    private static ChangeFeed.Change readChange(JsonParser parser) throws IOException {
+        long sequence = 0;
+        String sheetName = null;
+        ChangeFeed.Kind kind = ChangeFeed.Kind.INSERT;
+        int row = 0;
+        List<Object> values = new ArrayList<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "seq" -> sequence = parser.getLongValue();
+                case "sheet" -> sheetName = parser.getText();
+                case "kind" -> kind = ChangeFeed.Kind.valueOf(parser.getText());
+                case "row" -> row = parser.getIntValue();
+                case "values" -> {
+                    if (value == JsonToken.START_ARRAY) {
+                        ValuesStreamParser.readRow(parser, values);
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        if (sheetName == null) {
+            throw new IOException("Change without a sheet in server response");
+        }
+        return new ChangeFeed.Change(sequence, sheetName, kind, row, values);
+    }
+
+    static void writeRow(JsonGenerator generator, List<Object> row) throws IOException {
+        generator.writeStartArray();
+        for (Object cell : row) {
+            if (cell instanceof Integer || cell instanceof Long) {
+                generator.writeNumber(((Number) cell).longValue());
+            } else if (cell instanceof Number number) {
+                generator.writeNumber(number.doubleValue());
+            } else if (cell instanceof Boolean value) {
+                generator.writeBoolean(value);
+            } else {
+                generator.writeString(cell == null ? "" : cell.toString());
+            }
+        }
+        generator.writeEndArray();
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.vrminventory;
 
+import java.util.Objects;
+
 public class InventoryItem {
     private int sku;
     private String name;
@@ -7,6 +9,11 @@ public class InventoryItem {
     private double price;
     private int quantity;
 
+    // Display strings, formatted on first use and reused by the list cells
+    private String skuText;
+    private String priceText;
+    private String quantityText;
+
     public InventoryItem(int sku, String name, String category, double price, int quantity) {
         this.sku = sku;
         this.name = name;
@@ -22,6 +29,28 @@ public class InventoryItem {
     public double getPrice() { return price; }
     public int getQuantity() { return quantity; }
 
+    // Whether another version of this item (e.g. from a refresh) would display identically
+    public boolean sameContent(InventoryItem other) {
+        return sku == other.sku && quantity == other.quantity && Double.compare(price, other.price) == 0
+                && Objects.equals(name, other.name) && Objects.equals(category, other.category);
+    }
+
+    // Cached display strings
+    public String getSkuText() {
+        if (skuText == null) skuText = String.valueOf(sku);
+        return skuText;
+    }
+
+    public String getPriceText() {
+        if (priceText == null) priceText = String.format("₱%.2f", price);
+        return priceText;
+    }
+
+    public String getQuantityText() {
+        if (quantityText == null) quantityText = String.valueOf(quantity);
+        return quantityText;
+    }
+
     @Override
     public String toString() {
         return String.format("SKU: %d, Name: %s, Category: %s, Price: %.2f, Quantity: %d", sku, name, category, price, quantity);
@@ -0,0 +1,585 @@
+package com.example.vrminventory;
+
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.JsonGenerator;
+import com.google.api.client.json.gson.GsonFactory;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless inventory server for the terminals of a site, started with {@code --server}.
+ * <p>
+ * One node reads the catalogs from Sheets, keeps them in memory and serves them over a small JSON
+ * API on the local network. The server listens on {@code server.bindAddress}, loopback unless set,
+ * and every request must carry {@code server.secret} as {@code Authorization: Bearer <secret>};
+ * others are answered 401. A server bound beyond loopback won't start without a secret. Terminals with {@code server.url} set read catalogs and append rows
+ * through it (see {@link InventoryClient}), so Sheets quota use doesn't grow with the number of
+ * terminals.
+ * <p>
+ * Appends are queued per sheet and written together: the first append to a sheet with an empty
+ * queue waits {@code server.appendWindowMillis}, and everything queued by then goes out in one
+ * {@code values.append}. Confirmed rows are applied to the cached catalogs, and the cached catalogs
+ * are read again every {@code server.syncSeconds} to pick up edits made in the sheet itself. Reads
+ * of Sheets and writes run on one thread, so a sync never overwrites a newer applied write.
+ * <p>
+ * Endpoints, all answering JSON:
+ * <ul>
+ *     <li>{@code GET /api/catalog?sheet=Branch1} - all items, as a {@code values.get} response</li>
+ *     <li>{@code GET /api/items?sheet=Branch1&sku=101,102} - items by SKU</li>
+ *     <li>{@code GET /api/items?sheet=Branch1&q=cable&limit=20} - items whose name, category or SKU
+ *     contains the text</li>
+ *     <li>{@code GET /api/stock?sku=101[&sheet=Branch1]} - the quantity at each branch</li>
+ *     <li>{@code POST /api/append?sheet=Branch1} - appends the rows of a ValueRange body and answers
+ *     with the row numbers written</li>
+ *     <li>{@code GET /api/changes?since=TOKEN[&max=500]} - the server's {@link ChangeFeed} after a
+ *     resume token, with the token to continue from; without {@code since}, just the token</li>
+ * </ul>
+ * The server watches the branch logs for rows written without it, so its feed has every change.
+ */
+public class InventoryServer {
+    private static final JsonFactory JSON_FACTORY = GsonFactory.getDefaultInstance();
+    private static final List<String> BRANCH_LIST = List.of("Branch1", "Branch2", "Branch3", "Warehouse");
+    private static final Set<String> CATALOG_SHEETS = Set.of("InventoryList", "ADMIN", "Branch1", "Branch2",
+            "Branch3", "Warehouse");
+    private static final Set<String> APPEND_SHEETS = Set.of("InventoryList", "Branch1", "Branch2", "Branch3",
+            "Warehouse");
+    private static final int DEFAULT_SEARCH_LIMIT = 50;
+    private static final int DEFAULT_CHANGES_LIMIT = 500;
+
+    private final GoogleSheetsService sheetsService;
+    private final HttpServer httpServer;
+    private final ExecutorService requestExecutor = TunableThreadPool.newFixedThreadPool(Config.SERVER_THREADS);
+
+    // Every read of Sheets and every write runs here, one at a time
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "server-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Appends waiting for the next write, per sheet
+    private final Map<String, List<PendingAppend>> pendingAppends = new HashMap<>();
+
+    // Sheets whose catalogs have been served, and so are kept in sync
+    private final Set<String> servedSheets = ConcurrentHashMap.newKeySet();
+
+    private record PendingAppend(List<List<Object>> rows, CompletableFuture<int[]> result) {
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        void handle(HttpExchange exchange, Map<String, String> params) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface Body {
+        void write(JsonGenerator generator) throws IOException;
+    }
+
+    public InventoryServer(GoogleSheetsService sheetsService, String bindAddress, int port) throws IOException {
+        InetAddress address = InetAddress.getByName(bindAddress);
+        if (!address.isLoopbackAddress() && Config.SERVER_SECRET.get().isBlank()) {
+            throw new IOException("Set " + Config.SERVER_SECRET.getKey() + " to serve beyond this machine on "
+                    + bindAddress);
+        }
+        this.sheetsService = sheetsService;
+        this.httpServer = HttpServer.create(new InetSocketAddress(address, port), 0);
+        httpServer.setExecutor(requestExecutor);
+
+        route("/api/catalog", "GET", this::serveCatalog);
+        route("/api/items", "GET", this::serveItems);
+        route("/api/stock", "GET", this::serveStock);
+        route("/api/append", "POST", this::serveAppend);
+        route("/api/changes", "GET", this::serveChanges);
+    }
+
+    /**
+     * Runs the server until the JVM exits, signing in to Sheets first.
+     */
+    public static void run() {
+        try {
+            // The server is the node that talks to Sheets, whatever server.url says
+            GoogleSheetsService sheetsService = new GoogleSheetsService(Config.SPREADSHEET_ID.get(), "");
+            InventoryServer server = new InventoryServer(sheetsService, Config.SERVER_BIND_ADDRESS.get(),
+                    Config.SERVER_PORT.get());
+            server.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(server::stop, "server-shutdown"));
+        } catch (GeneralSecurityException | IOException e) {
+            Logger.logError("Failed to start inventory server", e);
+            Logger.shutdown();
+            System.exit(1);
+        }
+    }
+
+    public void start() {
+        httpServer.start();
+        writer.execute(this::watchLogs);
+        writer.schedule(this::sync, Config.SERVER_SYNC_SECONDS.get(), TimeUnit.SECONDS);
+        Logger.log("Inventory server listening on " + httpServer.getAddress().getAddress().getHostAddress() + ":"
+                + httpServer.getAddress().getPort());
+    }
+
+    public void stop() {
+        httpServer.stop(1);
+        requestExecutor.shutdown();
+        writer.shutdown();
+        sheetsService.shutdown();
+    }
+
+    private void route(String path, String method, Handler handler) {
+        httpServer.createContext(path, exchange -> {
+            try {
+                if (!isAuthorized(exchange)) {
+                    sendError(exchange, 401, "Missing or wrong server secret");
+                    return;
+                }
+                if (!method.equals(exchange.getRequestMethod())) {
+                    sendError(exchange, 405, "Use " + method);
+                    return;
+                }
+                handler.handle(exchange, parseQuery(exchange));
+            } catch (IllegalArgumentException e) {
+                sendError(exchange, 400, e.getMessage());
+            } catch (IOException e) {
+                Logger.logError(path, "Request failed", e);
+                sendError(exchange, 502, e.getMessage());
+            } finally {
+                exchange.close();
+            }
+        });
+    }
+
+    // Whether the request carries the shared secret; read at each request, so it can be changed live
+    private static boolean isAuthorized(HttpExchange exchange) {
+        String secret = Config.SERVER_SECRET.get();
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        String given = header != null && header.startsWith("Bearer ") ? header.substring("Bearer ".length()) : "";
+        // Compared in constant time, so the secret can't be guessed from response times
+        return MessageDigest.isEqual(secret.getBytes(StandardCharsets.UTF_8), given.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void serveCatalog(HttpExchange exchange, Map<String, String> params) throws IOException {
+        String sheetName = sheetParam(params, CATALOG_SHEETS);
+        InventoryCatalog catalog = getCatalog(sheetName);
+        boolean withQuantity = !sheetName.equals("InventoryList");
+
+        // Same shape as a values.get response, so terminals decode it like a sheet read
+        send(exchange, generator -> {
+            generator.writeStartObject();
+            generator.writeFieldName("range");
+            generator.writeString(sheetName);
+            generator.writeFieldName("values");
+            generator.writeStartArray();
+            for (InventoryItem item : catalog.getItems()) {
+                generator.writeStartArray();
+                generator.writeNumber(item.getSku());
+                generator.writeString(item.getName());
+                generator.writeString(item.getCategory());
+                generator.writeNumber(item.getPrice());
+                if (withQuantity) {
+                    generator.writeNumber(item.getQuantity());
+                }
+                generator.writeEndArray();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        });
+    }
+
+    private void serveItems(HttpExchange exchange, Map<String, String> params) throws IOException {
+        InventoryCatalog catalog = getCatalog(sheetParam(params, CATALOG_SHEETS));
+        List<InventoryItem> items = new ArrayList<>();
+
+        if (params.containsKey("sku")) {
+            for (String sku : params.get("sku").split(",")) {
+                InventoryItem item = catalog.findBySku(parseSku(sku));
+                if (item != null) {
+                    items.add(item);
+                }
+            }
+        } else if (params.containsKey("q")) {
+            String text = params.get("q").trim().toLowerCase(Locale.ROOT);
+            int limit = params.containsKey("limit") ? parsePositive("limit", params.get("limit")) : DEFAULT_SEARCH_LIMIT;
+            for (InventoryItem item : catalog.getItems()) {
+                if (items.size() >= limit) {
+                    break;
+                }
+                if (matches(item, text)) {
+                    items.add(item);
+                }
+            }
+        } else {
+            throw new IllegalArgumentException("Give sku or q");
+        }
+
+        send(exchange, generator -> {
+            generator.writeStartObject();
+            generator.writeFieldName("items");
+            generator.writeStartArray();
+            for (InventoryItem item : items) {
+                writeItem(generator, item);
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        });
+    }
+
+    private void serveStock(HttpExchange exchange, Map<String, String> params) throws IOException {
+        int sku = parseSku(params.getOrDefault("sku", ""));
+        List<String> branches = params.containsKey("sheet") ? List.of(sheetParam(params, Set.copyOf(BRANCH_LIST)))
+                : BRANCH_LIST;
+
+        // The ledger answers for branches it tracks; reading a catalog starts tracking the branch
+        StockLedger ledger = sheetsService.getStockLedger();
+        Map<String, Integer> stock = new HashMap<>();
+        for (String branch : branches) {
+            if (ledger.isTracking(branch)) {
+                Integer quantity = ledger.getStock(branch, sku);
+                if (quantity != null) {
+                    stock.put(branch, quantity);
+                }
+                continue;
+            }
+            InventoryItem item = getCatalog(branch).findBySku(sku);
+            if (item != null) {
+                stock.put(branch, item.getQuantity());
+            }
+        }
+
+        send(exchange, generator -> {
+            generator.writeStartObject();
+            generator.writeFieldName("sku");
+            generator.writeNumber(sku);
+            generator.writeFieldName("stock");
+            generator.writeStartObject();
+            for (String branch : branches) {
+                if (stock.containsKey(branch)) {
+                    generator.writeFieldName(branch);
+                    generator.writeNumber(stock.get(branch));
+                }
+            }
+            generator.writeEndObject();
+            generator.writeEndObject();
+        });
+    }
+
+    private void serveAppend(HttpExchange exchange, Map<String, String> params) throws IOException {
+        String sheetName = sheetParam(params, APPEND_SHEETS);
+
+        List<List<Object>> rows = new ArrayList<>();
+        try (InputStream body = exchange.getRequestBody()) {
+            ValuesStreamParser.parse(JSON_FACTORY.createJsonParser(body, StandardCharsets.UTF_8),
+                    (row, rowIndex) -> rows.add(new ArrayList<>(row)));
+        }
+        if (rows.isEmpty()) {
+            throw new IllegalArgumentException("No rows to append");
+        }
+
+        int[] writtenRows = await(queueAppend(sheetName, rows));
+        send(exchange, generator -> {
+            generator.writeStartObject();
+            generator.writeFieldName("rows");
+            generator.writeStartArray();
+            for (int row : writtenRows) {
+                generator.writeNumber(row);
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        });
+    }
+
+    private void serveChanges(HttpExchange exchange, Map<String, String> params) throws IOException {
+        ChangeFeed feed = sheetsService.getChangeFeed();
+        String since = params.get("since");
+        int max = params.containsKey("max") ? parsePositive("max", params.get("max")) : DEFAULT_CHANGES_LIMIT;
+
+        List<ChangeFeed.Change> changes = since == null ? List.of() : feed.read(since, max);
+        boolean reset = changes == null;
+        List<ChangeFeed.Change> sent = reset ? List.of() : changes;
+        String token = reset || since == null ? feed.getResumeToken()
+                : sent.isEmpty() ? since : feed.tokenOf(sent.get(sent.size() - 1));
+
+        send(exchange, generator -> {
+            generator.writeStartObject();
+            generator.writeFieldName("token");
+            generator.writeString(token);
+            generator.writeFieldName("reset");
+            generator.writeBoolean(reset);
+            generator.writeFieldName("more");
+            generator.writeBoolean(sent.size() >= max);
+            generator.writeFieldName("changes");
+            generator.writeStartArray();
+            for (ChangeFeed.Change change : sent) {
+                generator.writeStartObject();
+                generator.writeFieldName("seq");
+                generator.writeNumber(change.sequence());
+                generator.writeFieldName("sheet");
+                generator.writeString(change.sheetName());
+                generator.writeFieldName("kind");
+                generator.writeString(change.kind().name());
+                generator.writeFieldName("row");
+                generator.writeNumber(change.row());
+                generator.writeFieldName("values");
+                InventoryClient.writeRow(generator, change.values());
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        });
+    }
+
+    // Finds where each branch log ends and has the change poller watch below it; logs that failed
+    // are tried again with the next sync
+    private void watchLogs() {
+        for (String branch : BRANCH_LIST) {
+            if (sheetsService.getChangePoller().isWatching(branch)) {
+                continue;
+            }
+            try {
+                PagedLogSource source = new PagedLogSource(sheetsService, branch, Config.LOG_START_ROW.get(), "I", "N",
+                        (decoder, row, rowNumber) -> decoder.decodeLogEntry(row, 0, branch, (code, sheet) -> ""));
+                source.open(); // finds the end of the log or throws, so the tail never starts at its top
+                sheetsService.getChangePoller().watch(source);
+            } catch (IOException e) {
+                Logger.logError(branch, "Failed to find the end of the log; its changes won't be followed", e);
+            }
+        }
+    }
+
+    // Returns the cached catalog, reading the sheet on the writer thread if it isn't cached
+    private InventoryCatalog getCatalog(String sheetName) throws IOException {
+        servedSheets.add(sheetName);
+        if (sheetsService.isCatalogCached(sheetName)) {
+            return sheetsService.getCatalog(sheetName);
+        }
+        return onWriter(() -> {
+            ScreenBootstrap bootstrap = new ScreenBootstrap(sheetsService, "server " + sheetName).catalog(sheetName);
+            bootstrap.load();
+            return bootstrap.getCatalog(sheetName);
+        });
+    }
+
+    private CompletableFuture<int[]> queueAppend(String sheetName, List<List<Object>> rows) {
+        CompletableFuture<int[]> result = new CompletableFuture<>();
+        synchronized (pendingAppends) {
+            List<PendingAppend> queue = pendingAppends.computeIfAbsent(sheetName, name -> new ArrayList<>());
+            queue.add(new PendingAppend(rows, result));
+            if (queue.size() == 1) {
+                writer.schedule(() -> writeAppends(sheetName), Config.SERVER_APPEND_WINDOW_MILLIS.get(),
+                        TimeUnit.MILLISECONDS);
+            }
+        }
+        return result;
+    }
+
+    // Writes everything queued for a sheet with one append, then applies it to the cached catalog
+    private void writeAppends(String sheetName) {
+        List<PendingAppend> queue;
+        synchronized (pendingAppends) {
+            queue = pendingAppends.remove(sheetName);
+        }
+        if (queue == null) {
+            return;
+        }
+
+        List<List<Object>> rows = new ArrayList<>();
+        for (PendingAppend append : queue) {
+            rows.addAll(append.rows());
+        }
+
+        try {
+            int[] writtenRows = sheetsService.appendRows(sheetName + "!", rows);
+            applyWrittenRows(sheetName, rows);
+
+            int offset = 0;
+            for (PendingAppend append : queue) {
+                int[] ownRows = new int[append.rows().size()];
+                System.arraycopy(writtenRows, offset, ownRows, 0, ownRows.length);
+                offset += ownRows.length;
+                append.result().complete(ownRows);
+            }
+        } catch (IOException | RuntimeException e) {
+            Logger.logError(sheetName, "Failed to append " + rows.size() + " rows for " + queue.size() + " requests", e);
+            queue.forEach(append -> append.result().completeExceptionally(e));
+        }
+    }
+
+    private void applyWrittenRows(String sheetName, List<List<Object>> rows) {
+        RowDecoder decoder = new RowDecoder(sheetName);
+        if (sheetName.equals("InventoryList")) {
+            for (List<Object> row : rows) {
+                InventoryItem item = decoder.decodeInventoryItem(row, false);
+                if (item != null) {
+                    sheetsService.applyNewItem(sheetName, item);
+                }
+            }
+        } else {
+            // Log rows: date, time, activity code, SKU, quantity and description
+            Map<Integer, Integer> deltas = new HashMap<>();
+            for (List<Object> row : rows) {
+                decoder.begin(row);
+                int activityCode = decoder.intAt(2);
+                int sku = decoder.intAt(3);
+                int quantity = decoder.intAt(4);
+                if (decoder.end()) {
+                    deltas.merge(sku, StockLedger.quantityChange(sheetName, activityCode, quantity), Integer::sum);
+                }
+            }
+            sheetsService.applyQuantityChanges(sheetName, deltas);
+        }
+        decoder.report();
+    }
+
+    // Reads the served catalogs again in one request, then schedules the next sync
+    private void sync() {
+        watchLogs();
+        try {
+            if (!servedSheets.isEmpty()) {
+                ScreenBootstrap bootstrap = new ScreenBootstrap(sheetsService, "server sync");
+                servedSheets.forEach(sheetName -> bootstrap.freshCatalog(sheetName, null));
+                bootstrap.load();
+            }
+        } catch (IOException | RuntimeException e) {
+            Logger.logError("Failed to sync catalogs", e);
+        } finally {
+            writer.schedule(this::sync, Config.SERVER_SYNC_SECONDS.get(), TimeUnit.SECONDS);
+        }
+    }
+
+    private <T> T onWriter(Callable<T> work) throws IOException {
+        return await(writer.submit(work));
+    }
+
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        }
+    }
+
+    private static boolean matches(InventoryItem item, String text) {
+        return String.valueOf(item.getSku()).contains(text)
+                || (item.getName() != null && item.getName().toLowerCase(Locale.ROOT).contains(text))
+                || (item.getCategory() != null && item.getCategory().toLowerCase(Locale.ROOT).contains(text));
+    }
+
+    private static void writeItem(JsonGenerator generator, InventoryItem item) throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName("sku");
+        generator.writeNumber(item.getSku());
+        generator.writeFieldName("name");
+        generator.writeString(item.getName());
+        generator.writeFieldName("category");
+        generator.writeString(item.getCategory());
+        generator.writeFieldName("price");
+        generator.writeNumber(item.getPrice());
+        generator.writeFieldName("quantity");
+        generator.writeNumber(item.getQuantity());
+        generator.writeEndObject();
+    }
+
+    private static String sheetParam(Map<String, String> params, Set<String> allowed) {
+        String sheetName = params.get("sheet");
+        if (sheetName == null || !allowed.contains(sheetName)) {
+            throw new IllegalArgumentException("Unknown sheet: " + sheetName);
+        }
+        return sheetName;
+    }
+
+    private static int parseSku(String text) {
+        try {
+            return Integer.parseInt(text.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid SKU: " + text);
+        }
+    }
+
+    private static int parsePositive(String name, String text) {
+        try {
+            int value = Integer.parseInt(text.trim());
+            if (value > 0) {
+                return value;
+            }
+        } catch (NumberFormatException e) {
+            // fall through
+        }
+        throw new IllegalArgumentException("Invalid " + name + ": " + text);
+    }
+
+    private static Map<String, String> parseQuery(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            String key = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static void send(HttpExchange exchange, Body body) throws IOException {
+        send(exchange, 200, body);
+    }
+
+    private static void send(HttpExchange exchange, int status, Body body) throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        try (JsonGenerator generator = JSON_FACTORY.createJsonGenerator(content, StandardCharsets.UTF_8)) {
+            body.write(generator);
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, content.size());
+        try (OutputStream output = exchange.getResponseBody()) {
+            content.writeTo(output);
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) {
+        try {
+            send(exchange, status, generator -> {
+                generator.writeStartObject();
+                generator.writeFieldName("error");
+                generator.writeString(message == null ? "" : message);
+                generator.writeEndObject();
+            });
+        } catch (IOException e) {
+            // The response was already started or the terminal has gone; nothing more to tell it
+        }
+    }
+}
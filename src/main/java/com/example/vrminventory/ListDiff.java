@@ -0,0 +1,90 @@
+package com.example.vrminventory;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * Brings an ObservableList in line with a new result by applying only the changes between them.
+ * <p>
+ * Rows are matched by key (SKU, sheet row). Removed rows go out in one removal, rows whose content
+ * changed are replaced in place, new rows are added in one addition, and a reorder is applied as a
+ * single permutation. A ListView bound to the list then only redraws the cells that changed,
+ * instead of rebuilding every cell as {@code setAll} does.
+ */
+public final class ListDiff {
+
+    private ListDiff() {
+    }
+
+    /**
+     * @param target The list shown in the UI
+     * @param next The new contents, in display order
+     * @param keyOf Identifies the same row across refreshes
+     * @param sameContent Whether two versions of a row look identical; if so the old instance is kept
+     */
+    public static <T, K> void apply(ObservableList<T> target, List<T> next,
+                                    Function<T, K> keyOf, BiPredicate<T, T> sameContent) {
+        // Position of every key in the new result
+        Map<K, Integer> nextPosition = new HashMap<>(next.size() * 2);
+        for (int i = 0; i < next.size(); i++) {
+            if (nextPosition.put(keyOf.apply(next.get(i)), i) != null) {
+                target.setAll(next); // duplicate keys can't be matched reliably
+                return;
+            }
+        }
+
+        // 1. Remove rows that are gone, in one change
+        Set<T> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<K> currentKeys = new HashSet<>(target.size() * 2);
+        for (T item : target) {
+            K key = keyOf.apply(item);
+            if (!nextPosition.containsKey(key) || !currentKeys.add(key)) {
+                removed.add(item);
+            }
+        }
+        if (!removed.isEmpty()) {
+            target.removeAll(removed);
+        }
+
+        // 2. Replace rows whose content changed
+        for (int i = 0; i < target.size(); i++) {
+            T current = target.get(i);
+            T replacement = next.get(nextPosition.get(keyOf.apply(current)));
+            if (current != replacement && !sameContent.test(current, replacement)) {
+                target.set(i, replacement);
+            }
+        }
+
+        // 3. Add new rows, in one change
+        if (target.size() < next.size()) {
+            List<T> added = new ArrayList<>(next.size() - target.size());
+            for (T item : next) {
+                if (!currentKeys.contains(keyOf.apply(item))) {
+                    added.add(item);
+                }
+            }
+            target.addAll(added);
+        }
+
+        // 4. Reorder with a single permutation if the order differs
+        boolean inOrder = true;
+        for (int i = 0; i < target.size() && inOrder; i++) {
+            inOrder = nextPosition.get(keyOf.apply(target.get(i))) == i;
+        }
+        if (!inOrder) {
+            FXCollections.sort(target, (a, b) ->
+                    Integer.compare(nextPosition.get(keyOf.apply(a)), nextPosition.get(keyOf.apply(b))));
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.vrminventory;
+
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.control.skin.VirtualFlow;
+
+/**
+ * Hooks for loading more rows as a ListView is scrolled to either end.
+ */
+public final class ListScrollPaging {
+    // How close to an end, as a fraction of the scroll range, triggers a load
+    private static final double EDGE_FRACTION = 0.05;
+
+    private ListScrollPaging() {
+    }
+
+    /**
+     * Calls {@code atTop} or {@code atBottom} whenever the user scrolls near that end of the list.
+     * The list's scroll bar only exists once it has a skin, so the hooks are attached then.
+     */
+    public static void install(ListView<?> listView, Runnable atTop, Runnable atBottom) {
+        listView.skinProperty().addListener((obs, oldSkin, newSkin) -> {
+            for (Node node : listView.lookupAll(".scroll-bar")) {
+                if (node instanceof ScrollBar bar && bar.getOrientation() == Orientation.VERTICAL) {
+                    bar.valueProperty().addListener((o, oldValue, value) -> {
+                        double range = bar.getMax() - bar.getMin();
+                        if (value.doubleValue() >= bar.getMax() - range * EDGE_FRACTION) {
+                            atBottom.run();
+                        } else if (value.doubleValue() <= bar.getMin() + range * EDGE_FRACTION) {
+                            atTop.run();
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    /**
+     * @return The item in the first visible cell, or null if nothing is shown
+     */
+    public static <T> T firstVisibleItem(ListView<T> listView) {
+        if (listView.lookup(".virtual-flow") instanceof VirtualFlow<?> flow) {
+            if (flow.getFirstVisibleCell() instanceof ListCell<?> cell && !cell.isEmpty()) {
+                int index = cell.getIndex();
+                if (index >= 0 && index < listView.getItems().size()) {
+                    return listView.getItems().get(index);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Scrolls so that {@code item} is the first visible row again, e.g. after rows above it changed.
+     */
+    public static <T> void restoreFirstVisible(ListView<T> listView, T item) {
+        if (item == null) {
+            return;
+        }
+        int index = listView.getItems().indexOf(item);
+        if (index >= 0) {
+            listView.scrollTo(index);
+        }
+    }
+}
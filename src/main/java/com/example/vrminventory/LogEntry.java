@@ -1,6 +1,14 @@
 package com.example.vrminventory;
 
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Objects;
+
 public class LogEntry {
+    // Oldest first; entries without a timestamp sort before all others
+    public static final Comparator<LogEntry> BY_TIMESTAMP =
+            Comparator.comparing(LogEntry::getTimestamp, Comparator.nullsFirst(Comparator.naturalOrder()));
+
     private String branch;
     private String date;
     private String time;
@@ -9,11 +17,22 @@ public class LogEntry {
     private int quantity;
     private String description;
 
+    // Sheet row the entry was read from; identifies the entry across refreshes
+    private int row;
+
+    // Date and time as decoded from the sheet; date and time above are their display form
+    private LocalDateTime timestamp;
+
     // Additional fields for item details
     private String itemName;
     private String itemCategory;
     private double itemPrice;
 
+    // Display strings, formatted on first use and reused by the list cells
+    private String skuText;
+    private String quantityText;
+    private String descriptionPreview;
+
     public LogEntry(String branch, String date, String time, String activity, int sku, int quantity, String description) {
         this.branch = branch;
         this.date = date;
@@ -65,6 +84,7 @@ public class LogEntry {
 
     public void setSku(int sku) {
         this.sku = sku;
+        this.skuText = null;
     }
 
     public int getQuantity() {
@@ -73,6 +93,7 @@ public class LogEntry {
 
     public void setQuantity(int quantity) {
         this.quantity = quantity;
+        this.quantityText = null;
     }
 
     public String getDescription() {
@@ -81,6 +102,23 @@ public class LogEntry {
 
     public void setDescription(String description) {
         this.description = description;
+        this.descriptionPreview = null;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public void setRow(int row) {
+        this.row = row;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(LocalDateTime timestamp) {
+        this.timestamp = timestamp;
     }
 
     public String getItemName() {
@@ -107,6 +145,38 @@ public class LogEntry {
         this.itemPrice = itemPrice;
     }
 
+    // Whether another version of this entry (e.g. from a refresh) would display identically
+    public boolean sameContent(LogEntry other) {
+        return row == other.row && sku == other.sku && quantity == other.quantity
+                && Objects.equals(branch, other.branch) && Objects.equals(date, other.date)
+                && Objects.equals(time, other.time) && Objects.equals(activity, other.activity)
+                && Objects.equals(description, other.description)
+                && Objects.equals(itemName, other.itemName);
+    }
+
+    // Cached display strings
+    public String getSkuText() {
+        if (skuText == null) {
+            skuText = String.valueOf(sku);
+        }
+        return skuText;
+    }
+
+    public String getQuantityText() {
+        if (quantityText == null) {
+            quantityText = String.valueOf(quantity);
+        }
+        return quantityText;
+    }
+
+    // Description truncated to 20 characters for the list columns
+    public String getDescriptionPreview() {
+        if (descriptionPreview == null && description != null) {
+            descriptionPreview = description.length() > 20 ? description.substring(0, 20) + "..." : description;
+        }
+        return descriptionPreview;
+    }
+
     @Override
     public String toString() {
         return branch + " | " + date + " | " + time + " | " + activity + " | SKU: " + sku + " | Qty: " + quantity;
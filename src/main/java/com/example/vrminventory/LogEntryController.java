@@ -1,14 +1,12 @@
 package com.example.vrminventory;
 
+import javafx.animation.PauseTransition;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.concurrent.Task;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.geometry.Insets;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.ColumnConstraints;
 import javafx.scene.layout.GridPane;
@@ -19,6 +17,7 @@ import javafx.stage.Modality;
 import javafx.stage.Stage;
 import javafx.stage.StageStyle;
 import javafx.util.Callback;
+import javafx.util.Duration;
 
 import java.io.IOException;
 import java.security.GeneralSecurityException;
@@ -27,7 +26,6 @@ import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
@@ -35,7 +33,7 @@ public class LogEntryController {
     // Constants
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("MM/dd/yyyy");
     private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm:ss");
-    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(2);
+    private static final ExecutorService EXECUTOR = TunableThreadPool.newFixedThreadPool(Config.WORKER_THREADS);
 
 
     // Lists
@@ -46,7 +44,7 @@ public class LogEntryController {
     private static final List<String> ASC_DESC_FILTERS = List.of("Ascending", "Descending");
 
     // Fields
-    private GoogleSheetsService sheetsService;
+    private volatile GoogleSheetsService sheetsService; // set once the shared service has started
     private List<InventoryItem> itemList;
     private List<InventoryItem> filteredItemList;
     private BST skuBST;
@@ -67,18 +65,25 @@ public class LogEntryController {
     @FXML private ComboBox<String> typeFilterComboBox;
     @FXML private ComboBox<String> ascOrDescComboBox;
     @FXML private TextField descriptionField; // Added for description input
+    @FXML private CheckBox scanModeCheckBox;
+    @FXML private Label cartLabel;
+    @FXML private Button enterButton;
+    @FXML private Button checkoutButton;
+    @FXML private Button clearCartButton;
 
     private ObservableList<InventoryItem> observableItemList;
     private String currentBranch = "Branch1"; // Default branch
+    private long refreshGeneration; // FX thread only
+    private long streamedGeneration = -1; // refresh whose rows are being shown as they arrive
+    private PauseTransition reconcileDelay; // FX thread only
+    private InventoryCatalog catalog; // SKU index of itemList, null while a load is streaming in
+
+    // Rapid scan mode: scanned SKUs and their quantities, in scan order
+    private final Map<Integer, Integer> cart = new LinkedHashMap<>();
 
     public LogEntryController() {
-        try {
-            // Initialize Google Sheets service
-            sheetsService = new GoogleSheetsService();
-        } catch (GeneralSecurityException | IOException e) {
-            System.err.println("Failed to initialize Google Sheets service: " + e.getMessage());
-            e.printStackTrace();
-        }
+        // Sign-in runs in the background; refreshData waits for it off the FX thread
+        GoogleSheetsService.startAsync();
     }
 
     @FXML
@@ -98,12 +103,7 @@ public class LogEntryController {
             ascOrDescComboBox.setValue("Ascending");
             applyFilters();
 
-            // Check if we're coming from login
-            String loginBranch = LoginController.getCurrentBranch();
-            if (loginBranch != null && !loginBranch.isEmpty()) {
-                setAuthenticatedBranch(loginBranch);
-                mainLabel.setText(loginBranch.toUpperCase() + " Inventory List");
-            }
+            // The branch, and with it the data, is set by setAuthenticatedBranch when the screen is shown
 
         } catch (Exception e) {
             statusLabel.setText("Initialization error: " + e.getMessage());
@@ -111,56 +111,100 @@ public class LogEntryController {
         }
     }
 
-    private void initializeData() throws IOException {
-        if (sheetsService == null) {
-            throw new IOException("Google Sheets service is not initialized");
-        }
-
-        itemList = sheetsService.getAllInventoryItems(currentBranch);
-        filteredItemList = new ArrayList<>(itemList);
+    private void initializeData() {
+        // Filled in by refreshData once the screen knows its branch
+        itemList = new ArrayList<>();
+        filteredItemList = new ArrayList<>();
         skuBST = new BST();
-        addItemsToBST();
         observableItemList = FXCollections.observableArrayList(filteredItemList);
     }
 
-    // New method to refresh data from Google Sheets
+    // New method to refresh data from Google Sheets, off the FX thread
     public void refreshData() {
-        try {
-            // Clear cache to ensure fresh data
-            sheetsService.clearCache();
+        // Get current branch selection
+        String selectedBranch = branchComboBox.getValue();
+        if (selectedBranch != null) {
+            currentBranch = selectedBranch;
+        }
 
-            // Get current branch selection
-            String selectedBranch = branchComboBox.getValue();
-            if (selectedBranch != null) {
-                currentBranch = selectedBranch;
-            }
+        String branch = currentBranch;
+        long generation = ++refreshGeneration;
 
-            // Retrieve fresh data from Google Sheets
-            itemList = sheetsService.getAllInventoryItems(currentBranch);
+        EXECUTOR.submit(() -> {
+            try {
+                sheetsService = GoogleSheetsService.getInstance();
 
-            // Clear and rebuild the BST
-            skuBST = new BST();
-            addItemsToBST();
+                // Clear cache to ensure fresh data
+                sheetsService.clearCache(branch);
 
-            // Update filtered list
-            String searchFilter = searchFilterComboBox.getValue();
-            String searchText = searchField.getText();
+                // Retrieve fresh data from Google Sheets
+                InventoryCatalog freshCatalog = sheetsService.getCatalog(branch,
+                        batch -> Platform.runLater(() -> showItemBatch(generation, batch)));
 
-            if (searchFilter != null && !searchText.isEmpty()) {
-                // Apply search filter if active
-                handleSearch(searchText);
-            } else {
-                // Otherwise reset to full list
-                filteredItemList.clear();
-                filteredItemList.addAll(itemList);
-                applyFilters();
+                Platform.runLater(() -> {
+                    // A newer refresh (or a branch switch) has been started since
+                    if (generation != refreshGeneration) {
+                        return;
+                    }
+                    catalog = freshCatalog;
+                    itemList = freshCatalog.getItems();
+                    itemListView.setPlaceholder(new Label("No items found"));
+                    StartupMetrics.mark(StartupMetrics.FIRST_DATA);
+
+                    // Clear and rebuild the BST
+                    skuBST = new BST();
+                    addItemsToBST();
+
+                    // Update filtered list
+                    showCurrentItems();
+
+                    // Update status
+                    statusLabel.setText("Data refreshed successfully");
+                });
+            } catch (GeneralSecurityException | IOException e) {
+                Platform.runLater(() -> {
+                    itemListView.setPlaceholder(new Label("Could not load items"));
+                    statusLabel.setText("Error refreshing data: " + e.getMessage());
+                });
+                e.printStackTrace();
             }
+        });
+    }
 
-            // Update status
-            statusLabel.setText("Data refreshed successfully");
-        } catch (IOException e) {
-            statusLabel.setText("Error refreshing data: " + e.getMessage());
-            e.printStackTrace();
+    // Shows the first rows of a load while the rest are still being read. Only used when the list
+    // is empty; a refresh of rows already on screen swaps in the complete result instead.
+    private void showItemBatch(long generation, List<InventoryItem> batch) {
+        if (generation != refreshGeneration) {
+            return;
+        }
+        if (streamedGeneration != generation) {
+            if (!itemList.isEmpty()) {
+                return;
+            }
+            streamedGeneration = generation;
+            catalog = null;
+            itemList = new ArrayList<>();
+            skuBST = new BST();
+        }
+
+        itemList.addAll(batch);
+        for (InventoryItem item : batch) {
+            skuBST.insert(item.getSku());
+        }
+        showCurrentItems();
+    }
+
+    // Re-applies the active search, or the full list, and the sort
+    private void showCurrentItems() {
+        String searchFilter = searchFilterComboBox.getValue();
+        String searchText = searchField.getText();
+
+        if (searchFilter != null && !searchText.isEmpty()) {
+            // Apply search filter if active
+            handleSearch(searchText);
+        } else {
+            // Otherwise reset to full list
+            resetToFullList();
         }
     }
 
@@ -202,6 +246,14 @@ public class LogEntryController {
         typeFilterComboBox.valueProperty().addListener((obs, oldVal, newVal) -> applyFilters());
         ascOrDescComboBox.valueProperty().addListener((obs, oldVal, newVal) -> applyFilters());
 
+        // Rapid scan mode: a scanner types the SKU and presses Enter
+        scanModeCheckBox.selectedProperty().addListener((obs, oldVal, newVal) -> setScanMode(newVal));
+        SKUField.setOnAction(event -> {
+            if (scanModeCheckBox.isSelected()) {
+                addScanToCart();
+            }
+        });
+
         // Add listener for branch change
         branchComboBox.valueProperty().addListener((obs, oldVal, newVal) -> {
             if (newVal != null && !newVal.equals(oldVal)) {
@@ -215,8 +267,10 @@ public class LogEntryController {
     public void setAuthenticatedBranch(String branch) {
         if (branch != null && !branch.isEmpty()) {
             currentBranch = branch;
+            mainLabel.setText(branch.toUpperCase() + " Inventory List");
 
-            // Set branch in combo box and disable editing
+            // Set branch in combo box and disable editing; a change already triggers a refresh
+            boolean branchChanged = !branch.equals(branchComboBox.getValue());
             branchComboBox.setValue(branch);
             branchComboBox.setDisable(true);
 
@@ -229,7 +283,9 @@ public class LogEntryController {
             }
 
             // Refresh data for the selected branch
-            refreshData();
+            if (!branchChanged) {
+                refreshData();
+            }
         }
     }
 
@@ -275,6 +331,7 @@ public class LogEntryController {
 
         // Populate the ListView
         itemListView.setItems(observableItemList);
+        itemListView.setPlaceholder(new Label("Loading items..."));
     }
 
     private GridPane createHeaderGridPane() {
@@ -355,6 +412,11 @@ public class LogEntryController {
                 // Ensure the label doesn't get clipped
                 categoryLabel.setMinHeight(Label.USE_COMPUTED_SIZE);
                 categoryLabel.setPrefHeight(Label.USE_COMPUTED_SIZE);
+
+                // The graphic stays attached for the cell's lifetime; the cell height grows with content
+                setPrefHeight(USE_COMPUTED_SIZE);
+                setGraphic(gridPane);
+                gridPane.setVisible(false);
             }
 
             @Override
@@ -363,18 +425,16 @@ public class LogEntryController {
 
                 if (empty || item == null) {
                     setText(null);
-                    setGraphic(null);
+                    // Hide the row instead of detaching it so the graphic isn't re-styled on reuse
+                    gridPane.setVisible(false);
                 } else {
-                    // Update labels with item data
-                    skuLabel.setText(String.valueOf(item.getSku()));
+                    // Update labels with the item's cached display strings
+                    skuLabel.setText(item.getSkuText());
                     nameLabel.setText(item.getName());
                     categoryLabel.setText(item.getCategory());
-                    priceLabel.setText(String.format("₱%.2f", item.getPrice()));
-                    quantityLabel.setText(String.valueOf(item.getQuantity()));
-
-                    // Set the cell height to grow as needed based on content
-                    setPrefHeight(USE_COMPUTED_SIZE);
-                    setGraphic(gridPane);
+                    priceLabel.setText(item.getPriceText());
+                    quantityLabel.setText(item.getQuantityText());
+                    gridPane.setVisible(true);
                 }
             }
         };
@@ -469,9 +529,10 @@ public class LogEntryController {
             addDetailRow(grid, "Name:", item.getName(), 2);
             addDetailRow(grid, "Category:", item.getCategory(), 3);
             addDetailRow(grid, "Price:", String.format("₱%.2f", item.getPrice()), 4);
-            addDetailRow(grid, "Activity:", activity, 5);
-            addDetailRow(grid, "Quantity:", String.valueOf(quantity), 6);
-            addDetailRow(grid, "Description:", description, 7);
+            addDetailRow(grid, "In Stock:", stockText(branch, sku, activity, quantity), 5);
+            addDetailRow(grid, "Activity:", activity, 6);
+            addDetailRow(grid, "Quantity:", String.valueOf(quantity), 7);
+            addDetailRow(grid, "Description:", description, 8);
 
             // Add the grid to dialog pane
             confirmationAlert.getDialogPane().setContent(grid);
@@ -490,6 +551,16 @@ public class LogEntryController {
         }
     }
 
+    // Current stock from the ledger, and what it will be after the entry
+    private String stockText(String branch, int sku, String activity, int quantity) {
+        Integer stock = sheetsService != null ? sheetsService.getStockLedger().getStock(branch, sku) : null;
+        if (stock == null) {
+            return "Unknown";
+        }
+        int change = StockLedger.quantityChange(branch, activityCode(branch, activity), quantity);
+        return stock + " (" + (stock + change) + " after this entry)";
+    }
+
     // Helper method to add detail rows to the grid
     private void addDetailRow(GridPane grid, String label, String value, int row) {
         grid.add(new Label(label), 0, row);
@@ -499,6 +570,9 @@ public class LogEntryController {
     }
 
     private InventoryItem findItemBySku(int sku) {
+        if (catalog != null) {
+            return catalog.findBySku(sku);
+        }
         for (InventoryItem item : itemList) {
             if (item.getSku() == sku) {
                 return item;
@@ -520,52 +594,26 @@ public class LogEntryController {
             @Override
             protected Integer call() throws Exception {
                 // Prepare data
-                List<Object> dataToWrite;
-
-                if (branch.equals("Warehouse")) {
-                    int activityCode = "Supply".equals(activity) ? 1 : 2; // 1 for Supply, 2 for Transfer-Out
-                    dataToWrite = Arrays.asList(
-                            LocalDate.now().format(DATE_FORMATTER),
-                            LocalTime.now().format(TIME_FORMATTER),
-                            activityCode,
-                            sku,
-                            quantity,
-                            description
-                    );
-                } else {
-                    int activityCode = switch (activity) {
-                        case "Sale" -> 1;
-                        case "Transfer-In" -> 2;
-                        case "Transfer-Out" -> 3;
-                        case "Return/Refund" -> 4;
-                        default -> throw new IllegalArgumentException("Invalid activity");
-                    };
-                    dataToWrite = Arrays.asList(
-                            LocalDate.now().format(DATE_FORMATTER),
-                            LocalTime.now().format(TIME_FORMATTER),
-                            activityCode,
-                            sku,
-                            quantity,
-                            description
-                    );
-                }
+                List<Object> dataToWrite = createLogRow(branch, activity, sku, quantity, description);
 
-                // Find next row and write data
+                // Append to the sheet; the row is reserved server-side so concurrent terminals don't collide
                 String branchPrefix = branch + "!";
-                String range = sheetsService.findNextRow(branchPrefix);
-                return sheetsService.writeData(range, dataToWrite);
+                return GoogleSheetsService.getInstance().appendRow(branchPrefix, dataToWrite);
             }
         };
 
         task.setOnSucceeded(event -> {
             processingAlert.close();
-            int cellsUpdated = task.getValue();
+            int writtenRow = task.getValue();
             Alert resultAlert = new Alert(Alert.AlertType.INFORMATION);
             resultAlert.setTitle("Log Entry Result");
             resultAlert.setHeaderText(null);
-            resultAlert.setContentText(cellsUpdated > 0 ? "Log entry added successfully." : "Failed to update log.");
+            resultAlert.setContentText(writtenRow > 0 ? "Log entry added successfully." : "Failed to update log.");
             resultAlert.show();
-            refreshData(); // Refresh data after adding log
+            if (writtenRow > 0) {
+                int change = StockLedger.quantityChange(branch, activityCode(branch, activity), quantity);
+                applyLogEntries(branch, Map.of(sku, change));
+            }
             clearFields();
         });
 
@@ -584,79 +632,225 @@ public class LogEntryController {
 
 
 
-    @FXML
-    protected void onBackButtonClick() throws IOException {
+    // Applies confirmed log entries to the cached catalog and the list, instead of reading the sheet again
+    private void applyLogEntries(String branch, Map<Integer, Integer> deltas) {
+        InventoryCatalog updated = sheetsService.applyQuantityChanges(branch, deltas);
+        if (updated == null) {
+            // Nothing cached to apply it to (a refresh is under way); read the sheet instead
+            refreshData();
+            return;
+        }
 
-        Stage loadingStage = new Stage();
-        showLoadingAlert(loadingStage, "Loading Main View...");
-        Stage currentStage = (Stage) entryVBox.getScene().getWindow();
-        currentStage.setOnCloseRequest(event -> event.consume()); // Prevent closing
-        currentStage.getScene().getRoot().setDisable(true);
-        loadingStage.show();
+        if (branch.equals(currentBranch)) {
+            ++refreshGeneration; // a refresh still in flight may predate the entries
+            catalog = updated;
+            itemList = updated.getItems();
+            showCurrentItems();
+        }
+        scheduleReconcile();
+    }
 
-        // Load in BG
-        EXECUTOR.submit(()-> {
-            try {
-                FXMLLoader loader = new FXMLLoader(getClass().getResource("main-view.fxml"));
-                Parent root = loader.load();
-
-                MainViewController mainViewController = loader.getController();
-                mainViewController.setBranch(currentBranch);
-
-                //Update UI
-                Platform.runLater(()-> {
-                    try {
-                        loadingStage.close();
-                        currentStage.setOnCloseRequest(event -> {}); // Reset
-                        currentStage.getScene().getRoot().setDisable(false);
-
-                        Stage mainStage = new Stage();
-                        mainStage.setTitle("VRM Inventory - " + currentBranch);
-                        mainStage.setScene(new Scene(root, 1366, 768));
-                        mainStage.setMaximized(false);
-                        mainStage.setResizable(false);
-                        mainStage.setOnCloseRequest(e -> {
-                            mainViewController.shutdown();
-                            Platform.exit();
-                            System.exit(0);
-                        });
-                        currentStage.close();
-                        mainStage.show();
-
-
-
-                    } catch (Exception e) {
-                        loadingStage.close();
-                        currentStage.setOnCloseRequest(event -> {}); // Reset close handler
-                        currentStage.getScene().getRoot().setDisable(false);
-                        showErrorAlert("Failed to load main view screen", e.getMessage());
-                        e.printStackTrace();
+    // Reads the sheet again once entries have paused, picking up anything the local apply can't
+    // know about, like entries from other terminals
+    private void scheduleReconcile() {
+        if (reconcileDelay == null) {
+            reconcileDelay = new PauseTransition();
+            reconcileDelay.setOnFinished(event -> refreshData());
+        }
+        reconcileDelay.setDuration(Duration.seconds(Config.RECONCILE_DELAY_SECONDS.get()));
+        reconcileDelay.playFromStart();
+    }
 
-                    }
+    // One log row: date, time, activity code, SKU, quantity and description
+    private static List<Object> createLogRow(String branch, String activity, int sku, int quantity, String description) {
+        return Arrays.asList(
+                LocalDate.now().format(DATE_FORMATTER),
+                LocalTime.now().format(TIME_FORMATTER),
+                activityCode(branch, activity),
+                sku,
+                quantity,
+                description
+        );
+    }
 
-                });
+    // The code an activity is logged with at the branch
+    private static int activityCode(String branch, String activity) {
+        if (branch.equals("Warehouse")) {
+            return "Supply".equals(activity) ? 1 : 2; // 1 for Supply, 2 for Transfer-Out
+        }
+        return switch (activity) {
+            case "Sale" -> 1;
+            case "Transfer-In" -> 2;
+            case "Transfer-Out" -> 3;
+            case "Return/Refund" -> 4;
+            default -> throw new IllegalArgumentException("Invalid activity");
+        };
+    }
 
-            } catch (IOException e) {
-                Platform.runLater(() -> {
-                    loadingStage.close();
+    // Switches between entering one log at a time and scanning items into a cart
+    private void setScanMode(boolean scanning) {
+        enterButton.setVisible(!scanning);
+        enterButton.setManaged(!scanning);
+        checkoutButton.setVisible(scanning);
+        checkoutButton.setManaged(scanning);
+        clearCartButton.setVisible(scanning);
+        clearCartButton.setManaged(scanning);
+        cartLabel.setVisible(scanning);
+        SKUField.setPromptText(scanning ? "Scan items here..." : "Enter SKU here...");
+        updateCartLabel(null);
+        SKUField.requestFocus();
+    }
 
-                    // Re-enable main window
-                    currentStage.setOnCloseRequest(event -> {}); // Reset close handler
-                    currentStage.getScene().getRoot().setDisable(false);
+    // Adds the scanned SKU to the cart, checked against the SKU index without touching the network
+    private void addScanToCart() {
+        String text = SKUField.getText().trim();
+        SKUField.clear();
+        if (text.isEmpty()) {
+            return;
+        }
 
-                    // Show error alert
-                    showErrorAlert("Failed to load main view screen", e.getMessage());
-                });
+        int sku;
+        try {
+            sku = Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            statusLabel.setText("Invalid SKU: " + text);
+            return;
+        }
+        InventoryItem item = findItemBySku(sku);
+        if (item == null) {
+            statusLabel.setText("SKU " + sku + " not found in inventory.");
+            return;
+        }
 
-                e.printStackTrace();
+        int quantity = quantitySpinner.getValue();
+        cart.merge(sku, quantity, Integer::sum);
+        statusLabel.setText("Added " + item.getName() + " x" + quantity);
+        updateCartLabel(item);
+    }
+
+    private void updateCartLabel(InventoryItem lastScanned) {
+        if (cart.isEmpty()) {
+            cartLabel.setText("Cart: empty");
+        } else {
+            int units = cart.values().stream().mapToInt(Integer::intValue).sum();
+            String text = "Cart: " + cart.size() + " items, " + units + " units";
+            if (lastScanned != null) {
+                text += "  |  Last: " + lastScanned.getName() + " x" + cart.get(lastScanned.getSku());
             }
+            cartLabel.setText(text);
+        }
+        // Leaving scan mode with a full cart would lose the scans
+        scanModeCheckBox.setDisable(!cart.isEmpty());
+    }
+
+    @FXML
+    protected void onClearCartButtonClick() {
+        cart.clear();
+        updateCartLabel(null);
+        statusLabel.setText("Cart cleared");
+        SKUField.requestFocus();
+    }
+
+    @FXML
+    protected void onCheckoutButtonClick() {
+        if (cart.isEmpty()) {
+            statusLabel.setText("Cart is empty");
+            return;
+        }
+        String branch = branchComboBox.getValue();
+        String activity = activityComboBox.getValue();
+        if (branch == null || activity == null) {
+            statusLabel.setText("Please select branch and activity");
+            return;
+        }
+        String description = descriptionField != null ? descriptionField.getText() : "";
+
+        // One confirmation for the whole cart
+        Alert confirmationAlert = new Alert(Alert.AlertType.CONFIRMATION);
+        confirmationAlert.setTitle("Confirm Checkout");
+        confirmationAlert.setHeaderText("Please confirm " + cart.size() + " log entries:");
+
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(10);
+        grid.setPadding(new Insets(20, 150, 10, 10));
+        addDetailRow(grid, "Branch:", branch, 0);
+        addDetailRow(grid, "Activity:", activity, 1);
+        addDetailRow(grid, "Description:", description, 2);
+        int row = 3;
+        for (Map.Entry<Integer, Integer> line : cart.entrySet()) {
+            InventoryItem item = findItemBySku(line.getKey());
+            String name = item != null ? item.getName() : "";
+            addDetailRow(grid, String.valueOf(line.getKey()), name + " x" + line.getValue(), row++);
+        }
+
+        ScrollPane scrollPane = new ScrollPane(grid);
+        scrollPane.setFitToWidth(true);
+        scrollPane.setPrefViewportHeight(Math.min(400, 30.0 * row));
+        confirmationAlert.getDialogPane().setContent(scrollPane);
+
+        Optional<ButtonType> result = confirmationAlert.showAndWait();
+        if (result.isPresent() && result.get() == ButtonType.OK) {
+            confirmCart(branch, activity, description, new LinkedHashMap<>(cart));
+        }
+    }
 
+    // Writes the whole cart with one append
+    private void confirmCart(String branch, String activity, String description, Map<Integer, Integer> lines) {
+        checkoutButton.setDisable(true);
+        statusLabel.setText("Processing " + lines.size() + " log entries...");
 
+        Task<int[]> task = new Task<>() {
+            @Override
+            protected int[] call() throws Exception {
+                List<List<Object>> rows = new ArrayList<>(lines.size());
+                for (Map.Entry<Integer, Integer> line : lines.entrySet()) {
+                    rows.add(createLogRow(branch, activity, line.getKey(), line.getValue(), description));
+                }
+                return GoogleSheetsService.getInstance().appendRows(branch + "!", rows);
+            }
+        };
+
+        task.setOnSucceeded(event -> {
+            checkoutButton.setDisable(false);
+            int activityCode = activityCode(branch, activity);
+            Map<Integer, Integer> deltas = new HashMap<>();
+            lines.forEach((sku, quantity) -> deltas.put(sku, StockLedger.quantityChange(branch, activityCode, quantity)));
+            applyLogEntries(branch, deltas);
+
+            // Scans made while the cart was being written stay for the next checkout
+            lines.forEach((sku, quantity) -> cart.computeIfPresent(sku, (key, inCart) ->
+                    inCart > quantity ? inCart - quantity : null));
+            updateCartLabel(null);
+            if (descriptionField != null) {
+                descriptionField.clear();
+            }
+            statusLabel.setText("Checkout complete: " + lines.size() + " log entries added");
+            SKUField.requestFocus();
         });
 
+        task.setOnFailed(event -> {
+            checkoutButton.setDisable(false);
+            Alert failAlert = new Alert(Alert.AlertType.ERROR);
+            failAlert.setTitle("Checkout Failed");
+            failAlert.setHeaderText(null);
+            failAlert.setContentText("Failed to update log: " + task.getException().getMessage()
+                    + "\nThe cart has been kept.");
+            failAlert.show();
+        });
 
+        // Start the task in a background thread
+        new Thread(task).start();
+    }
 
+    @FXML
+    protected void onBackButtonClick() {
+        String branch = currentBranch;
+        SceneNavigator.<MainViewController>navigate(SceneNavigator.Screen.MAIN_VIEW,
+                "VRM Inventory - " + branch, "Loading Main View...",
+                controller -> controller.setBranch(branch));
     }
+
     private void showErrorAlert(String header, String message) {
         Alert errorAlert = new Alert(Alert.AlertType.ERROR);
         errorAlert.setTitle("Error");
@@ -666,30 +860,6 @@ public class LogEntryController {
         errorAlert.initStyle(StageStyle.UNDECORATED);       // Remove decorations
         errorAlert.showAndWait();
     }
-    private void showLoadingAlert(Stage loadingStage, String message) {
-        loadingStage.initModality(Modality.APPLICATION_MODAL);
-        loadingStage.initStyle(StageStyle.UNDECORATED);
-        loadingStage.setResizable(false);
-
-        // Create the loading alert content
-        VBox loadingBox = new VBox(10);
-        loadingBox.setAlignment(javafx.geometry.Pos.CENTER);
-        loadingBox.setPadding(new javafx.geometry.Insets(20));
-        loadingBox.setStyle("-fx-background-color: white; -fx-border-color: #cccccc; -fx-border-width: 1px;");
-
-        Label loadingLabel = new Label(message);
-        loadingLabel.setStyle("-fx-font-size: 14px;");
-
-        ProgressIndicator progress = new ProgressIndicator();
-        progress.setProgress(-1.0f); // Indeterminate progress
-
-        loadingBox.getChildren().addAll(loadingLabel, progress);
-
-        // Set scene for loading stage
-        Scene loadingScene = new Scene(loadingBox, 400, 150);
-        loadingStage.setScene(loadingScene);
-    }
-
 
     private void clearFields() {
         SKUField.clear();
@@ -788,24 +958,7 @@ public class LogEntryController {
     }
 
     private void updateObservableList() {
-        observableItemList.setAll(filteredItemList);
-    }
-
-    // In LogEntryController.java
-    public void shutdown() {
-        // Shutdown this controller's executor
-        if (!EXECUTOR.isShutdown()) {
-            EXECUTOR.shutdownNow(); // Force immediate shutdown
-        }
-
-        // Also try to shutdown any executor in the Google Sheets service
-        // This is important as HTTP client pools might still be running
-        if (sheetsService != null && sheetsService.getSheetsService() != null) {
-            try {
-                sheetsService.getSheetsService().getRequestFactory().getTransport().shutdown();
-            } catch (Exception e) {
-                System.err.println("Error shutting down HTTP transport: " + e.getMessage());
-            }
-        }
+        // Apply only what changed so the ListView keeps the cells of unchanged rows
+        ListDiff.apply(observableItemList, filteredItemList, InventoryItem::getSku, InventoryItem::sameContent);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,180 @@
+package com.example.vrminventory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Reads the whole logs once, then follows the rows added to them, handing every row to each
+ * registered consumer exactly once. Shared by the engines that derive their state from the full
+ * history, so loading any of them reads the history once for all.
+ * <p>
+ * The catalogs of the logs are read first, for the consumers that look items up. The logs are then
+ * read one after another by a {@link ChunkedRangeReader}, in windows of rows fetched a few at a
+ * time, and each row goes to the consumers registered for its log. The service's
+ * {@link ChangeFeed} is followed through one subscription from the point before the read, so rows
+ * written meanwhile aren't missed, and rows read both ways are handed over once. Other terminals'
+ * rows arrive through the change poller, which watches each log from below the rows read.
+ */
+final class LogFollower {
+    private static final String LABEL = "log history";
+
+    /**
+     * Receives log rows: date, time, activity code, SKU, quantity and description.
+     */
+    @FunctionalInterface
+    interface RowConsumer {
+        /**
+         * Called on the reading thread for the history, then on the feed thread for new rows.
+         *
+         * @param decoder Decodes the cells and counts bad rows
+         * @param row The cells of the row, never empty; only valid during the call
+         */
+        void accept(RowDecoder decoder, String branch, int rowNumber, List<Object> row);
+    }
+
+    private record Follower(List<String> branches, RowConsumer consumer, Runnable onReset) {
+    }
+
+    private final GoogleSheetsService sheetsService;
+    private final List<Follower> followers = new CopyOnWriteArrayList<>();
+
+    private final Object loadLock = new Object();
+    private volatile ChangeFeed.Subscription subscription; // null until loaded, and after a reset
+
+    LogFollower(GoogleSheetsService sheetsService) {
+        this.sheetsService = sheetsService;
+    }
+
+    /**
+     * Adds a consumer of the rows of some logs. Consumers are registered before the first load.
+     *
+     * @param onReset Called on the feed thread when rows may have been missed; everything derived
+     *                from the rows should be dropped, as the next load reads the logs again
+     */
+    void register(List<String> branches, RowConsumer consumer, Runnable onReset) {
+        if (subscription != null) {
+            throw new IllegalStateException("Log history already loaded");
+        }
+        followers.add(new Follower(List.copyOf(branches), consumer, onReset));
+    }
+
+    boolean isLoaded() {
+        return subscription != null;
+    }
+
+    /**
+     * Reads the logs for every consumer and subscribes to their new rows, unless already done.
+     * Belongs on a background thread.
+     *
+     * @throws IOException If an API error occurs
+     */
+    void load() throws IOException {
+        synchronized (loadLock) {
+            if (subscription != null) {
+                return;
+            }
+            Set<String> branches = new LinkedHashSet<>();
+            followers.forEach(follower -> branches.addAll(follower.branches()));
+
+            // Item names, categories and prices come from the catalogs
+            ScreenBootstrap bootstrap = new ScreenBootstrap(sheetsService, LABEL);
+            branches.forEach(bootstrap::catalog);
+            bootstrap.load();
+
+            subscription = follow(new ArrayList<>(branches));
+        }
+    }
+
+    void shutdown() {
+        ChangeFeed.Subscription current = subscription;
+        subscription = null;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    private ChangeFeed.Subscription follow(List<String> branches) throws IOException {
+        ChangeFeed feed = sheetsService.getChangeFeed();
+        String resumeToken = feed.getResumeToken();
+        Map<String, BitSet> handedOver = new HashMap<>();
+
+        int firstRow = Config.LOG_START_ROW.get();
+        int[] lastRows = new int[branches.size()];
+        long started = System.nanoTime();
+        int rowsRead = 0;
+        for (int i = 0; i < branches.size(); i++) {
+            String branch = branches.get(i);
+            int index = i;
+            Map<Follower, RowDecoder> decoders = decodersFor(branch);
+            rowsRead += ChunkedRangeReader.read(sheetsService, branch, firstRow, "I", "N", (row, rowIndex) -> {
+                lastRows[index] = firstRow + rowIndex;
+                handOver(handedOver, decoders, branch, firstRow + rowIndex, row);
+            });
+            decoders.values().forEach(RowDecoder::report);
+        }
+        Logger.log(Logger.Level.INFO, LABEL, "Read " + rowsRead + " log rows for " + followers.size()
+                + " consumers in " + (System.nanoTime() - started) / 1_000_000 + " ms");
+
+        for (int i = 0; i < branches.size(); i++) {
+            PagedLogSource source = new PagedLogSource(sheetsService, branches.get(i), firstRow, "I", "N",
+                    (decoder, row, rowNumber) -> null);
+            source.skipTo(Math.max(lastRows[i] + 1, firstRow));
+            sheetsService.getChangePoller().watch(source);
+        }
+
+        return feed.subscribe(resumeToken, new ChangeFeed.Listener() {
+            @Override
+            public void onChanges(List<ChangeFeed.Change> changes) {
+                for (ChangeFeed.Change change : changes) {
+                    if (change.kind() == ChangeFeed.Kind.INSERT && change.row() > 0
+                            && branches.contains(change.sheetName())) {
+                        Map<Follower, RowDecoder> decoders = decodersFor(change.sheetName());
+                        handOver(handedOver, decoders, change.sheetName(), change.row(), change.values());
+                        decoders.values().forEach(RowDecoder::report);
+                    }
+                }
+            }
+
+            @Override
+            public void onReset() {
+                // Rows may have been missed; the next load reads the logs again
+                shutdown();
+                followers.forEach(follower -> follower.onReset().run());
+            }
+        });
+    }
+
+    // A decoder for each consumer of a log, so each counts its own bad rows
+    private Map<Follower, RowDecoder> decodersFor(String branch) {
+        Map<Follower, RowDecoder> decoders = new LinkedHashMap<>();
+        for (Follower follower : followers) {
+            if (follower.branches().contains(branch)) {
+                decoders.put(follower, new RowDecoder(branch));
+            }
+        }
+        return decoders;
+    }
+
+    private static void handOver(Map<String, BitSet> handedOver, Map<Follower, RowDecoder> decoders,
+                                 String branch, int rowNumber, List<Object> row) {
+        if (row.isEmpty()) {
+            return;
+        }
+        synchronized (handedOver) {
+            BitSet rows = handedOver.computeIfAbsent(branch, name -> new BitSet());
+            if (rows.get(rowNumber)) {
+                return;
+            }
+            rows.set(rowNumber);
+        }
+        decoders.forEach((follower, decoder) -> follower.consumer().accept(decoder, branch, rowNumber, row));
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.vrminventory;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * A combination of conditions on log entries, run by a {@link LogQueryEngine}.
+ * <p>
+ * Every condition set must hold. Conditions are set with the fluent methods, or parsed from the
+ * admin search field by {@link #parse(String)}, e.g.
+ * {@code branch:Branch1 activity:Sale sku:100-199 date:10/01/2026-10/19/2026 qty:>5 broken screen}.
+ */
+public class LogQuery {
+    private static final int DEFAULT_LIMIT = 1000;
+
+    private final Set<String> branches = new HashSet<>();
+    private final Set<String> activities = new HashSet<>();
+    private Integer minSku;
+    private Integer maxSku;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private int minQuantity = Integer.MIN_VALUE;
+    private int maxQuantity = Integer.MAX_VALUE;
+    private final List<String> words = new ArrayList<>();
+    private int limit = DEFAULT_LIMIT;
+
+    /**
+     * Only entries of a branch; may be given more than once.
+     */
+    public LogQuery branch(String branch) {
+        branches.add(branch.toLowerCase(Locale.ROOT));
+        return this;
+    }
+
+    /**
+     * Only entries of an activity (e.g., "Transfer-In"); may be given more than once.
+     */
+    public LogQuery activity(String activity) {
+        activities.add(activity.toLowerCase(Locale.ROOT));
+        return this;
+    }
+
+    public LogQuery skuBetween(int min, int max) {
+        minSku = min;
+        maxSku = max;
+        return this;
+    }
+
+    /**
+     * Only entries from {@code from} to {@code to}, both included; either may be null for no bound.
+     */
+    public LogQuery between(LocalDateTime from, LocalDateTime to) {
+        this.from = from;
+        this.to = to;
+        return this;
+    }
+
+    public LogQuery quantityBetween(int min, int max) {
+        minQuantity = min;
+        maxQuantity = max;
+        return this;
+    }
+
+    /**
+     * Only entries whose description has a word starting with each of the words of {@code text}.
+     */
+    public LogQuery descriptionHas(String text) {
+        words.addAll(wordsOf(text));
+        return this;
+    }
+
+    /**
+     * The most entries to return, newest first.
+     */
+    public LogQuery limit(int limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    public boolean hasSkuRange() {
+        return minSku != null;
+    }
+
+    public int getMinSku() {
+        return minSku;
+    }
+
+    public int getMaxSku() {
+        return maxSku;
+    }
+
+    public boolean hasTimeRange() {
+        return from != null || to != null;
+    }
+
+    public LocalDateTime getFrom() {
+        return from != null ? from : LocalDateTime.MIN;
+    }
+
+    public LocalDateTime getTo() {
+        return to != null ? to : LocalDateTime.MAX;
+    }
+
+    public List<String> getWords() {
+        return Collections.unmodifiableList(words);
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return Whether an entry meets every condition
+     */
+    public boolean matches(LogEntry entry) {
+        if (!branches.isEmpty() && !branches.contains(entry.getBranch().toLowerCase(Locale.ROOT))) {
+            return false;
+        }
+        if (!activities.isEmpty() && !activities.contains(entry.getActivity().toLowerCase(Locale.ROOT))) {
+            return false;
+        }
+        if (minSku != null && (entry.getSku() < minSku || entry.getSku() > maxSku)) {
+            return false;
+        }
+        if (hasTimeRange() && (entry.getTimestamp() == null || entry.getTimestamp().isBefore(getFrom())
+                || entry.getTimestamp().isAfter(getTo()))) {
+            return false;
+        }
+        if (entry.getQuantity() < minQuantity || entry.getQuantity() > maxQuantity) {
+            return false;
+        }
+        if (!words.isEmpty()) {
+            String description = entry.getDescription() != null ? entry.getDescription().toLowerCase(Locale.ROOT) : "";
+            for (String word : words) {
+                if (!hasWordStartingWith(description, word)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    // Whether a prefix occurs at the start of a word, as wordsOf splits them, without splitting the text
+    private static boolean hasWordStartingWith(String text, String prefix) {
+        for (int i = text.indexOf(prefix); i >= 0; i = text.indexOf(prefix, i + 1)) {
+            if (i == 0 || !Character.isLetterOrDigit(text.charAt(i - 1))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parses the admin search syntax: {@code branch:}, {@code activity:}, {@code sku:} (a number or
+     * a range such as 100-199), {@code date:} (a day or a range of days, M/d/yyyy),
+     * {@code qty:} (a number, a range, or {@code >n} / {@code <n}), and plain words, matched
+     * against the description.
+     *
+     * @throws IllegalArgumentException If a condition can't be read
+     */
+    public static LogQuery parse(String text) {
+        LogQuery query = new LogQuery();
+        for (String term : text.trim().split("\\s+")) {
+            if (term.isEmpty()) {
+                continue;
+            }
+            int colon = term.indexOf(':');
+            String field = colon > 0 ? term.substring(0, colon).toLowerCase(Locale.ROOT) : "";
+            String value = term.substring(colon + 1);
+            switch (field) {
+                case "branch" -> query.branch(value);
+                case "activity" -> query.activity(value);
+                case "sku" -> {
+                    int[] range = parseRange(term, value);
+                    query.skuBetween(range[0], range[1]);
+                }
+                case "qty", "quantity" -> {
+                    int[] range = parseRange(term, value);
+                    query.quantityBetween(range[0], range[1]);
+                }
+                case "date" -> {
+                    String[] days = value.split("(?<=\\d{4})-", 2); // a range splits after the first year
+                    LocalDate first = parseDate(term, days[0]);
+                    LocalDate last = days.length > 1 ? parseDate(term, days[1]) : first;
+                    query.between(first.atStartOfDay(), last.atTime(23, 59, 59));
+                }
+                default -> query.descriptionHas(term);
+            }
+        }
+        return query;
+    }
+
+    private static int[] parseRange(String term, String value) {
+        try {
+            if (value.startsWith(">")) {
+                return new int[]{Integer.parseInt(value.substring(1)) + 1, Integer.MAX_VALUE};
+            }
+            if (value.startsWith("<")) {
+                return new int[]{Integer.MIN_VALUE, Integer.parseInt(value.substring(1)) - 1};
+            }
+            int dash = value.indexOf('-', 1);
+            if (dash > 0) {
+                return new int[]{Integer.parseInt(value.substring(0, dash)), Integer.parseInt(value.substring(dash + 1))};
+            }
+            int number = Integer.parseInt(value);
+            return new int[]{number, number};
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number or range: " + term);
+        }
+    }
+
+    private static LocalDate parseDate(String term, String value) {
+        try {
+            return LocalDate.parse(value, java.time.format.DateTimeFormatter.ofPattern("M/d/yyyy"));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Not a date (M/d/yyyy): " + term);
+        }
+    }
+
+    /**
+     * @return The lowercase words of a text, as the description index splits them
+     */
+    static List<String> wordsOf(String text) {
+        List<String> result = new ArrayList<>();
+        if (text == null) {
+            return result;
+        }
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                result.add(word);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,266 @@
+package com.example.vrminventory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * Answers {@link LogQuery} questions over the logs of every branch and the warehouse.
+ * <p>
+ * The entries are kept in memory with three indexes: by SKU, by time, and by the words of the
+ * description. For each query the planner estimates how many entries every usable index would
+ * produce, stopping the count once it exceeds the best so far, and drives the query from the
+ * smallest; the other conditions are checked on those entries only. Results come newest first: a
+ * time range, or a query without a usable index, walks the time index and stops at the limit, as
+ * does an index producing a large share of all entries; fewer candidates are checked directly and
+ * the newest kept in a bounded heap.
+ * <p>
+ * The logs are read once, for every engine built from the history, and followed through the
+ * service's {@link LogFollower}.
+ */
+public class LogQueryEngine {
+    private static final List<String> SHEETS = List.of("Branch1", "Branch2", "Branch3", "Warehouse");
+
+    /**
+     * The index that drives a query.
+     */
+    public enum Index { SKU, TIME, TEXT, SCAN }
+
+    /**
+     * How a query will run.
+     *
+     * @param estimatedRows The entries the index produces, before the other conditions
+     * @param totalRows The entries held
+     */
+    public record Plan(Index index, int estimatedRows, int totalRows) {
+    }
+
+    private final GoogleSheetsService sheetsService;
+
+    // Entries by id, their position; guarded by this
+    private final List<LogEntry> entries = new ArrayList<>();
+    private final TreeMap<Integer, IntList> bySku = new TreeMap<>();
+    private final TimeIndex byTime = new TimeIndex();
+    private final TreeMap<String, IntList> byWord = new TreeMap<>();
+
+    LogQueryEngine(GoogleSheetsService sheetsService) {
+        this.sheetsService = sheetsService;
+        sheetsService.getLogFollower().register(SHEETS, this::add, this::clear);
+    }
+
+    public boolean isLoaded() {
+        return sheetsService.getLogFollower().isLoaded();
+    }
+
+    /**
+     * Reads the logs and starts following new rows, unless already done. Belongs on a background
+     * thread.
+     *
+     * @throws IOException If an API error occurs
+     */
+    public void load() throws IOException {
+        sheetsService.getLogFollower().load();
+    }
+
+    /**
+     * @return The entries meeting every condition of the query, newest first, at most its limit
+     */
+    public synchronized List<LogEntry> find(LogQuery query) {
+        Plan plan = explain(query);
+        if (plan.index() == Index.TIME) {
+            return walkNewestFirst(byTime.lowerBound(query.getFrom()), byTime.upperBound(query.getTo()), null, query);
+        }
+        if (plan.index() == Index.SCAN) {
+            return walkNewestFirst(0, byTime.size(), null, query);
+        }
+
+        BitSet candidates = new BitSet(entries.size());
+        if (plan.index() == Index.SKU) {
+            bySku.subMap(query.getMinSku(), true, query.getMaxSku(), true).values()
+                    .forEach(ids -> ids.addTo(candidates));
+        } else {
+            prefixMatches(rarestWord(query)).values().forEach(ids -> ids.addTo(candidates));
+        }
+        if (plan.estimatedRows() > query.getLimit() && plan.estimatedRows() > entries.size() / 8) {
+            // So many candidates that walking them in time order, stopping at the limit, beats collecting them all
+            return walkNewestFirst(0, byTime.size(), candidates, query);
+        }
+
+        // Keeps the newest matches up to the limit, the oldest of them on top to be replaced
+        PriorityQueue<LogEntry> newest = new PriorityQueue<>(LogEntry.BY_TIMESTAMP);
+        for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1)) {
+            LogEntry entry = entries.get(id);
+            if (query.matches(entry)) {
+                newest.add(entry);
+                if (newest.size() > query.getLimit()) {
+                    newest.poll();
+                }
+            }
+        }
+        List<LogEntry> results = new ArrayList<>(newest);
+        results.sort(LogEntry.BY_TIMESTAMP.reversed());
+        return results;
+    }
+
+    /**
+     * @return The index a query would be driven from, and how many entries it would produce
+     */
+    public synchronized Plan explain(LogQuery query) {
+        Index best = Index.SCAN;
+        int bestRows = entries.size();
+        if (query.hasSkuRange() && query.getMinSku() <= query.getMaxSku()) {
+            int rows = count(bySku.subMap(query.getMinSku(), true, query.getMaxSku(), true).values(), bestRows);
+            if (rows < bestRows) {
+                best = Index.SKU;
+                bestRows = rows;
+            }
+        }
+        if (query.hasTimeRange() && !query.getFrom().isAfter(query.getTo())) {
+            int rows = Math.max(0, byTime.upperBound(query.getTo()) - byTime.lowerBound(query.getFrom()));
+            if (rows < bestRows) {
+                best = Index.TIME;
+                bestRows = rows;
+            }
+        }
+        for (String word : query.getWords()) {
+            int rows = count(prefixMatches(word).values(), bestRows);
+            if (rows < bestRows) {
+                best = Index.TEXT;
+                bestRows = rows;
+            }
+        }
+        return new Plan(best, bestRows, entries.size());
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public void shutdown() {
+        clear();
+    }
+
+    /**
+     * @return The name of an activity code at a sheet, e.g. "Transfer-In"
+     */
+    static String activityName(int activityCode, String sheetName) {
+        if (sheetName.toLowerCase().contains("warehouse")) {
+            return switch (activityCode) {
+                case 1 -> "Supply";
+                case 2 -> "Transfer-Out";
+                default -> String.valueOf(activityCode);
+            };
+        }
+        return switch (activityCode) {
+            case 1 -> "Sale";
+            case 2 -> "Transfer-In";
+            case 3 -> "Transfer-Out";
+            case 4 -> "Return/Refund";
+            default -> String.valueOf(activityCode);
+        };
+    }
+
+    private synchronized void clear() {
+        entries.clear();
+        bySku.clear();
+        byTime.clear();
+        byWord.clear();
+    }
+
+    private synchronized void add(RowDecoder decoder, String sheetName, int rowNumber, List<Object> row) {
+        LogEntry entry = decoder.decodeLogEntry(row, 0, sheetName, LogQueryEngine::activityName);
+        if (entry == null) {
+            return;
+        }
+        entry.setRow(rowNumber);
+        InventoryItem item = sheetsService.getCachedCatalog(sheetName).findBySku(entry.getSku());
+        if (item != null) {
+            entry.setItemName(item.getName());
+            entry.setItemCategory(item.getCategory());
+            entry.setItemPrice(item.getPrice());
+        }
+
+        int id = entries.size();
+        entries.add(entry);
+        bySku.computeIfAbsent(entry.getSku(), sku -> new IntList()).add(id);
+        byTime.add(entry.getTimestamp(), id);
+        for (String word : LogQuery.wordsOf(entry.getDescription())) {
+            IntList ids = byWord.computeIfAbsent(word, w -> new IntList());
+            if (ids.size == 0 || ids.values[ids.size - 1] != id) { // a word twice in one description
+                ids.add(id);
+            }
+        }
+    }
+
+    // Checks the entries between two time index positions newest first, only the candidates if given,
+    // up to the limit
+    private List<LogEntry> walkNewestFirst(int start, int end, BitSet candidates, LogQuery query) {
+        List<LogEntry> results = new ArrayList<>();
+        for (int position = end - 1; position >= start; position--) {
+            int id = byTime.idAt(position);
+            if ((candidates == null || candidates.get(id)) && query.matches(entries.get(id))) {
+                results.add(entries.get(id));
+                if (results.size() >= query.getLimit()) {
+                    return results;
+                }
+            }
+        }
+        return results;
+    }
+
+    // The word of the query with the fewest matching entries
+    private String rarestWord(LogQuery query) {
+        String rarest = null;
+        int fewest = Integer.MAX_VALUE;
+        for (String word : query.getWords()) {
+            int rows = count(prefixMatches(word).values(), fewest);
+            if (rows < fewest) {
+                rarest = word;
+                fewest = rows;
+            }
+        }
+        return rarest;
+    }
+
+    // The indexed words starting with a prefix
+    private NavigableMap<String, IntList> prefixMatches(String prefix) {
+        return byWord.subMap(prefix, true, prefix + "\uffff", false);
+    }
+
+    // Counts the ids of some index entries, stopping once above the cap
+    private static int count(Collection<IntList> lists, int cap) {
+        int count = 0;
+        for (IntList ids : lists) {
+            count += ids.size;
+            if (count > cap) {
+                return count;
+            }
+        }
+        return count;
+    }
+
+    // A growable list of entry ids, without boxing
+    private static final class IntList {
+        private int[] values = new int[2];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void addTo(BitSet set) {
+            for (int i = 0; i < size; i++) {
+                set.set(values[i]);
+            }
+        }
+    }
+}
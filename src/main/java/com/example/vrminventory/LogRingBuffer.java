@@ -0,0 +1,94 @@
+package com.example.vrminventory;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free ring buffer for many producers and a single consumer.
+ * <p>
+ * Every slot carries a sequence number: producers claim a position with a CAS on the tail and
+ * publish the element by advancing the slot's sequence, so the consumer never sees a half-written
+ * slot and producers never block each other.
+ */
+class LogRingBuffer<T> {
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<T> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+
+    // Only touched by the consumer thread
+    private long head;
+
+    /**
+     * @param requestedCapacity Minimum number of slots; rounded up to the next power of two
+     */
+    LogRingBuffer(int requestedCapacity) {
+        int size = Integer.highestOneBit(Math.max(2, requestedCapacity - 1)) << 1;
+        this.capacity = size;
+        this.mask = size - 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Adds an element if there is room.
+     *
+     * @return false if the buffer is full
+     */
+    boolean offer(T element) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.set(index, element);
+                    sequences.set(index, position + 1); // publish
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false; // consumer hasn't freed this slot yet
+            } else {
+                position = tail.get(); // another producer claimed it first
+            }
+        }
+    }
+
+    /**
+     * Moves up to {@code maxElements} published elements into {@code batch}. Consumer thread only.
+     *
+     * @return The number of elements drained
+     */
+    int drainTo(List<T> batch, int maxElements) {
+        int drained = 0;
+        while (drained < maxElements) {
+            int index = (int) (head & mask);
+            if (sequences.get(index) != head + 1) {
+                break; // nothing published at this position yet
+            }
+
+            batch.add(slots.get(index));
+            slots.set(index, null);
+            sequences.set(index, head + capacity); // hand the slot back to producers
+            head++;
+            drained++;
+        }
+        return drained;
+    }
+
+    boolean isEmpty() {
+        return sequences.get((int) (head & mask)) != head + 1;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+}
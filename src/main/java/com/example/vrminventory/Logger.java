@@ -1,22 +1,286 @@
 package com.example.vrminventory;
 
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * Asynchronous application logger.
+ * <p>
+ * Callers only enqueue a record into a lock-free ring buffer; a single daemon thread owns the log
+ * file, writes records in batches and flushes once per batch. {@link #shutdown()} drains whatever
+ * is still buffered before the JVM exits.
+ * <p>
+ * Records are written as JSON lines with {@code ts}, {@code level}, {@code thread}, {@code msg} and,
+ * when known, {@code sheet}, {@code latencyMs} and {@code error}. Consecutive identical records are
+ * collapsed into one line with a {@code repeated} count. The file rolls over by size and by day into
+ * gzip archives under {@code logs/}.
+ */
 public class Logger {
+    public enum Level { INFO, WARN, ERROR }
+
+    /**
+     * What to do when the ring buffer is full.
+     */
+    public enum OverflowPolicy {
+        /** Discard the new record and count it; the count is written once space frees up. */
+        DROP,
+        /** Wait for the writer to free a slot. Never use this from the FX thread. */
+        BLOCK
+    }
+
     private static final String LOG_FILE = "application.log";
+    private static final String ARCHIVE_DIR = "logs";
+    private static final long MAX_FILE_BYTES = 10L * 1024 * 1024;
+    private static final int MAX_ARCHIVES = 30;
+    private static final long MAX_SUPPRESSION_MILLIS = 60_000;
+    private static final int BUFFER_CAPACITY = 8192;
+    private static final int MAX_BATCH = 512;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 2000;
+
+    private static final LogRingBuffer<Record> BUFFER = new LogRingBuffer<>(BUFFER_CAPACITY);
+    private static final AtomicLong DROPPED = new AtomicLong();
+    private static final Thread WRITER;
+
+    private static volatile OverflowPolicy overflowPolicy = parsePolicy(System.getProperty("vrm.log.overflow"));
+    private static volatile boolean running = true;
+    private static volatile boolean writerIdle = false;
+
+    static {
+        WRITER = new Thread(Logger::runWriter, "log-writer");
+        WRITER.setDaemon(true);
+        WRITER.start();
+
+        // Flush on every JVM exit path, including System.exit from the close handlers
+        Runtime.getRuntime().addShutdownHook(new Thread(Logger::shutdown, "log-shutdown"));
+    }
+
+    private record Record(LocalDateTime timestamp, Level level, String thread, String sheet,
+                          long latencyMillis, String message, String error) {
+
+        boolean sameAs(Record other) {
+            return other != null && level == other.level
+                    && Objects.equals(sheet, other.sheet)
+                    && Objects.equals(message, other.message)
+                    && Objects.equals(error, other.error);
+        }
+    }
 
     public static void log(String message) {
-        try (PrintWriter out = new PrintWriter(new FileWriter(LOG_FILE, true))) {
-            out.println(LocalDateTime.now() + ": " + message);
+        log(Level.INFO, null, message);
+    }
+
+    public static void log(Level level, String sheet, String message) {
+        enqueue(new Record(LocalDateTime.now(), level, Thread.currentThread().getName(), sheet, -1, message, null));
+    }
+
+    public static void logError(String message, Exception e) {
+        logError(null, message, e);
+    }
+
+    public static void logError(String sheet, String message, Exception e) {
+        enqueue(new Record(LocalDateTime.now(), Level.ERROR, Thread.currentThread().getName(), sheet, -1,
+                message, e.getMessage()));
+    }
+
+    /**
+     * Records a completed Sheets API call and how long it took.
+     */
+    public static void logSheetCall(String sheet, String message, long latencyMillis) {
+        enqueue(new Record(LocalDateTime.now(), Level.INFO, Thread.currentThread().getName(), sheet,
+                latencyMillis, message, null));
+    }
+
+    public static void setOverflowPolicy(OverflowPolicy policy) {
+        overflowPolicy = policy;
+    }
+
+    /**
+     * Number of records discarded so far because the buffer was full.
+     */
+    public static long getDroppedCount() {
+        return DROPPED.get();
+    }
+
+    /**
+     * Stops accepting records and blocks until the writer has written and flushed the backlog.
+     */
+    public static void shutdown() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(WRITER);
+
+        try {
+            WRITER.join(SHUTDOWN_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void enqueue(Record record) {
+        if (!running) {
+            return;
+        }
+
+        if (!BUFFER.offer(record)) {
+            if (overflowPolicy == OverflowPolicy.DROP) {
+                DROPPED.incrementAndGet();
+                return;
+            }
+            while (running && !BUFFER.offer(record)) {
+                LockSupport.unpark(WRITER);
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+            }
+        }
+
+        if (writerIdle) {
+            LockSupport.unpark(WRITER);
+        }
+    }
+
+    private static void runWriter() {
+        RotatingLogFile out = new RotatingLogFile(Path.of(LOG_FILE), Path.of(ARCHIVE_DIR), MAX_FILE_BYTES, MAX_ARCHIVES);
+        List<Record> batch = new ArrayList<>(MAX_BATCH);
+        StringBuilder line = new StringBuilder(256);
+        long reportedDrops = 0;
+
+        // Duplicate suppression state
+        Record previous = null;
+        int repeats = 0;
+
+        while (running || !BUFFER.isEmpty()) {
+            try {
+                batch.clear();
+                if (BUFFER.drainTo(batch, MAX_BATCH) == 0) {
+                    writerIdle = true;
+                    if (BUFFER.isEmpty() && running) {
+                        LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    }
+                    writerIdle = false;
+
+                    // Don't hold a repeat count back forever while the app is quiet
+                    if (repeats > 0 && Duration.between(previous.timestamp(), LocalDateTime.now()).toMillis()
+                            >= MAX_SUPPRESSION_MILLIS) {
+                        write(out, line, previous, repeats);
+                        repeats = 0;
+                        previous = null;
+                        out.flush();
+                    }
+                    continue;
+                }
+
+                for (Record record : batch) {
+                    if (isSuppressible(record, previous)) {
+                        repeats++;
+                        continue;
+                    }
+                    if (repeats > 0) {
+                        write(out, line, previous, repeats);
+                        repeats = 0;
+                    }
+                    write(out, line, record, 0);
+                    previous = record;
+                }
+
+                long dropped = DROPPED.get();
+                if (dropped != reportedDrops) {
+                    write(out, line, new Record(LocalDateTime.now(), Level.WARN, "log-writer", null, -1,
+                            "log buffer full, dropped " + (dropped - reportedDrops) + " messages", null), 0);
+                    reportedDrops = dropped;
+                }
+
+                out.flush(); // one flush per batch
+            } catch (IOException e) {
+                // Keep the writer alive; the next batch may succeed (e.g. after a failed rotation)
+                e.printStackTrace();
+            }
+        }
+
+        try {
+            if (repeats > 0) {
+                write(out, line, previous, repeats);
+            }
+            out.close();
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
-    public static void logError(String message, Exception e) {
-        log("ERROR: " + message + " - " + e.getMessage());
+    private static boolean isSuppressible(Record record, Record previous) {
+        return record.sameAs(previous)
+                && Duration.between(previous.timestamp(), record.timestamp()).toMillis() < MAX_SUPPRESSION_MILLIS;
+    }
+
+    private static void write(RotatingLogFile out, StringBuilder line, Record record, int repeats) throws IOException {
+        line.setLength(0);
+        line.append("{\"ts\":\"").append(record.timestamp()).append('"');
+        line.append(",\"level\":\"").append(record.level()).append('"');
+        line.append(",\"thread\":");
+        appendJsonString(line, record.thread());
+        if (record.sheet() != null) {
+            line.append(",\"sheet\":");
+            appendJsonString(line, record.sheet());
+        }
+        if (record.latencyMillis() >= 0) {
+            line.append(",\"latencyMs\":").append(record.latencyMillis());
+        }
+        line.append(",\"msg\":");
+        appendJsonString(line, record.message());
+        if (record.error() != null) {
+            line.append(",\"error\":");
+            appendJsonString(line, record.error());
+        }
+        if (repeats > 0) {
+            line.append(",\"repeated\":").append(repeats);
+        }
+        line.append('}');
+
+        out.writeLine(line.toString(), record.timestamp().toLocalDate());
+    }
+
+    static void appendJsonString(StringBuilder sb, String value) {
+        if (value == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+
+    private static OverflowPolicy parsePolicy(String value) {
+        if (value == null) {
+            return OverflowPolicy.DROP;
+        }
+        try {
+            return OverflowPolicy.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return OverflowPolicy.DROP;
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,15 +1,12 @@
 package com.example.vrminventory;
 
+import javafx.animation.PauseTransition;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.*;
-import javafx.scene.layout.VBox;
 import javafx.stage.Modality;
-import javafx.stage.Stage;
 import javafx.stage.StageStyle;
+import javafx.util.Duration;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -19,7 +16,6 @@ import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -42,6 +38,11 @@ public class LoginController {
     private static final String ATTEMPTS_KEY = "failedAttempts";
     private static final String LOCKOUT_TIME_KEY = "lockoutUntil";
 
+    // Speculative loading of the main screen while the user is still logging in
+    private static final long PREWARM_DELAY_MILLIS = 300;
+    private PauseTransition prewarmDelay;
+    private String prewarmedUser; // FX thread only
+
     private ScheduledExecutorService lockoutTimer;
     private ScheduledExecutorService countdownTimer;
     private Alert lockoutAlert; // Keep for updating its content
@@ -72,10 +73,6 @@ public class LoginController {
     // Current authenticated branch
     private static String currentBranch;
 
-    // For background loading
-    private final ExecutorService executorService = Executors.newSingleThreadExecutor();
-    private Stage loadingStage; // Add this to store the loading stage
-
 
     @FXML
     private void initialize() {
@@ -87,6 +84,30 @@ public class LoginController {
 
         // Check for existing lockout state
         checkPersistentLockout();
+
+        // Once typing pauses on a known username, start loading that account's main screen
+        prewarmDelay = new PauseTransition(Duration.millis(PREWARM_DELAY_MILLIS));
+        prewarmDelay.setOnFinished(event -> prewarm(usernameField.getText().trim()));
+        usernameField.textProperty().addListener((obs, oldVal, newVal) -> prewarmDelay.playFromStart());
+    }
+
+    // Loads the screen the user would land on and its data in the background, so a correct login
+    // switches to it at once. Nothing is shown before the password is checked; a wrong guess is
+    // replaced by the next one, and unused data expires in the screen itself.
+    private void prewarm(String username) {
+        String branch = USER_BRANCHES.get(username);
+        if (branch == null || isLocked || username.equals(prewarmedUser)) {
+            return;
+        }
+        prewarmedUser = username;
+
+        if (username.equals("admin")) {
+            SceneNavigator.<AdminMainViewController>prepare(SceneNavigator.Screen.ADMIN_MAIN_VIEW,
+                    controller -> controller.prepareBranch("ADMIN"));
+        } else {
+            SceneNavigator.<MainViewController>prepare(SceneNavigator.Screen.MAIN_VIEW,
+                    controller -> controller.prepareBranch(branch));
+        }
     }
 
     private void checkPersistentLockout() {
@@ -155,91 +176,23 @@ public class LoginController {
             failedLoginAttempts = 0;
             saveLockoutState(false);
 
-            // Disable input controls
-            setControlsEnabled(false);
-            statusLabel.setText("Logging in...");
-
-            // Show loading alert, and get a reference to the stage
-            loadingStage = showLoadingAlert("Please wait while the application is loading...");
-
-
+            // The navigator blocks this screen while the next one is still loading
             // Store authenticated branch immediately
             currentBranch = USER_BRANCHES.get(username);
-
-            // Load main application in background thread
-            executorService.submit(() -> {
-                try {
-
-                    FXMLLoader loader;
-
-                    if (username.equals("admin")) {
-                        loader = new FXMLLoader(getClass().getResource("admin-main-view.fxml"));
-                    } else {
-                        loader = new FXMLLoader(getClass().getResource("main-view.fxml"));
-                    }
-
-                    Parent root = loader.load();
-
-                    if (username.equals("admin")) {
-                        AdminMainViewController controller = loader.getController();
-                        // Perform any admin-specific setup here
-                    } else {
-                        MainViewController controller = loader.getController();
-                        // Perform any non-admin setup here
-                    }
-
-                    // Update UI in JavaFX thread
-                    Platform.runLater(() -> {
-                        try {
-                            // Close the loading stage *before* showing the main stage
-                            if (loadingStage != null && loadingStage.isShowing()) {
-                                loadingStage.close();
-                            }
-
-                            // Create and show the main stage
-                            Stage mainStage = new Stage();
-                            mainStage.setTitle("VRM Inventory - " + (username.equals("admin") ? "ADMIN" : currentBranch));
-                            mainStage.setScene(new Scene(root, 1366, 768));
-                            mainStage.setMaximized(false);
-                            mainStage.setResizable(false);
-
-                            // Close the login stage
-                            ((Stage) loginButton.getScene().getWindow()).close();
-
-                            // Show the main stage
-                            mainStage.show();
-
-                        } catch (Exception e) {
-                            // Re-enable controls if something goes wrong
-                            setControlsEnabled(true);
-                            statusLabel.setText("Error loading application: " + e.getMessage());
-                            // Close the loading stage in case of an error
-                            if (loadingStage != null && loadingStage.isShowing()) {
-                                loadingStage.close();
-                            }
-
-                            showErrorAlert("Failed to load main view screen", e.getMessage()); // Use consistent error alert
-                            e.printStackTrace();
-                        }
-                    });
-                } catch (IOException e) {
-                    // Update UI in JavaFX thread
-                    Platform.runLater(() -> {
-                        // Re-enable controls
-                        setControlsEnabled(true);
-                        statusLabel.setText("Error loading application: " + e.getMessage());
-
-                        // Close the loading stage in case of an error
-                        if (loadingStage != null && loadingStage.isShowing()) {
-                            loadingStage.close();
-                        }
-
-                        showErrorAlert("Failed to load the application", e.getMessage());// Use consistent error alert
-
-                        e.printStackTrace();
-                    });
-                }
-            });
+            String branch = currentBranch;
+
+            // Switch to the main screen; the screen behind it is preloaded so navigating there is instant
+            if (username.equals("admin")) {
+                SceneNavigator.<AdminMainViewController>navigate(SceneNavigator.Screen.ADMIN_MAIN_VIEW,
+                        "VRM Inventory - ADMIN", "Please wait while the application is loading...",
+                        controller -> controller.setBranch("ADMIN"));
+                SceneNavigator.preload(SceneNavigator.Screen.ADMIN_INVENTORY);
+            } else {
+                SceneNavigator.<MainViewController>navigate(SceneNavigator.Screen.MAIN_VIEW,
+                        "VRM Inventory - " + branch, "Please wait while the application is loading...",
+                        controller -> controller.setBranch(branch));
+                SceneNavigator.preload(SceneNavigator.Screen.LOG_ENTRY);
+            }
         } else {
             // Increment failed login attempts
             failedLoginAttempts++;
@@ -389,36 +342,6 @@ public class LoginController {
             alert.showAndWait();
         });
     }
-    private Stage showLoadingAlert( String message) {
-
-        // Create a new stage for modal loading alert
-        Stage loadingStage = new Stage();
-        loadingStage.initModality(Modality.APPLICATION_MODAL);
-        loadingStage.initStyle(StageStyle.UNDECORATED);
-        loadingStage.setResizable(false);
-
-        // Create the loading alert content
-        VBox loadingBox = new VBox(10);
-        loadingBox.setAlignment(javafx.geometry.Pos.CENTER);
-        loadingBox.setPadding(new javafx.geometry.Insets(20));
-        loadingBox.setStyle("-fx-background-color: white; -fx-border-color: #cccccc; -fx-border-width: 1px;");
-
-        Label loadingLabel = new Label(message);
-        loadingLabel.setStyle("-fx-font-size: 14px;");
-
-        ProgressIndicator progress = new ProgressIndicator();
-        progress.setProgress(-1.0f); // Indeterminate progress
-
-        loadingBox.getChildren().addAll(loadingLabel, progress);
-
-        // Set scene for loading stage
-        Scene loadingScene = new Scene(loadingBox, 400, 150);
-        loadingStage.setScene(loadingScene);
-        loadingStage.show(); //show
-
-        return loadingStage; // Return the stage
-
-    }
     private void showErrorAlert(String header, String message) {
         Alert errorAlert = new Alert(Alert.AlertType.ERROR);
         errorAlert.setTitle("Error");
@@ -473,11 +396,20 @@ public class LoginController {
         return "Warehouse".equals(currentBranch);
     }
 
+    /**
+     * Puts the screen back into its initial state when the user logs out and returns to it.
+     */
+    public void reset() {
+        currentBranch = null;
+        prewarmedUser = null;
+        usernameField.clear();
+        passwordField.clear();
+        statusLabel.setText(isLocked ? "Login locked for " + remainingLockoutSeconds + " seconds" : "");
+        setControlsEnabled(!isLocked);
+    }
+
     // Clean shutdown of resources
     public void shutdownExecutor() {
-        if (executorService != null && !executorService.isShutdown()) {
-            executorService.shutdownNow();
-        }
         if (lockoutTimer != null && !lockoutTimer.isShutdown()) {
             lockoutTimer.shutdownNow();
         }
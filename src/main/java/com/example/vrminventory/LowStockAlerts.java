@@ -0,0 +1,159 @@
+package com.example.vrminventory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Raises an alert when an item's stock at a branch falls to its reorder level, and clears it when
+ * the stock is back above.
+ * <p>
+ * Stock comes from the {@link StockLedger}, which reports the items each batch of log rows changed;
+ * only those items are checked, so an entry is evaluated on the feed thread as soon as its row is
+ * published. Items whose stock hasn't changed since the branch was seeded aren't checked.
+ * <p>
+ * The reorder level of an item is, in order of precedence, {@code alerts.reorderLevel.sku.<sku>},
+ * {@code alerts.reorderLevel.category.<category>} or {@code alerts.reorderLevel}, read from the
+ * configuration at each check.
+ */
+public class LowStockAlerts {
+    private static final String SKU_LEVEL_PREFIX = Config.REORDER_LEVEL.getKey() + ".sku.";
+    private static final String CATEGORY_LEVEL_PREFIX = Config.REORDER_LEVEL.getKey() + ".category.";
+
+    /**
+     * An item at or below its reorder level.
+     *
+     * @param branch The branch sheet (e.g., "Branch1")
+     * @param itemName The item's name, or the SKU if the item isn't in the branch catalog
+     * @param quantity The stock when the alert was raised or last changed
+     * @param reorderLevel The level the stock fell to
+     */
+    public record StockAlert(String branch, int sku, String itemName, String category, int quantity, int reorderLevel) {
+        /**
+         * @return The alert as one line, e.g. "HDMI Cable (SKU 101): 2 left, reorder level 5"
+         */
+        public String describe(boolean withBranch) {
+            return itemName + " (SKU " + sku + (withBranch ? ", " + branch : "") + "): " + quantity
+                    + " left, reorder level " + reorderLevel;
+        }
+    }
+
+    /**
+     * Receives alert changes.
+     */
+    public interface Listener {
+        /**
+         * Called on the feed or check thread whenever alerts were raised, changed or cleared. Read
+         * the current alerts with {@link #getAlerts(String)}.
+         *
+         * @param raised The alerts raised by this change; empty if alerts only changed or cleared
+         */
+        void onAlertsChanged(List<StockAlert> raised);
+    }
+
+    private record Key(String branch, int sku) {
+    }
+
+    private final GoogleSheetsService sheetsService;
+    private final Map<Key, StockAlert> active = new ConcurrentHashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    LowStockAlerts(GoogleSheetsService sheetsService) {
+        this.sheetsService = sheetsService;
+        sheetsService.getStockLedger().addListener(this::evaluate);
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @param branch A branch sheet, or null for all branches
+     * @return The active alerts, lowest stock first
+     */
+    public List<StockAlert> getAlerts(String branch) {
+        List<StockAlert> alerts = new ArrayList<>();
+        for (StockAlert alert : active.values()) {
+            if (branch == null || alert.branch().equals(branch)) {
+                alerts.add(alert);
+            }
+        }
+        alerts.sort(Comparator.comparingInt(StockAlert::quantity).thenComparing(StockAlert::branch)
+                .thenComparingInt(StockAlert::sku));
+        return alerts;
+    }
+
+    /**
+     * @return The reorder level of an item: its own, its category's or the default
+     */
+    public static int reorderLevel(int sku, String category) {
+        Integer level = levelProperty(SKU_LEVEL_PREFIX + sku);
+        if (level == null && category != null) {
+            level = levelProperty(CATEGORY_LEVEL_PREFIX + category);
+        }
+        return level != null ? level : Config.REORDER_LEVEL.get();
+    }
+
+    private static Integer levelProperty(String key) {
+        String text = Config.getProperty(key);
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(text.trim());
+        } catch (NumberFormatException e) {
+            Logger.log(Logger.Level.WARN, "config", "Ignoring " + key + "=" + text + ": not a number");
+            return null;
+        }
+    }
+
+    // Checks the items a ledger update touched
+    private synchronized void evaluate(String branch, Map<Integer, Integer> quantities) {
+        InventoryCatalog catalog = sheetsService.getCachedCatalog(branch);
+        List<StockAlert> raised = new ArrayList<>();
+        boolean changed = false;
+
+        for (Map.Entry<Integer, Integer> entry : quantities.entrySet()) {
+            int sku = entry.getKey();
+            int quantity = entry.getValue();
+            Key key = new Key(branch, sku);
+            InventoryItem item = catalog.findBySku(sku);
+            String category = item != null ? item.getCategory() : null;
+            int level = reorderLevel(sku, category);
+
+            StockAlert current = active.get(key);
+            if (quantity > level) {
+                changed |= active.remove(key) != null;
+            } else if (current == null || current.quantity() != quantity || current.reorderLevel() != level) {
+                StockAlert alert = new StockAlert(branch, sku, item != null ? item.getName() : String.valueOf(sku),
+                        category, quantity, level);
+                active.put(key, alert);
+                if (current == null) {
+                    raised.add(alert);
+                }
+                changed = true;
+            }
+        }
+
+        for (StockAlert alert : raised) {
+            Logger.log(Logger.Level.WARN, branch, "Low stock: " + alert.itemName() + " (SKU " + alert.sku()
+                    + ") is at " + alert.quantity() + ", reorder level " + alert.reorderLevel());
+        }
+        if (changed) {
+            for (Listener listener : listeners) {
+                try {
+                    listener.onAlertsChanged(raised);
+                } catch (RuntimeException e) {
+                    Logger.logError("Low stock listener failed", e);
+                }
+            }
+        }
+    }
+}
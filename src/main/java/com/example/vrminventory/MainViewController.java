@@ -4,8 +4,6 @@ import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.input.MouseButton;
@@ -21,25 +19,18 @@ import javafx.util.Callback;
 
 import java.io.IOException;
 import java.security.GeneralSecurityException;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 public class MainViewController {
     // Constants
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("M/dd/yyyy");
-    private static final DateTimeFormatter TIME_FORMATTER_HMS = DateTimeFormatter.ofPattern("H:mm:ss");
-    private static final DateTimeFormatter TIME_FORMATTER_HM = DateTimeFormatter.ofPattern("H:mm");
-    private static final DateTimeFormatter TIME_FORMATTER_FULL = DateTimeFormatter.ofPattern("HH:mm:ss");
-    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(2);
+    private static final ExecutorService EXECUTOR = TunableThreadPool.newFixedThreadPool(Config.WORKER_THREADS);
 
 
     // Lists
@@ -48,7 +39,7 @@ public class MainViewController {
     private static final List<String> ASC_DESC_FILTERS = List.of("Ascending", "Descending");
 
     // Fields
-    private GoogleSheetsService sheetsService;
+    private volatile GoogleSheetsService sheetsService; // set once the shared service has started
     private List<LogEntry> logEntries;
     private List<LogEntry> filteredLogEntries;
 
@@ -58,6 +49,8 @@ public class MainViewController {
     @FXML
     private Label mainLabel;
     @FXML
+    private Label lowStockLabel;
+    @FXML
     private Label statusLabel;
     @FXML
     private VBox listViewContainer;
@@ -74,15 +67,17 @@ public class MainViewController {
 
     private ObservableList<LogEntry> observableLogList;
     private String currentBranch;
+    private long refreshGeneration; // FX thread only
+    private PagedLogSource logSource; // FX thread only
+    private boolean pageLoading; // FX thread only
+    private ChangeFeed.Subscription feedSubscription; // FX thread only
+    private LowStockAlerts.Listener lowStockListener; // FX thread only; registered once the service has started
+    private long preparedAt = -1; // FX thread only; when prepareBranch started loading, in nanos
+    private boolean searchScopeShown; // FX thread only; whether the status line describes a search
 
     public MainViewController() {
-        try {
-            // Initialize Google Sheets service
-            sheetsService = new GoogleSheetsService();
-        } catch (GeneralSecurityException | IOException e) {
-            System.err.println("Failed to initialize Google Sheets service: " + e.getMessage());
-            e.printStackTrace();
-        }
+        // Sign-in runs in the background; refreshData waits for it off the FX thread
+        GoogleSheetsService.startAsync();
     }
 
     @FXML
@@ -120,122 +115,179 @@ public class MainViewController {
         }
     }
 
-    private void initializeData() throws IOException {
-        if (sheetsService == null) {
-            throw new IOException("Google Sheets service is not initialized");
-        }
+    private void initializeData() {
+        // Filled in by refreshData once the screen is shown
+        logEntries = new ArrayList<>();
+        filteredLogEntries = new ArrayList<>();
+        observableLogList = FXCollections.observableArrayList();
+    }
 
-        logEntries = getLogEntries(currentBranch);
-        filteredLogEntries = new ArrayList<>(logEntries);
-        observableLogList = FXCollections.observableArrayList(filteredLogEntries);
-    }
-
-    // Method to get log entries from Google Sheets
-    private List<LogEntry> getLogEntries(String branch) throws IOException {
-        List<LogEntry> entries = new ArrayList<>();
-
-        // Extend range to ensure all logs are captured
-        String range = branch + "!I21:N5000";  // Increased range
-        var response = sheetsService.getSheetsService().spreadsheets().values()
-                .get(sheetsService.getSpreadsheetId(), range)
-                .execute();
-
-        if (response.getValues() != null) {
-            for (List<Object> row : response.getValues()) {
-                // Skip empty rows or rows with insufficient data
-                if (row.isEmpty() || row.size() < 5) continue;
-
-                try {
-                    String date = row.get(0).toString().trim();
-                    String time = row.get(1).toString().trim();
-                    String activity = convertActivityCodeToString(row.get(2).toString().trim(), branch);
-                    int sku = Integer.parseInt(row.get(3).toString().trim());
-                    int quantity = Integer.parseInt(row.get(4).toString().trim());
-                    String description = row.size() > 5 ? row.get(5).toString().trim() : "";
-
-                    // Create LogEntry and add to list
-                    LogEntry logEntry = new LogEntry(branch, date, time, activity, sku, quantity, description);
-                    enrichLogEntryWithItemDetails(logEntry, branch);
-                    entries.add(logEntry);
-                } catch (Exception e) {
-                    System.err.println("Error processing log entry: " + e.getMessage());
-                }
-            }
-        }
+    // Method to turn one row of a branch log sheet into a LogEntry
+    private LogEntry parseLogRow(String branch, RowDecoder decoder, List<Object> row, int rowNumber) {
+        // Empty and malformed rows are skipped; the decoder counts the malformed ones
+        LogEntry logEntry = decoder.decodeLogEntry(row, 0, branch, this::convertActivityCodeToString);
+        if (logEntry == null) return null;
 
-        return entries;
+        logEntry.setRow(rowNumber);
+        enrichLogEntryWithItemDetails(logEntry, branch);
+        return logEntry;
     }
 
     // Method to convert activity codes to their string equivalents
-    private String convertActivityCodeToString(String activityCode, String branch) {
+    private String convertActivityCodeToString(int activityCode, String branch) {
         if (branch.toLowerCase().contains("warehouse")) {
             // Warehouse activity codes (1-2)
             switch (activityCode) {
-                case "1": return "Supply";
-                case "2": return "Transfer-Out";
-                default: return activityCode; // Return original if unrecognized
+                case 1: return "Supply";
+                case 2: return "Transfer-Out";
+                default: return String.valueOf(activityCode); // Return original if unrecognized
             }
         } else {
             // Branch activity codes (1-4)
             switch (activityCode) {
-                case "1": return "Sale";
-                case "2": return "Transfer-In";
-                case "3": return "Transfer-Out";
-                case "4": return "Return/Refund";
-                default: return activityCode; // Return original if unrecognized
+                case 1: return "Sale";
+                case 2: return "Transfer-In";
+                case 3: return "Transfer-Out";
+                case 4: return "Return/Refund";
+                default: return String.valueOf(activityCode); // Return original if unrecognized
             }
         }
     }
 
     // Method to enrich log entry with item details (name, category, price)
     private void enrichLogEntryWithItemDetails(LogEntry logEntry, String branch) {
-        try {
-            // Get inventory items for the branch
-            List<InventoryItem> items = sheetsService.getAllInventoryItems(branch);
-
-            // Find the item that matches the SKU
-            for (InventoryItem item : items) {
-                if (item.getSku() == logEntry.getSku()) {
-                    logEntry.setItemName(item.getName());
-                    logEntry.setItemCategory(item.getCategory());
-                    logEntry.setItemPrice(item.getPrice());
-                    break;
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Failed to get item details: " + e.getMessage());
+        // Look up the item by SKU in the branch's catalog, loaded with the log by the bootstrap
+        InventoryItem item = sheetsService.getCatalog(branch).findBySku(logEntry.getSku());
+        if (item != null) {
+            logEntry.setItemName(item.getName());
+            logEntry.setItemCategory(item.getCategory());
+            logEntry.setItemPrice(item.getPrice());
         }
     }
 
-    // Method to refresh data from Google Sheets
+    // Method to refresh data from Google Sheets, off the FX thread
     public void refreshData() {
-        try {
-            // Retrieve fresh data from Google Sheets
-            logEntries = getLogEntries(currentBranch);
+        String branch = currentBranch;
+        long generation = ++refreshGeneration;
 
-            // Update filtered list
-            String searchFilter = searchFilterComboBox.getValue();
-            String searchText = searchField.getText();
+        EXECUTOR.submit(() -> {
+            try {
+                sheetsService = GoogleSheetsService.getInstance();
+                String resumeToken = sheetsService.getChangeFeed().getResumeToken();
+
+                // Retrieve the newest page with the branch's items in one request; older pages load
+                // as the list scrolls
+                PagedLogSource source = new PagedLogSource(sheetsService, branch, Config.LOG_START_ROW.get(), "I", "N",
+                        (decoder, row, rowNumber) -> parseLogRow(branch, decoder, row, rowNumber));
+                ScreenBootstrap bootstrap = new ScreenBootstrap(sheetsService, branch)
+                        .catalog(branch)
+                        .log(source);
+                bootstrap.load();
+                Map<Integer, List<LogEntry>> firstPages = bootstrap.getFirstPages();
 
-            if (searchFilter != null && !searchText.isEmpty()) {
-                // Apply search filter if active
-                handleSearch(searchText);
-            } else {
-                // Otherwise reset to full list
-                filteredLogEntries.clear();
-                filteredLogEntries.addAll(logEntries);
-                applyFilters();
+                Platform.runLater(() -> {
+                    // A newer refresh (or a branch switch) has been started since
+                    if (generation != refreshGeneration) {
+                        return;
+                    }
+                    logSource = source;
+                    pageLoading = false; // a page still in flight belongs to the old source
+                    firstPages.forEach(source::putPage);
+                    logListView.setPlaceholder(new Label("No log entries found"));
+                    showLoadedEntries();
+                    followChanges(source, generation, resumeToken);
+                    watchLowStock();
+                    StartupMetrics.mark(StartupMetrics.FIRST_DATA);
+
+                    // Update status
+                    if (statusLabel != null) {
+                        statusLabel.setText("Data refreshed successfully");
+                    }
+                });
+            } catch (GeneralSecurityException | IOException e) {
+                Platform.runLater(() -> {
+                    preparedAt = -1; // don't keep a failed load for the login it was prepared for
+                    logListView.setPlaceholder(new Label("Could not load log entries"));
+                    if (statusLabel != null) {
+                        statusLabel.setText("Error refreshing data: " + e.getMessage());
+                    }
+                });
+                e.printStackTrace();
             }
+        });
+    }
 
-            // Update status
-            if (statusLabel != null) {
-                statusLabel.setText("Data refreshed successfully");
-            }
-        } catch (IOException e) {
-            if (statusLabel != null) {
-                statusLabel.setText("Error refreshing data: " + e.getMessage());
+    // Shows rows logged since the load, here or at other terminals, as the change feed reports them
+    private void followChanges(PagedLogSource source, long generation, String resumeToken) {
+        if (feedSubscription != null) {
+            feedSubscription.close();
+        }
+        feedSubscription = source.followChanges(resumeToken,
+                entries -> Platform.runLater(() -> {
+                    if (generation == refreshGeneration && source.addNewEntries(entries)) {
+                        showLoadedEntries();
+                    }
+                }),
+                () -> Platform.runLater(() -> {
+                    if (generation == refreshGeneration) {
+                        refreshData();
+                    }
+                }));
+    }
+
+    // Loads an older or newer page of the current log sheet, off the FX thread
+    private void loadPage(int page) {
+        PagedLogSource source = logSource;
+        if (source == null || page < 0 || pageLoading) {
+            return;
+        }
+        pageLoading = true;
+        long generation = refreshGeneration;
+
+        EXECUTOR.submit(() -> {
+            try {
+                List<LogEntry> entries = source.readPage(page);
+
+                Platform.runLater(() -> {
+                    pageLoading = false;
+                    if (generation != refreshGeneration) {
+                        return;
+                    }
+                    source.putPage(page, entries);
+                    showLoadedEntries();
+                });
+            } catch (IOException e) {
+                Platform.runLater(() -> {
+                    pageLoading = false;
+                    if (statusLabel != null) {
+                        statusLabel.setText("Error loading older entries: " + e.getMessage());
+                    }
+                });
+                e.printStackTrace();
             }
-            e.printStackTrace();
+        });
+    }
+
+    // Shows the entries of the loaded pages, keeping the current search, sort and scroll position
+    private void showLoadedEntries() {
+        LogEntry firstVisible = ListScrollPaging.firstVisibleItem(logListView);
+        logEntries = logSource.getLoadedEntries();
+
+        String searchFilter = searchFilterComboBox.getValue();
+        String searchText = searchField.getText();
+
+        if (searchFilter != null && !searchText.isEmpty()) {
+            // Apply search filter if active
+            handleSearch(searchText);
+        } else {
+            // Otherwise reset to full list
+            resetToFullList();
+        }
+        ListScrollPaging.restoreFirstVisible(logListView, firstVisible);
+
+        // A short first page can't be scrolled, so keep going until the list fills up
+        if (logEntries.size() < logSource.getPageSize()) {
+            loadPage(logSource.nextOlderPage());
         }
     }
 
@@ -305,6 +357,12 @@ public class MainViewController {
 
         // Populate the ListView
         logListView.setItems(observableLogList);
+        logListView.setPlaceholder(new Label("Loading log entries..."));
+
+        // Fetch older entries near the bottom, and evicted newer ones again near the top
+        ListScrollPaging.install(logListView,
+                () -> { if (logSource != null) loadPage(logSource.nextNewerPage()); },
+                () -> { if (logSource != null) loadPage(logSource.nextOlderPage()); });
     }
 
     private GridPane createHeaderGridPane() {
@@ -382,6 +440,11 @@ public class MainViewController {
                 descriptionLabel.setMaxWidth(columnWidths[5] - 10);
                 descriptionLabel.setMinHeight(Label.USE_COMPUTED_SIZE);
                 descriptionLabel.setPrefHeight(Label.USE_COMPUTED_SIZE);
+
+                // The graphic stays attached for the cell's lifetime; the cell height grows with content
+                setPrefHeight(USE_COMPUTED_SIZE);
+                setGraphic(gridPane);
+                gridPane.setVisible(false);
             }
 
             @Override
@@ -390,26 +453,17 @@ public class MainViewController {
 
                 if (empty || entry == null) {
                     setText(null);
-                    setGraphic(null);
+                    // Hide the row instead of detaching it so the graphic isn't re-styled on reuse
+                    gridPane.setVisible(false);
                 } else {
                     // Update labels with entry data
                     dateLabel.setText(entry.getDate());
                     timeLabel.setText(entry.getTime());
                     activityLabel.setText(entry.getActivity());
-                    skuLabel.setText(String.valueOf(entry.getSku()));
-                    quantityLabel.setText(String.valueOf(entry.getQuantity()));
-
-                    // Truncate description if needed
-                    String desc = entry.getDescription();
-                    if (desc != null && desc.length() > 20) {
-                        descriptionLabel.setText(desc.substring(0, 20) + "...");
-                    } else {
-                        descriptionLabel.setText(desc);
-                    }
-
-                    // Set the cell height to grow as needed based on content
-                    setPrefHeight(USE_COMPUTED_SIZE);
-                    setGraphic(gridPane);
+                    skuLabel.setText(entry.getSkuText());
+                    quantityLabel.setText(entry.getQuantityText());
+                    descriptionLabel.setText(entry.getDescriptionPreview());
+                    gridPane.setVisible(true);
                 }
             }
         };
@@ -503,42 +557,8 @@ public class MainViewController {
 
         switch (typeFilter) {
             case "Date and Time":
-                // More robust DateTime comparator
-                primaryComparator = Comparator.comparing(entry -> {
-                    try {
-                        // Parse the date
-                        LocalDate date = LocalDate.parse(entry.getDate(), DATE_FORMATTER);
-
-                        // Try different time formats
-                        LocalTime time;
-                        String timeStr = entry.getTime().trim();
-
-                        try {
-                            // First try HH:mm:ss format
-                            time = LocalTime.parse(timeStr, TIME_FORMATTER_FULL);
-                        } catch (Exception e1) {
-                            try {
-                                // Then try H:mm:ss format (single digit hour)
-                                time = LocalTime.parse(timeStr, TIME_FORMATTER_HMS);
-                            } catch (Exception e2) {
-                                try {
-                                    // Finally try H:mm format (no seconds)
-                                    time = LocalTime.parse(timeStr, TIME_FORMATTER_HM);
-                                } catch (Exception e3) {
-                                    // If all parsing fails, use midnight as default
-                                    System.err.println("Could not parse time: " + timeStr + " for date: " + entry.getDate());
-                                    time = LocalTime.MIDNIGHT;
-                                }
-                            }
-                        }
-
-                        return LocalDateTime.of(date, time);
-                    } catch (Exception e) {
-                        // For unparseable dates, use a default value
-                        System.err.println("Date parsing error: " + e.getMessage() + " for " + entry.getDate());
-                        return LocalDateTime.now();
-                    }
-                });
+                // Timestamps are decoded once, when the rows are read
+                primaryComparator = LogEntry.BY_TIMESTAMP;
                 break;
             case "SKU":
                 primaryComparator = Comparator.comparingInt(LogEntry::getSku);
@@ -562,7 +582,8 @@ public class MainViewController {
     }
 
     private void updateObservableList() {
-        observableLogList.setAll(filteredLogEntries);
+        // Apply only what changed so the ListView keeps the cells of unchanged rows
+        ListDiff.apply(observableLogList, filteredLogEntries, LogEntry::getRow, LogEntry::sameContent);
     }
 
     private void handleSearch(String searchText) {
@@ -586,11 +607,41 @@ public class MainViewController {
             filteredLogEntries.clear();
             filteredLogEntries.addAll(searchResults);
         }
+        showSearchScope(filter != null && !searchText.isEmpty());
 
         // Apply current sort filters to maintain consistency
         applyFilters();
     }
 
+    // Searches cover the loaded pages only, so the status line says which entries were searched
+    private void showSearchScope(boolean searching) {
+        if (statusLabel == null) {
+            return;
+        }
+        if (!searching) {
+            if (searchScopeShown) {
+                statusLabel.setText("");
+                logListView.setPlaceholder(new Label("No log entries found"));
+            }
+            searchScopeShown = false;
+            return;
+        }
+        searchScopeShown = true;
+        logListView.setPlaceholder(new Label("No matches in the loaded entries"));
+
+        boolean wholeLog = logSource != null && logSource.nextOlderPage() < 0 && logSource.nextNewerPage() < 0;
+        if (wholeLog || logEntries.isEmpty()) {
+            statusLabel.setText("Searched all " + logEntries.size() + " log entries");
+            return;
+        }
+        Comparator<LogEntry> byTime = Comparator.comparing(LogEntry::getTimestamp,
+                Comparator.nullsFirst(Comparator.naturalOrder()));
+        LogEntry oldest = Collections.min(logEntries, byTime);
+        LogEntry newest = Collections.max(logEntries, byTime);
+        statusLabel.setText("Searched only the " + logEntries.size() + " loaded entries, " + oldest.getDate()
+                + " to " + newest.getDate() + "; scroll the full list to load older ones");
+    }
+
     private boolean matchesSearchCriteria(LogEntry entry, String filter, String searchText) {
         switch (filter) {
             case "SKU":
@@ -610,102 +661,51 @@ public class MainViewController {
     }
 
     @FXML
-    private void onAddLogEntryButtonClick() throws IOException {
-        // Create a new stage for modal loading alert
-        Stage loadingStage = new Stage();
-        loadingStage.initModality(Modality.APPLICATION_MODAL);
-        loadingStage.initStyle(StageStyle.UNDECORATED);
-        loadingStage.setResizable(false);
-
-        // Create the loading alert content
-        VBox loadingBox = new VBox(10);
-        loadingBox.setAlignment(javafx.geometry.Pos.CENTER);
-        loadingBox.setPadding(new javafx.geometry.Insets(20));
-        loadingBox.setStyle("-fx-background-color: white; -fx-border-color: #cccccc; -fx-border-width: 1px;");
-
-        Label loadingLabel = new Label("Loading Log Entry Screen...");
-        loadingLabel.setStyle("-fx-font-size: 14px;");
-
-        ProgressIndicator progress = new ProgressIndicator();
-        progress.setProgress(-1.0f); // Indeterminate progress
-
-        loadingBox.getChildren().addAll(loadingLabel, progress);
-
-        // Set scene for loading stage
-        Scene loadingScene = new Scene(loadingBox, 400, 150);
-        loadingStage.setScene(loadingScene);
-
-        // Get current stage to disable it
-        Stage currentStage = (Stage) mainLabel.getScene().getWindow();
-
-        // Disable the main window before showing loading dialog
-        currentStage.setOnCloseRequest(event -> event.consume()); // Prevent closing while loading
-        currentStage.getScene().getRoot().setDisable(true);
-
-        // Show the loading dialog
-        loadingStage.show();
-
-        // Use a background thread to load the new screen
-        EXECUTOR.submit(() -> {
-            try {
-                // Load the log entry view in background
-                FXMLLoader loader = new FXMLLoader(getClass().getResource("log-entry.fxml"));
-                Parent root = loader.load();
-
-                // Get controller and set the branch
-                LogEntryController controller = loader.getController();
-                controller.setAuthenticatedBranch(currentBranch);
+    private void onAddLogEntryButtonClick() {
+        String branch = currentBranch;
+        SceneNavigator.<LogEntryController>navigate(SceneNavigator.Screen.LOG_ENTRY,
+                "Add Log Entry - " + branch, "Loading Log Entry Screen...",
+                controller -> controller.setAuthenticatedBranch(branch));
+    }
 
-                // Update UI on JavaFX thread
-                Platform.runLater(() -> {
-                    try {
-                        // Close the loading alert
-                        loadingStage.close();
-
-                        // Re-enable main window in case of any issue
-                        currentStage.setOnCloseRequest(event -> {}); // Reset close handler
-                        currentStage.getScene().getRoot().setDisable(false);
-
-                        // Create and show the stage
-                        Stage logEntryStage = new Stage();
-                        logEntryStage.setTitle("Add Log Entry - " + currentBranch);
-                        logEntryStage.setScene(new Scene(root, 1366, 768));
-                        logEntryStage.setResizable(false);
-
-                        // Close current window
-                        currentStage.close();
-
-                        // Show new window
-                        logEntryStage.show();
-                    } catch (Exception e) {
-                        // Close loading alert in case of error
-                        loadingStage.close();
-
-                        // Re-enable main window
-                        currentStage.setOnCloseRequest(event -> {}); // Reset close handler
-                        currentStage.getScene().getRoot().setDisable(false);
-
-                        // Show error alert
-                        showErrorAlert("Failed to load log entry screen", e.getMessage());
-                        e.printStackTrace();
-                    }
-                });
-            } catch (IOException e) {
-                // Close loading alert in case of error
-                Platform.runLater(() -> {
-                    loadingStage.close();
+    // Shows the low stock alerts of the current location, updated as soon as the alert engine raises them
+    private void watchLowStock() {
+        if (lowStockListener == null) {
+            lowStockListener = raised -> Platform.runLater(this::showLowStock);
+            sheetsService.getLowStockAlerts().addListener(lowStockListener);
+        }
+        showLowStock();
+    }
 
-                    // Re-enable main window
-                    currentStage.setOnCloseRequest(event -> {}); // Reset close handler
-                    currentStage.getScene().getRoot().setDisable(false);
+    private void showLowStock() {
+        List<LowStockAlerts.StockAlert> alerts = getLowStockAlerts();
+        lowStockLabel.setVisible(!alerts.isEmpty());
+        lowStockLabel.setManaged(!alerts.isEmpty());
+        if (alerts.isEmpty()) {
+            return;
+        }
+        String text = "⚠ Low stock: " + alerts.get(0).describe(false);
+        if (alerts.size() > 1) {
+            text += " (+" + (alerts.size() - 1) + " more, click for all)";
+        }
+        lowStockLabel.setText(text);
+    }
 
-                    // Show error alert
-                    showErrorAlert("Failed to load log entry screen", e.getMessage());
-                });
+    private List<LowStockAlerts.StockAlert> getLowStockAlerts() {
+        return sheetsService.getLowStockAlerts().getAlerts(currentBranch);
+    }
 
-                e.printStackTrace();
-            }
-        });
+    @FXML
+    private void onLowStockLabelClick() {
+        StringBuilder content = new StringBuilder();
+        for (LowStockAlerts.StockAlert alert : getLowStockAlerts()) {
+            content.append(alert.describe(false)).append('\n');
+        }
+        Alert lowStockAlert = new Alert(Alert.AlertType.WARNING);
+        lowStockAlert.setTitle("Low Stock");
+        lowStockAlert.setHeaderText("These items are at or below their reorder level:");
+        lowStockAlert.setContentText(content.toString());
+        lowStockAlert.showAndWait();
     }
 
     private void showErrorAlert(String header, String message) {
@@ -717,27 +717,24 @@ public class MainViewController {
     }
 
     @FXML
-    private void onLogoutButtonClick() throws IOException {
-        // Load the login screen
-        FXMLLoader loader = new FXMLLoader(getClass().getResource("login.fxml"));
-        Parent root = loader.load();
-
-        // Create a new stage for the login screen
-        Stage loginStage = new Stage();
-        loginStage.setTitle("VRM Inventory System - Login");
-        loginStage.setScene(new Scene(root, 720, 720));
-        loginStage.setResizable(false);
-
-        // Close current window
-        Stage currentStage = (Stage) mainLabel.getScene().getWindow();
-        currentStage.close();
-
-        // Show login window
-        loginStage.show();
+    private void onLogoutButtonClick() {
+        SceneNavigator.<LoginController>navigate(SceneNavigator.Screen.LOGIN,
+                "VRM Inventory System - Login", "Loading...", LoginController::reset);
     }
 
     // Add this method to MainViewController.java
+    /**
+     * Starts loading a branch's data before the screen is shown, e.g. while the user is still
+     * logging in. A {@link #setBranch(String)} for the same branch shortly after uses it as it is.
+     */
+    public void prepareBranch(String branch) {
+        setBranch(branch);
+        preparedAt = System.nanoTime();
+    }
+
     public void setBranch(String branch) {
+        boolean branchChanged = !branch.equals(currentBranch);
+        boolean prepared = !branchChanged && isPrepared();
         this.currentBranch = branch;
         if (branchLabel != null) {
             branchLabel.setText(branch);
@@ -746,31 +743,23 @@ public class MainViewController {
             mainLabel.setText(branch.toUpperCase() + " Log Sheet");
         }
 
-        // Refresh data with the new branch
-        try {
-            if (sheetsService != null) {
-                logEntries = getLogEntries(currentBranch);
-                filteredLogEntries = new ArrayList<>(logEntries);
-                if (observableLogList != null) {
-                    observableLogList.setAll(filteredLogEntries);
-                }
-            }
-        } catch (IOException e) {
-            if (statusLabel != null) {
-                statusLabel.setText("Error loading data for branch: " + e.getMessage());
-            }
-            e.printStackTrace();
+        // Don't show another branch's rows while the new ones load
+        if (branchChanged && observableLogList != null) {
+            logSource = null;
+            logEntries = new ArrayList<>();
+            resetToFullList();
         }
-    }
 
-    // Add this method to MainViewController.java
-    public void shutdown() {
-        // Shutdown any background tasks
-        if (EXECUTOR != null && !EXECUTOR.isShutdown()) {
-            EXECUTOR.shutdownNow();
+        // Refresh data with the new branch, unless it was just loaded by prepareBranch
+        if (!prepared) {
+            refreshData();
         }
+    }
 
-        // Add any other cleanup needed
-        // ...
+    private boolean isPrepared() {
+        long maxAgeNanos = TimeUnit.SECONDS.toNanos(Config.PREPARED_MAX_AGE_SECONDS.get());
+        boolean prepared = preparedAt >= 0 && System.nanoTime() - preparedAt < maxAgeNanos;
+        preparedAt = -1; // prepared data is only used once
+        return prepared;
     }
-}
\ No newline at end of file
+}
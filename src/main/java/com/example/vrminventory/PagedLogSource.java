@@ -0,0 +1,404 @@
+package com.example.vrminventory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Reads a log sheet a page at a time, newest rows first.
+ * <p>
+ * Page 0 holds the last rows of the sheet, page 1 the rows above it, and so on. Only a window of
+ * at most {@link Config#LOG_MAX_LOADED_PAGES} consecutive pages is kept; loading a page beyond the
+ * window evicts the page at the far end, so memory stays the same however long the sheet grows.
+ * The page size is fixed when the source is created, so pages keep their rows if it is retuned.
+ * <p>
+ * Rows added below the log later can be followed through the service's {@link ChangeFeed}; they are
+ * added to the newest page while it is loaded.
+ * <p>
+ * {@link #open()} and {@link #readPage(int)} talk to the API and belong on a background thread.
+ * The window methods are meant for the FX thread.
+ */
+public class PagedLogSource {
+    /**
+     * Turns a sheet row into a log entry.
+     */
+    @FunctionalInterface
+    public interface RowMapper {
+        /**
+         * @param decoder Decodes the cells and counts bad rows for the page
+         * @param row The cell values of the row; only valid during the call
+         * @param rowNumber The row's number in the sheet
+         * @return The entry, or null to skip the row
+         */
+        LogEntry map(RowDecoder decoder, List<Object> row, int rowNumber);
+    }
+
+    private final GoogleSheetsService sheetsService;
+    private final String sheetName;
+    private final int firstRow;
+    private final String firstColumn;
+    private final String lastColumn;
+    private final RowMapper rowMapper;
+    private final int pageSize = Config.LOG_PAGE_SIZE.get();
+
+    private volatile int lastRow;
+    private volatile int nextRow; // the row after the newest row with data, once opened
+    private volatile boolean dataEndFound; // whether nextRow is confirmed rather than the first row
+
+    // Loaded window, keyed by page number
+    private final TreeMap<Integer, List<LogEntry>> pages = new TreeMap<>();
+
+    /**
+     * @param sheetName The log sheet (e.g., "Branch1")
+     * @param firstRow The first row holding log data
+     * @param firstColumn The first column of a log row (e.g., "I")
+     * @param lastColumn The last column of a log row (e.g., "N")
+     */
+    public PagedLogSource(GoogleSheetsService sheetsService, String sheetName, int firstRow,
+                          String firstColumn, String lastColumn, RowMapper rowMapper) {
+        this.sheetsService = sheetsService;
+        this.sheetName = sheetName;
+        this.firstRow = firstRow;
+        this.firstColumn = firstColumn;
+        this.lastColumn = lastColumn;
+        this.rowMapper = rowMapper;
+        this.nextRow = firstRow;
+    }
+
+    /**
+     * Looks up how far the sheet goes, then reads pages from the newest until one has entries.
+     * <p>
+     * The grid usually has empty rows below the last log; those pages come back empty and are
+     * skipped here. If every page read is empty, the grid goes on far below the log (the inventory
+     * area beside it may be longer), so the last row with data is looked up in the log's first
+     * column and the pages start from there.
+     *
+     * @return The pages read, keyed by page number, to be handed to {@link #putPage(int, List)}
+     * @throws IOException If an API error occurs
+     */
+    public Map<Integer, List<LogEntry>> open() throws IOException {
+        return open(null);
+    }
+
+    /**
+     * Like {@link #open()}, starting from a newest page that was read along with other ranges.
+     *
+     * @param firstPage The reader of page 0, as given by {@link #prefetchFirstPage()} and filled
+     *                  from the response; null to read everything here
+     * @return The pages read, keyed by page number, to be handed to {@link #putPage(int, List)}
+     * @throws IOException If an API error occurs
+     */
+    public Map<Integer, List<LogEntry>> open(PageReader firstPage) throws IOException {
+        Map<Integer, List<LogEntry>> read = new TreeMap<>();
+        int page = 0;
+
+        if (firstPage != null && !firstPage.reachesEnd()) {
+            List<LogEntry> entries = firstPage.finish();
+            read.put(0, entries);
+            if (firstPage.rowsRead > 0) {
+                foundDataEnd(firstPage.start + firstPage.rowsRead);
+            }
+            if (!entries.isEmpty()) {
+                return read;
+            }
+            page = 1;
+        } else {
+            // Without a prefetched page, or when the log reaches the end of the grid as last read
+            // (it may have grown since), look up the current size
+            lastRow = sheetsService.getGridRowCount(sheetName);
+        }
+
+        for (; page < getPageCount() && page < Config.LOG_MAX_LOADED_PAGES.get(); page++) {
+            String range = getPageRange(page);
+            PageReader reader = new PageReader(page);
+            sheetsService.streamValues(sheetName, range, reader);
+            List<LogEntry> entries = reader.finish();
+            read.put(page, entries);
+            if (reader.rowsRead > 0 && !dataEndFound) {
+                foundDataEnd(reader.start + reader.rowsRead);
+            }
+            if (!entries.isEmpty()) {
+                break;
+            }
+        }
+
+        if (!dataEndFound) {
+            int lastDataRow = lastRow < firstRow ? firstRow - 1 : findLastDataRow();
+            foundDataEnd(lastDataRow + 1);
+            if (lastDataRow >= firstRow) {
+                // Page 0 now ends at the last row with data
+                lastRow = lastDataRow;
+                read.clear();
+                read.put(0, readPage(0));
+            }
+        }
+        return read;
+    }
+
+    // The last row with data in the log's first column, or the row above the log if there is none.
+    // One column of the whole log costs far less than reading it; the range is open-ended in case
+    // the grid has grown since it was counted
+    private int findLastDataRow() throws IOException {
+        int[] lastDataRow = {firstRow - 1};
+        sheetsService.streamValues(sheetName, sheetName + "!" + firstColumn + firstRow + ":" + firstColumn,
+                (row, rowIndex) -> {
+                    if (!row.isEmpty()) {
+                        lastDataRow[0] = firstRow + rowIndex;
+                    }
+                });
+        return lastDataRow[0];
+    }
+
+    private void foundDataEnd(int row) {
+        nextRow = Math.max(nextRow, row);
+        dataEndFound = true;
+    }
+
+    /**
+     * Prepares reading the newest page as part of a batch, using the sheet size cached by the
+     * service. Add {@link #getPageRange(int)} of page 0 to the batch with the returned reader,
+     * then pass the reader to {@link #open(PageReader)}.
+     *
+     * @return The reader for page 0, or null if the sheet size isn't known yet
+     */
+    public PageReader prefetchFirstPage() {
+        int cachedRows = sheetsService.getCachedGridRowCount(sheetName);
+        if (cachedRows < firstRow) {
+            return null;
+        }
+        lastRow = cachedRows;
+        return new PageReader(0);
+    }
+
+    /**
+     * Reads one page from the sheet.
+     *
+     * @param page The page number, 0 being the newest
+     * @return The entries of the page, in sheet order
+     * @throws IOException If an API error occurs
+     */
+    public List<LogEntry> readPage(int page) throws IOException {
+        String range = getPageRange(page);
+        if (range == null) {
+            return new ArrayList<>();
+        }
+
+        PageReader reader = new PageReader(page);
+        sheetsService.streamValues(sheetName, range, reader);
+        return reader.finish();
+    }
+
+    /**
+     * @return The A1 range of a page, or null if the page is past the first row
+     */
+    public String getPageRange(int page) {
+        int end = pageEnd(page);
+        if (end < firstRow) {
+            return null;
+        }
+        return sheetName + "!" + firstColumn + pageStart(page) + ":" + lastColumn + end;
+    }
+
+    private int pageEnd(int page) {
+        return lastRow - page * pageSize;
+    }
+
+    private int pageStart(int page) {
+        return Math.max(firstRow, pageEnd(page) - pageSize + 1);
+    }
+
+    /**
+     * Maps the rows of one page as they are streamed.
+     */
+    public class PageReader implements GoogleSheetsService.RowHandler {
+        private final int start;
+        private final int end;
+        private final RowDecoder decoder = new RowDecoder(sheetName);
+        private final List<LogEntry> entries = new ArrayList<>();
+        private int rowsRead;
+
+        private PageReader(int page) {
+            this.start = pageStart(page);
+            this.end = pageEnd(page);
+        }
+
+        @Override
+        public void onRow(List<Object> row, int rowIndex) {
+            rowsRead = rowIndex + 1;
+            LogEntry entry = rowMapper.map(decoder, row, start + rowIndex);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+
+        // Whether the last row of the page has data; trailing empty rows aren't sent
+        private boolean reachesEnd() {
+            return rowsRead > 0 && start + rowsRead - 1 >= end;
+        }
+
+        private List<LogEntry> finish() {
+            decoder.report();
+            return entries;
+        }
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public String getSheetName() {
+        return sheetName;
+    }
+
+    /**
+     * @return The A1 range of {@code rows} rows from {@code startRow} (e.g., "Branch1!I57:N156")
+     */
+    public String getRowsRange(int startRow, int rows) {
+        return sheetName + "!" + firstColumn + startRow + ":" + lastColumn + (startRow + rows - 1);
+    }
+
+    /**
+     * @return The row after the newest row with data as of {@link #open()}, and the new rows added
+     *         since; only meaningful once {@link #hasDataEnd()}
+     */
+    public int getNextRow() {
+        return nextRow;
+    }
+
+    /**
+     * @return Whether the end of the log's data has been found, by {@link #open()} or
+     *         {@link #skipTo(int)}, so {@link #getNextRow()} can be trusted
+     */
+    public boolean hasDataEnd() {
+        return dataEndFound;
+    }
+
+    /**
+     * Marks the rows above a row as read, for a log that was read in full elsewhere, so the source
+     * can be watched for new rows without being opened.
+     */
+    public void skipTo(int row) {
+        foundDataEnd(row);
+    }
+
+    /**
+     * Maps a row reported by a {@link ChangeFeed}.
+     *
+     * @return The entry, or null if the row is skipped
+     */
+    public LogEntry mapRow(List<Object> row, int rowNumber) {
+        RowDecoder decoder = new RowDecoder(sheetName);
+        LogEntry entry = rowMapper.map(decoder, row, rowNumber);
+        decoder.report();
+        return entry;
+    }
+
+    /**
+     * Follows the rows added to this log from a point in the service's change feed, watching the
+     * log for rows written by other terminals. Call once the source is open.
+     *
+     * @param resumeToken The feed's token from before the source was opened, so no row is missed;
+     *                    rows already read are skipped by {@link #addNewEntries(List)}
+     * @param onEntries Receives the entries of new rows, on the feed thread
+     * @param onReset Called on the feed thread when rows may have been missed; read the log again
+     * @return The subscription, to close when the entries are no longer wanted
+     */
+    public ChangeFeed.Subscription followChanges(String resumeToken, Consumer<List<LogEntry>> onEntries,
+                                                 Runnable onReset) {
+        sheetsService.getChangePoller().watch(this);
+        return sheetsService.getChangeFeed().subscribe(resumeToken, new ChangeFeed.Listener() {
+            @Override
+            public void onChanges(List<ChangeFeed.Change> changes) {
+                List<LogEntry> entries = new ArrayList<>();
+                for (ChangeFeed.Change change : changes) {
+                    if (change.kind() == ChangeFeed.Kind.INSERT && change.row() > 0
+                            && change.sheetName().equals(sheetName)) {
+                        LogEntry entry = mapRow(change.values(), change.row());
+                        if (entry != null) {
+                            entries.add(entry);
+                        }
+                    }
+                }
+                if (!entries.isEmpty()) {
+                    onEntries.accept(entries);
+                }
+            }
+
+            @Override
+            public void onReset() {
+                onReset.run();
+            }
+        });
+    }
+
+    /**
+     * Adds entries written below the log since it was opened to the newest page, if it is loaded.
+     * Entries of rows this source has already read are skipped.
+     *
+     * @param entries The entries, in sheet order
+     * @return Whether any entry was added to the window
+     */
+    public boolean addNewEntries(List<LogEntry> entries) {
+        List<LogEntry> newest = pages.get(0);
+        boolean added = false;
+        for (LogEntry entry : entries) {
+            if (entry.getRow() < nextRow) {
+                continue;
+            }
+            nextRow = entry.getRow() + 1;
+            if (newest != null) {
+                newest.add(entry);
+                added = true;
+            }
+        }
+        return added;
+    }
+
+    public int getPageCount() {
+        int rows = lastRow - firstRow + 1;
+        return rows <= 0 ? 0 : (rows + pageSize - 1) / pageSize;
+    }
+
+    /**
+     * Adds a page to the window, evicting the page farthest from it if the window is full.
+     */
+    public void putPage(int page, List<LogEntry> entries) {
+        pages.put(page, entries);
+        while (pages.size() > Config.LOG_MAX_LOADED_PAGES.get()) {
+            if (page - pages.firstKey() >= pages.lastKey() - page) {
+                pages.pollFirstEntry();
+            } else {
+                pages.pollLastEntry();
+            }
+        }
+    }
+
+    /**
+     * @return The next older page to load, or -1 if the oldest page is already loaded
+     */
+    public int nextOlderPage() {
+        int next = pages.isEmpty() ? 0 : pages.lastKey() + 1;
+        return next < getPageCount() ? next : -1;
+    }
+
+    /**
+     * @return The next newer page to load, or -1 if the newest page is already loaded
+     */
+    public int nextNewerPage() {
+        return pages.isEmpty() || pages.firstKey() == 0 ? -1 : pages.firstKey() - 1;
+    }
+
+    /**
+     * @return The entries of all loaded pages, newest page first
+     */
+    public List<LogEntry> getLoadedEntries() {
+        List<LogEntry> entries = new ArrayList<>();
+        for (List<LogEntry> pageEntries : pages.values()) {
+            entries.addAll(pageEntries);
+        }
+        return entries;
+    }
+}
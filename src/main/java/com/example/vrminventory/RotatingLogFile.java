@@ -0,0 +1,133 @@
+package com.example.vrminventory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Log file that rolls over when it passes a size limit or when the day changes.
+ * <p>
+ * Rolled files are gzip-compressed into the archive directory as
+ * {@code application-yyyy-MM-dd.N.log.gz}; only the newest {@code maxArchives} are kept.
+ * Not thread safe: owned by the logger's writer thread.
+ */
+class RotatingLogFile {
+    private final Path file;
+    private final Path archiveDir;
+    private final long maxBytes;
+    private final int maxArchives;
+
+    private Writer writer;
+    private long size;
+    private LocalDate day;
+
+    RotatingLogFile(Path file, Path archiveDir, long maxBytes, int maxArchives) {
+        this.file = file;
+        this.archiveDir = archiveDir;
+        this.maxBytes = maxBytes;
+        this.maxArchives = maxArchives;
+    }
+
+    /**
+     * Writes one line, rolling the file over first if needed.
+     *
+     * @param line The line without its terminator
+     * @param lineDay The day the record belongs to
+     */
+    void writeLine(String line, LocalDate lineDay) throws IOException {
+        if (writer == null) {
+            open(lineDay);
+        }
+        if (!lineDay.equals(day) || size >= maxBytes) {
+            rotate();
+            open(lineDay);
+        }
+
+        writer.write(line);
+        writer.write('\n');
+        size += line.length() + 1; // close enough for ASCII-heavy JSON
+    }
+
+    void flush() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    private void open(LocalDate today) throws IOException {
+        // A file left over from a previous day is archived under that day
+        if (Files.exists(file) && Files.size(file) > 0) {
+            LocalDate fileDay = LocalDate.ofInstant(
+                    Instant.ofEpochMilli(Files.getLastModifiedTime(file).toMillis()), ZoneId.systemDefault());
+            if (!fileDay.equals(today) || Files.size(file) >= maxBytes) {
+                day = fileDay;
+                archive();
+            }
+        }
+
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        size = Files.exists(file) ? Files.size(file) : 0;
+        day = today;
+    }
+
+    private void rotate() throws IOException {
+        close();
+        archive();
+    }
+
+    private void archive() throws IOException {
+        Files.createDirectories(archiveDir);
+
+        String baseName = file.getFileName().toString().replaceFirst("\\.log$", "");
+        int index = 1;
+        Path target;
+        do {
+            target = archiveDir.resolve(baseName + "-" + day + "." + index + ".log.gz");
+            index++;
+        } while (Files.exists(target));
+
+        try (InputStream in = Files.newInputStream(file);
+             OutputStream out = new GZIPOutputStream(Files.newOutputStream(target))) {
+            in.transferTo(out);
+        }
+        Files.delete(file);
+
+        pruneArchives(baseName);
+    }
+
+    private void pruneArchives(String baseName) throws IOException {
+        List<Path> archives = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(archiveDir, baseName + "-*.log.gz")) {
+            stream.forEach(archives::add);
+        }
+        if (archives.size() <= maxArchives) {
+            return;
+        }
+
+        archives.sort(Comparator.comparingLong(path -> path.toFile().lastModified()));
+        for (int i = 0; i < archives.size() - maxArchives; i++) {
+            Files.deleteIfExists(archives.get(i));
+        }
+    }
+}
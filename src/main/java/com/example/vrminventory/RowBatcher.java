@@ -0,0 +1,45 @@
+package com.example.vrminventory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Collects decoded rows and hands them on in batches while a sheet is still being read.
+ * <p>
+ * The first batch is small so the first rows reach the screen quickly; each batch after that is
+ * twice the size of the previous one, up to a limit, so a large sheet takes only a few UI updates.
+ * Both sizes come from {@link Config} when the batcher is created.
+ */
+public class RowBatcher<T> {
+    private final Consumer<List<T>> publisher;
+    private final int maxBatchSize = Config.MAX_BATCH_SIZE.get();
+    private List<T> batch;
+    private int batchSize = Math.min(Config.FIRST_BATCH_SIZE.get(), maxBatchSize);
+
+    /**
+     * @param publisher Receives each batch; a batch is never touched again after publishing
+     */
+    public RowBatcher(Consumer<List<T>> publisher) {
+        this.publisher = publisher;
+        this.batch = new ArrayList<>(batchSize);
+    }
+
+    public void add(T row) {
+        batch.add(row);
+        if (batch.size() >= batchSize) {
+            flush();
+            batchSize = Math.min(batchSize * 2, maxBatchSize);
+        }
+    }
+
+    /**
+     * Publishes the rows collected so far, if any.
+     */
+    public void flush() {
+        if (!batch.isEmpty()) {
+            publisher.accept(batch);
+            batch = new ArrayList<>(batchSize);
+        }
+    }
+}
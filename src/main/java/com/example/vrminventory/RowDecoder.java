@@ -0,0 +1,284 @@
+package com.example.vrminventory;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * Decodes the cells of sheet rows into typed values, and the inventory and log schemas into
+ * InventoryItem and LogEntry.
+ * <p>
+ * Rows are expected to be read with unformatted values and serial-number dates, so numbers arrive
+ * as Long or Double and dates and times as day serials; they are used as they are. Text cells are
+ * still accepted for sheets where numbers were typed in as text. A cell that can't be decoded
+ * marks the row as bad instead of throwing: the row is skipped and counted, and the count is
+ * logged once per load by {@link #report()}.
+ * <p>
+ * One decoder is used per load, on one thread.
+ */
+public final class RowDecoder {
+    // Day 0 of Sheets serial dates
+    private static final LocalDate SERIAL_EPOCH = LocalDate.of(1899, 12, 30);
+    private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+
+    // How dates and times are shown, matching how the sheets display them
+    public static final DateTimeFormatter DATE_DISPLAY = DateTimeFormatter.ofPattern("M/d/yyyy");
+    public static final DateTimeFormatter TIME_DISPLAY = DateTimeFormatter.ofPattern("H:mm:ss");
+
+    // Accepted for dates and times stored as text
+    private static final DateTimeFormatter DATE_TEXT = DateTimeFormatter.ofPattern("M/d/yyyy");
+    private static final DateTimeFormatter TIME_TEXT = DateTimeFormatter.ofPattern("H:mm[:ss]");
+
+    private final String sheetName;
+    private List<Object> row;
+    private boolean valid;
+    private int decodedRows;
+    private int badRows;
+
+    /**
+     * @param sheetName The sheet being decoded, for the bad row report
+     */
+    public RowDecoder(String sheetName) {
+        this.sheetName = sheetName;
+    }
+
+    /**
+     * Decodes a row of InventoryList (SKU, name, category, price) or of a branch inventory
+     * (the same followed by quantity).
+     *
+     * @return The item, or null if the row is empty or bad
+     */
+    public InventoryItem decodeInventoryItem(List<Object> cells, boolean withQuantity) {
+        if (cells.isEmpty()) {
+            return null;
+        }
+
+        begin(cells);
+        int sku = intAt(0);
+        String name = textAt(1);
+        String category = textAt(2);
+        double price = doubleAt(3);
+        int quantity = withQuantity ? intAt(4) : 0;
+
+        return end() ? new InventoryItem(sku, name, category, price, quantity) : null;
+    }
+
+    /**
+     * Decodes a log row: date, time, activity code, SKU, quantity and an optional description,
+     * starting at {@code firstColumn}.
+     *
+     * @return The entry, or null if the row is empty or bad
+     */
+    public LogEntry decodeLogEntry(List<Object> cells, int firstColumn, String branch, ActivityNames activityNames) {
+        if (cells.isEmpty()) {
+            return null;
+        }
+
+        begin(cells);
+        LocalDate date = dateAt(firstColumn);
+        LocalTime time = timeAt(firstColumn + 1);
+        int activityCode = intAt(firstColumn + 2);
+        int sku = intAt(firstColumn + 3);
+        int quantity = intAt(firstColumn + 4);
+        String description = optionalTextAt(firstColumn + 5);
+
+        if (!end()) {
+            return null;
+        }
+
+        LogEntry entry = new LogEntry(branch, date.format(DATE_DISPLAY), time.format(TIME_DISPLAY),
+                activityNames.nameOf(activityCode, branch), sku, quantity, description);
+        entry.setTimestamp(LocalDateTime.of(date, time));
+        return entry;
+    }
+
+    /**
+     * Maps activity codes to their names.
+     */
+    @FunctionalInterface
+    public interface ActivityNames {
+        String nameOf(int activityCode, String branch);
+    }
+
+    /**
+     * Starts decoding a row. Use the typed accessors, then {@link #end()}.
+     */
+    public void begin(List<Object> cells) {
+        row = cells;
+        valid = true;
+    }
+
+    /**
+     * Finishes the current row and counts it.
+     *
+     * @return Whether every cell read from the row decoded
+     */
+    public boolean end() {
+        if (valid) {
+            decodedRows++;
+        } else {
+            badRows++;
+        }
+        return valid;
+    }
+
+    public int intAt(int column) {
+        Object cell = cellAt(column);
+        if (cell instanceof Long number && number >= Integer.MIN_VALUE && number <= Integer.MAX_VALUE) {
+            return number.intValue();
+        }
+        if (cell instanceof Integer || cell instanceof Short || cell instanceof Byte) {
+            return ((Number) cell).intValue(); // rows built in memory rather than read
+        }
+        if (cell instanceof Double number && number == Math.rint(number) && Math.abs(number) <= Integer.MAX_VALUE) {
+            return number.intValue();
+        }
+        if (cell instanceof String text) {
+            return parseInt(text.trim());
+        }
+        valid = false;
+        return 0;
+    }
+
+    public double doubleAt(int column) {
+        Object cell = cellAt(column);
+        if (cell instanceof Number number) {
+            return number.doubleValue();
+        }
+        if (cell instanceof String text && isDecimal(text.trim())) {
+            return Double.parseDouble(text.trim());
+        }
+        valid = false;
+        return 0;
+    }
+
+    public String textAt(int column) {
+        Object cell = cellAt(column);
+        if (cell == null) {
+            valid = false;
+            return "";
+        }
+        return toText(cell);
+    }
+
+    /**
+     * @return The cell as text, or an empty string if the row ends before it
+     */
+    public String optionalTextAt(int column) {
+        return column < row.size() ? toText(row.get(column)) : "";
+    }
+
+    public LocalDate dateAt(int column) {
+        Object cell = cellAt(column);
+        if (cell instanceof Number serial) {
+            return SERIAL_EPOCH.plusDays((long) Math.floor(serial.doubleValue()));
+        }
+        if (cell instanceof String text) {
+            try {
+                return LocalDate.parse(text.trim(), DATE_TEXT);
+            } catch (DateTimeParseException e) {
+                // fall through to a bad row
+            }
+        }
+        valid = false;
+        return SERIAL_EPOCH;
+    }
+
+    public LocalTime timeAt(int column) {
+        Object cell = cellAt(column);
+        if (cell instanceof Number serial) {
+            double fraction = serial.doubleValue() - Math.floor(serial.doubleValue());
+            long seconds = Math.round(fraction * SECONDS_PER_DAY) % SECONDS_PER_DAY;
+            return LocalTime.ofSecondOfDay(seconds);
+        }
+        if (cell instanceof String text) {
+            try {
+                return LocalTime.parse(text.trim(), TIME_TEXT);
+            } catch (DateTimeParseException e) {
+                // fall through to a bad row
+            }
+        }
+        valid = false;
+        return LocalTime.MIDNIGHT;
+    }
+
+    /**
+     * Logs how many rows were skipped, if any. Call once the load is complete.
+     */
+    public void report() {
+        if (badRows > 0) {
+            Logger.log(Logger.Level.WARN, sheetName, "skipped " + badRows + " malformed rows of "
+                    + (decodedRows + badRows));
+        }
+    }
+
+    public int getDecodedRows() {
+        return decodedRows;
+    }
+
+    public int getBadRows() {
+        return badRows;
+    }
+
+    private Object cellAt(int column) {
+        return column < row.size() ? row.get(column) : null;
+    }
+
+    private static String toText(Object cell) {
+        if (cell instanceof String text) {
+            return text.trim();
+        }
+        if (cell instanceof Double number && number == Math.rint(number) && !Double.isInfinite(number)) {
+            return Long.toString(number.longValue());
+        }
+        return String.valueOf(cell);
+    }
+
+    // Parses a decimal integer without throwing; marks the row bad instead
+    private int parseInt(String text) {
+        int length = text.length();
+        int start = length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+') ? 1 : 0;
+        if (length == start || length - start > 10) {
+            valid = false;
+            return 0;
+        }
+
+        long value = 0;
+        for (int i = start; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                valid = false;
+                return 0;
+            }
+            value = value * 10 + (c - '0');
+        }
+        if (text.charAt(0) == '-') {
+            value = -value;
+        }
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            valid = false;
+            return 0;
+        }
+        return (int) value;
+    }
+
+    // Whether text is a plain decimal number, so parsing it can't throw
+    private static boolean isDecimal(String text) {
+        int digits = 0;
+        boolean point = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits++;
+            } else if (c == '.' && !point) {
+                point = true;
+            } else if (!(i == 0 && (c == '-' || c == '+'))) {
+                return false;
+            }
+        }
+        return digits > 0;
+    }
+}
@@ -0,0 +1,318 @@
+package com.example.vrminventory;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * Sales per SKU, category and branch in hourly, daily and monthly buckets, kept up to date as log
+ * rows arrive, so dashboards read a few buckets instead of scanning the logs.
+ * <p>
+ * The branch logs come from the service's {@link LogFollower}, which reads them once, each in
+ * windows of rows fetched in parallel, for every engine built from the history, then follows their
+ * new rows; each row is counted once. Each row adds to one bucket per granularity and dimension:
+ * its SKU, the SKU's category, its branch and the total of all branches.
+ * <p>
+ * Rankings such as the 20 best sellers of the week sum the monthly buckets of the whole months in
+ * the range and the daily buckets of the rest, and keep the leaders in a heap bounded to the number
+ * asked for, so they take milliseconds however long the history is.
+ * <p>
+ * Only sales and returns count. Log rows have no price, so revenue uses the item's price in the
+ * branch catalog when the row is counted.
+ */
+public class SalesRollups {
+    private static final List<String> BRANCHES = List.of("Branch1", "Branch2", "Branch3"); // the warehouse doesn't sell
+
+    // Branch activity codes counted
+    private static final int SALE = 1;
+    private static final int RETURN = 4;
+
+    /**
+     * The length of a bucket.
+     */
+    public enum Granularity {
+        HOUR, DAY, MONTH;
+
+        /**
+         * @return The start of the bucket holding a time
+         */
+        public LocalDateTime bucketOf(LocalDateTime time) {
+            return switch (this) {
+                case HOUR -> time.truncatedTo(ChronoUnit.HOURS);
+                case DAY -> time.truncatedTo(ChronoUnit.DAYS);
+                case MONTH -> time.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+            };
+        }
+    }
+
+    /**
+     * What the rows of a bucket are grouped by.
+     */
+    public enum Dimension {
+        SKU, CATEGORY, BRANCH, ALL,
+
+        /**
+         * An SKU at one branch; keys are the branch and SKU, e.g. "Branch1/101"
+         */
+        SKU_AT_BRANCH
+    }
+
+    /**
+     * What items are ranked by: most units sold, most revenue, or fewest units sold.
+     */
+    public enum Ranking { UNITS_SOLD, REVENUE, SLOWEST }
+
+    /**
+     * An item's place in a ranking.
+     *
+     * @param rank 1 for the first place
+     * @param name The item's name, or the SKU if it isn't in the catalogs
+     */
+    public record RankedItem(int rank, int sku, String name, int unitsSold, double revenue) {
+    }
+
+    /**
+     * The totals of one bucket for one key.
+     *
+     * @param start The start of the bucket
+     * @param key The SKU, category or branch; "All" for {@link Dimension#ALL}
+     * @param unitsSold Units sold
+     * @param unitsReturned Units returned or refunded
+     * @param revenue Sales minus refunds, in pesos
+     */
+    public record Rollup(LocalDateTime start, String key, int unitsSold, int unitsReturned, double revenue) {
+        public int netUnits() {
+            return unitsSold - unitsReturned;
+        }
+    }
+
+    // Running totals of one bucket; guarded by the rollups' lock
+    private static final class Totals {
+        int unitsSold;
+        int unitsReturned;
+        double revenue;
+    }
+
+    private final GoogleSheetsService sheetsService;
+
+    // Buckets by granularity, dimension, start and key; guarded by this
+    private final Map<Granularity, Map<Dimension, NavigableMap<LocalDateTime, Map<String, Totals>>>> buckets =
+            new EnumMap<>(Granularity.class);
+
+    SalesRollups(GoogleSheetsService sheetsService) {
+        this.sheetsService = sheetsService;
+        clear();
+        sheetsService.getLogFollower().register(BRANCHES, this::add, this::clear);
+    }
+
+    public boolean isLoaded() {
+        return sheetsService.getLogFollower().isLoaded();
+    }
+
+    /**
+     * Reads the branch logs and starts following new rows, unless already done. Belongs on a
+     * background thread.
+     *
+     * @throws IOException If an API error occurs
+     */
+    public void load() throws IOException {
+        sheetsService.getLogFollower().load();
+    }
+
+    /**
+     * Reads buckets of a granularity and dimension.
+     *
+     * @param from The earliest time to include
+     * @param to The latest time to include
+     * @return The rollups of the buckets overlapping the range, oldest bucket first
+     */
+    public synchronized List<Rollup> query(Granularity granularity, Dimension dimension,
+                                           LocalDateTime from, LocalDateTime to) {
+        List<Rollup> rollups = new ArrayList<>();
+        NavigableMap<LocalDateTime, Map<String, Totals>> byStart = buckets.get(granularity).get(dimension);
+        for (Map.Entry<LocalDateTime, Map<String, Totals>> bucket
+                : byStart.subMap(granularity.bucketOf(from), true, to, true).entrySet()) {
+            bucket.getValue().forEach((key, totals) -> rollups.add(rollupOf(bucket.getKey(), key, totals)));
+        }
+        return rollups;
+    }
+
+    /**
+     * Reads one bucket.
+     *
+     * @param time Any time in the bucket
+     * @return The rollup, or null if nothing was sold or returned for the key in the bucket
+     */
+    public synchronized Rollup get(Granularity granularity, Dimension dimension, String key, LocalDateTime time) {
+        LocalDateTime start = granularity.bucketOf(time);
+        Map<String, Totals> bucket = buckets.get(granularity).get(dimension).get(start);
+        Totals totals = bucket == null ? null : bucket.get(key);
+        return totals == null ? null : rollupOf(start, key, totals);
+    }
+
+    /**
+     * Ranks items by their sales over a range of whole days.
+     *
+     * @param branch A branch, or null for all branches
+     * @param from Any time on the first day
+     * @param to The latest time to include
+     * @param limit The most items to return
+     * @return The leading items, first place first. For {@link Ranking#SLOWEST}, the items of the
+     *         branch catalogs that sold least, including those that didn't sell at all.
+     */
+    public List<RankedItem> rank(Ranking ranking, String branch, LocalDateTime from, LocalDateTime to, int limit) {
+        Map<Integer, Totals> bySku = sumBySku(branch, from, to);
+        List<String> branches = branch == null ? BRANCHES : List.of(branch);
+        if (ranking == Ranking.SLOWEST) {
+            for (String catalogBranch : branches) {
+                for (InventoryItem item : sheetsService.getCachedCatalog(catalogBranch).getItems()) {
+                    bySku.putIfAbsent(item.getSku(), new Totals());
+                }
+            }
+        }
+
+        Comparator<Map.Entry<Integer, Totals>> leading = switch (ranking) {
+            case UNITS_SOLD -> Comparator.comparingInt((Map.Entry<Integer, Totals> entry) -> entry.getValue().unitsSold).reversed();
+            case REVENUE -> Comparator.comparingDouble((Map.Entry<Integer, Totals> entry) -> entry.getValue().revenue).reversed();
+            case SLOWEST -> Comparator.comparingInt((Map.Entry<Integer, Totals> entry) -> entry.getValue().unitsSold);
+        };
+        leading = leading.thenComparing(Map.Entry::getKey);
+
+        // The heap's head is the weakest item kept, dropped when a stronger one arrives
+        PriorityQueue<Map.Entry<Integer, Totals>> kept = new PriorityQueue<>(leading.reversed());
+        for (Map.Entry<Integer, Totals> entry : bySku.entrySet()) {
+            kept.add(entry);
+            if (kept.size() > limit) {
+                kept.poll();
+            }
+        }
+
+        List<Map.Entry<Integer, Totals>> leaders = new ArrayList<>(kept);
+        leaders.sort(leading);
+        List<RankedItem> ranked = new ArrayList<>(leaders.size());
+        for (Map.Entry<Integer, Totals> entry : leaders) {
+            int sku = entry.getKey();
+            ranked.add(new RankedItem(ranked.size() + 1, sku, itemName(branches, sku),
+                    entry.getValue().unitsSold, entry.getValue().revenue));
+        }
+        return ranked;
+    }
+
+    // Totals per SKU over a range: monthly buckets for the whole months in it, daily ones for the rest
+    private synchronized Map<Integer, Totals> sumBySku(String branch, LocalDateTime from, LocalDateTime to) {
+        Dimension dimension = branch == null ? Dimension.SKU : Dimension.SKU_AT_BRANCH;
+        String prefix = branch == null ? "" : branch + "/";
+        NavigableMap<LocalDateTime, Map<String, Totals>> days = buckets.get(Granularity.DAY).get(dimension);
+        NavigableMap<LocalDateTime, Map<String, Totals>> months = buckets.get(Granularity.MONTH).get(dimension);
+
+        LocalDateTime firstDay = Granularity.DAY.bucketOf(from);
+        LocalDateTime firstWholeMonth = firstDay.getDayOfMonth() == 1 ? firstDay
+                : Granularity.MONTH.bucketOf(firstDay).plusMonths(1);
+        LocalDateTime lastMonth = Granularity.MONTH.bucketOf(to); // partly in the range, or ends after it
+
+        Map<Integer, Totals> bySku = new HashMap<>();
+        if (firstWholeMonth.isBefore(lastMonth)) {
+            sumInto(bySku, prefix, days.subMap(firstDay, true, firstWholeMonth, false));
+            sumInto(bySku, prefix, months.subMap(firstWholeMonth, true, lastMonth, false));
+            sumInto(bySku, prefix, days.subMap(lastMonth, true, to, true));
+        } else {
+            sumInto(bySku, prefix, days.subMap(firstDay, true, to, true));
+        }
+        return bySku;
+    }
+
+    private static void sumInto(Map<Integer, Totals> bySku, String prefix,
+                                NavigableMap<LocalDateTime, Map<String, Totals>> range) {
+        for (Map<String, Totals> bucket : range.values()) {
+            for (Map.Entry<String, Totals> entry : bucket.entrySet()) {
+                if (!entry.getKey().startsWith(prefix)) {
+                    continue;
+                }
+                Totals sum = bySku.computeIfAbsent(Integer.parseInt(entry.getKey().substring(prefix.length())),
+                        sku -> new Totals());
+                sum.unitsSold += entry.getValue().unitsSold;
+                sum.unitsReturned += entry.getValue().unitsReturned;
+                sum.revenue += entry.getValue().revenue;
+            }
+        }
+    }
+
+    private String itemName(List<String> branches, int sku) {
+        for (String branch : branches) {
+            InventoryItem item = sheetsService.getCachedCatalog(branch).findBySku(sku);
+            if (item != null) {
+                return item.getName();
+            }
+        }
+        return String.valueOf(sku);
+    }
+
+    public void shutdown() {
+        clear();
+    }
+
+    private synchronized void clear() {
+        for (Granularity granularity : Granularity.values()) {
+            Map<Dimension, NavigableMap<LocalDateTime, Map<String, Totals>>> byDimension = new EnumMap<>(Dimension.class);
+            for (Dimension dimension : Dimension.values()) {
+                byDimension.put(dimension, new TreeMap<>());
+            }
+            buckets.put(granularity, byDimension);
+        }
+    }
+
+    // Counts one log row: date, time, activity code, SKU, quantity and description
+    private synchronized void add(RowDecoder decoder, String branch, int rowNumber, List<Object> row) {
+        decoder.begin(row);
+        LocalDateTime timestamp = LocalDateTime.of(decoder.dateAt(0), decoder.timeAt(1));
+        int activityCode = decoder.intAt(2);
+        int sku = decoder.intAt(3);
+        int quantity = decoder.intAt(4);
+        if (!decoder.end() || (activityCode != SALE && activityCode != RETURN)) {
+            return;
+        }
+
+        InventoryItem item = sheetsService.getCachedCatalog(branch).findBySku(sku);
+        String category = item != null ? item.getCategory() : "Unknown";
+        double price = item != null ? item.getPrice() : 0;
+        boolean sale = activityCode == SALE;
+
+        for (Granularity granularity : Granularity.values()) {
+            LocalDateTime start = granularity.bucketOf(timestamp);
+            Map<Dimension, NavigableMap<LocalDateTime, Map<String, Totals>>> byDimension = buckets.get(granularity);
+            addTo(byDimension, Dimension.SKU, start, String.valueOf(sku), sale, quantity, price);
+            addTo(byDimension, Dimension.CATEGORY, start, category, sale, quantity, price);
+            addTo(byDimension, Dimension.BRANCH, start, branch, sale, quantity, price);
+            addTo(byDimension, Dimension.ALL, start, "All", sale, quantity, price);
+            addTo(byDimension, Dimension.SKU_AT_BRANCH, start, branch + "/" + sku, sale, quantity, price);
+        }
+    }
+
+    private static void addTo(Map<Dimension, NavigableMap<LocalDateTime, Map<String, Totals>>> byDimension,
+                              Dimension dimension, LocalDateTime start, String key,
+                              boolean sale, int quantity, double price) {
+        Totals totals = byDimension.get(dimension)
+                .computeIfAbsent(start, bucket -> new HashMap<>())
+                .computeIfAbsent(key, name -> new Totals());
+        if (sale) {
+            totals.unitsSold += quantity;
+            totals.revenue += quantity * price;
+        } else {
+            totals.unitsReturned += quantity;
+            totals.revenue -= quantity * price;
+        }
+    }
+
+    private static Rollup rollupOf(LocalDateTime start, String key, Totals totals) {
+        return new Rollup(start, key, totals.unitsSold, totals.unitsReturned, totals.revenue);
+    }
+}
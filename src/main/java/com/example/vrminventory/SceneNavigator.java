@@ -0,0 +1,223 @@
+package com.example.vrminventory;
+
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.layout.VBox;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+import javafx.stage.StageStyle;
+import javafx.util.Duration;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+
+/**
+ * Switches screens inside the single application stage.
+ * <p>
+ * Every screen is loaded from FXML once, off the FX thread, and then kept together with its
+ * controller and scene for the rest of the session. Screens can be preloaded ahead of time, so
+ * navigating to them only swaps the stage's scene; the loading dialog only appears if a screen
+ * is still being loaded when the user asks for it.
+ */
+public final class SceneNavigator {
+
+    public enum Screen {
+        LOGIN("login.fxml", 720, 720),
+        MAIN_VIEW("main-view.fxml", 1366, 768),
+        LOG_ENTRY("log-entry.fxml", 1366, 768),
+        ADMIN_MAIN_VIEW("admin-main-view.fxml", 1366, 768),
+        ADMIN_INVENTORY("admin-inventory.fxml", 1366, 768);
+
+        private final String fxml;
+        private final double width;
+        private final double height;
+
+        Screen(String fxml, double width, double height) {
+            this.fxml = fxml;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    // A loaded screen; the scene is created on first display, on the FX thread
+    private static final class View {
+        private final Parent root;
+        private final Object controller;
+        private Scene scene;
+
+        private View(Parent root, Object controller) {
+            this.root = root;
+            this.controller = controller;
+        }
+    }
+
+    private static final long LOADING_DIALOG_DELAY_MILLIS = 150;
+    private static final ExecutorService LOADER = TunableThreadPool.newFixedThreadPool(Config.WORKER_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "fxml-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Map<Screen, CompletableFuture<View>> VIEWS = new ConcurrentHashMap<>();
+
+    private static Stage stage;
+
+    private SceneNavigator() {
+    }
+
+    /**
+     * Registers the application stage and the screen it is already showing.
+     */
+    public static void init(Stage primaryStage, Screen screen, Object controller) {
+        stage = primaryStage;
+        View view = new View(primaryStage.getScene().getRoot(), controller);
+        view.scene = primaryStage.getScene();
+        VIEWS.put(screen, CompletableFuture.completedFuture(view));
+    }
+
+    /**
+     * Starts loading a screen in the background if it isn't loaded or loading already.
+     */
+    public static CompletableFuture<?> preload(Screen screen) {
+        return VIEWS.computeIfAbsent(screen, s -> CompletableFuture.supplyAsync(() -> load(s), LOADER));
+    }
+
+    /**
+     * Loads a screen ahead of time and builds its scene, then hands its controller to
+     * {@code onLoaded} on the FX thread, e.g. so it can start loading its data before it is shown.
+     * Nothing is shown; a screen that fails to load is reported when it is navigated to.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> void prepare(Screen screen, Consumer<T> onLoaded) {
+        VIEWS.computeIfAbsent(screen, s -> CompletableFuture.supplyAsync(() -> load(s), LOADER))
+                .thenAccept(view -> Platform.runLater(() -> {
+                    buildScene(screen, view);
+                    onLoaded.accept((T) view.controller);
+                }));
+    }
+
+    /**
+     * Shows a screen in the application stage. Must be called on the FX thread.
+     *
+     * @param screen The screen to show
+     * @param title The stage title
+     * @param loadingMessage Shown if the screen still has to finish loading
+     * @param onShow Called with the screen's controller right before it is shown, on the FX thread
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> void navigate(Screen screen, String title, String loadingMessage, Consumer<T> onShow) {
+        CompletableFuture<View> future = VIEWS.computeIfAbsent(screen,
+                s -> CompletableFuture.supplyAsync(() -> load(s), LOADER));
+
+        if (future.isDone() && !future.isCompletedExceptionally()) {
+            show(screen, future.join(), title, (Consumer<Object>) onShow);
+            return;
+        }
+
+        // Block input while waiting, but only put up the dialog if the wait is noticeable
+        Parent currentRoot = stage.getScene().getRoot();
+        currentRoot.setDisable(true);
+        Stage loadingStage = createLoadingStage(loadingMessage);
+        PauseTransition delay = new PauseTransition(Duration.millis(LOADING_DIALOG_DELAY_MILLIS));
+        delay.setOnFinished(event -> loadingStage.show());
+        delay.play();
+
+        future.whenComplete((view, error) -> Platform.runLater(() -> {
+            delay.stop();
+            loadingStage.close();
+            currentRoot.setDisable(false);
+
+            if (error != null) {
+                VIEWS.remove(screen, future); // allow a retry
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                Logger.logError("Failed to load " + screen.fxml, new Exception(cause.getMessage(), cause));
+                showErrorAlert("Failed to load screen", cause.getMessage());
+                return;
+            }
+
+            show(screen, view, title, (Consumer<Object>) onShow);
+        }));
+    }
+
+    public static void shutdown() {
+        LOADER.shutdownNow();
+    }
+
+    private static View load(Screen screen) {
+        FXMLLoader loader = new FXMLLoader(SceneNavigator.class.getResource(screen.fxml));
+        try {
+            Parent root = loader.load();
+            return new View(root, loader.getController());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Creates the scene and lays it out, so showing it later is only a scene swap
+    private static void buildScene(Screen screen, View view) {
+        if (view.scene == null) {
+            view.scene = new Scene(view.root, screen.width, screen.height);
+            view.root.applyCss();
+            view.root.layout();
+        }
+    }
+
+    private static void show(Screen screen, View view, String title, Consumer<Object> onShow) {
+        buildScene(screen, view);
+        if (onShow != null) {
+            onShow.accept(view.controller);
+        }
+
+        stage.setTitle(title);
+        stage.setScene(view.scene);
+        stage.setResizable(false);
+        stage.sizeToScene();
+        stage.centerOnScreen();
+    }
+
+    private static Stage createLoadingStage(String message) {
+        Stage loadingStage = new Stage();
+        loadingStage.initModality(Modality.APPLICATION_MODAL);
+        loadingStage.initStyle(StageStyle.UNDECORATED);
+        loadingStage.setResizable(false);
+
+        // Create the loading alert content
+        VBox loadingBox = new VBox(10);
+        loadingBox.setAlignment(javafx.geometry.Pos.CENTER);
+        loadingBox.setPadding(new javafx.geometry.Insets(20));
+        loadingBox.setStyle("-fx-background-color: white; -fx-border-color: #cccccc; -fx-border-width: 1px;");
+
+        Label loadingLabel = new Label(message);
+        loadingLabel.setStyle("-fx-font-size: 14px;");
+
+        ProgressIndicator progress = new ProgressIndicator();
+        progress.setProgress(-1.0f); // Indeterminate progress
+
+        loadingBox.getChildren().addAll(loadingLabel, progress);
+
+        loadingStage.setScene(new Scene(loadingBox, 400, 150));
+        return loadingStage;
+    }
+
+    private static void showErrorAlert(String header, String message) {
+        Alert errorAlert = new Alert(Alert.AlertType.ERROR);
+        errorAlert.setTitle("Error");
+        errorAlert.setHeaderText(header);
+        errorAlert.setContentText("Error: " + message);
+        errorAlert.initModality(Modality.APPLICATION_MODAL);
+        errorAlert.initStyle(StageStyle.UNDECORATED);
+        errorAlert.showAndWait();
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.vrminventory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Loads everything a screen shows first with a single request.
+ * <p>
+ * A screen names the inventory sheets it needs and, optionally, the log it pages through. Catalogs
+ * that aren't cached and the newest log page are read together in one {@code values.batchGet};
+ * categories and SKU lookups are derived from the catalogs in memory. Catalogs come first in the
+ * batch and are cached as soon as their range has been read, so log rows later in the same response
+ * are enriched from them without another request.
+ * <p>
+ * The log page can only join the batch once the service knows the sheet's size; until then, and
+ * when the log has grown past the size known, the log source reads its own first pages afterwards.
+ * When catalogs come from an {@link InventoryServer}, they are read from it first and only the log
+ * page is read from Sheets.
+ * <p>
+ * {@link #load()} talks to the API and belongs on a background thread.
+ */
+public class ScreenBootstrap {
+    private final GoogleSheetsService sheetsService;
+    private final String label;
+
+    // Sheets to read even if cached, with their batch consumers (which may be null)
+    private final Map<String, Consumer<List<InventoryItem>>> freshCatalogs = new LinkedHashMap<>();
+    private final List<String> catalogs = new ArrayList<>();
+    private PagedLogSource logSource;
+
+    private final Map<String, InventoryCatalog> loadedCatalogs = new HashMap<>();
+    private Map<Integer, List<LogEntry>> firstPages = Map.of();
+
+    /**
+     * @param label What the screen shows, for logging (e.g., "Branch1")
+     */
+    public ScreenBootstrap(GoogleSheetsService sheetsService, String label) {
+        this.sheetsService = sheetsService;
+        this.label = label;
+    }
+
+    /**
+     * Adds an inventory sheet, read only if it isn't cached.
+     */
+    public ScreenBootstrap catalog(String sheetName) {
+        if (!catalogs.contains(sheetName) && !freshCatalogs.containsKey(sheetName)) {
+            catalogs.add(sheetName);
+        }
+        return this;
+    }
+
+    /**
+     * Adds an inventory sheet that is read again even if cached, handing its items on in batches.
+     *
+     * @param onBatch Receives the items in batches as they are decoded; may be null
+     */
+    public ScreenBootstrap freshCatalog(String sheetName, Consumer<List<InventoryItem>> onBatch) {
+        freshCatalogs.put(sheetName, onBatch);
+        catalogs.remove(sheetName);
+        return this;
+    }
+
+    /**
+     * Adds the newest page(s) of a log.
+     */
+    public ScreenBootstrap log(PagedLogSource source) {
+        this.logSource = source;
+        return this;
+    }
+
+    /**
+     * Reads everything added, in one request when possible.
+     *
+     * @throws IOException If an API error occurs
+     */
+    public void load() throws IOException {
+        List<String> ranges = new ArrayList<>();
+        List<GoogleSheetsService.RowHandler> handlers = new ArrayList<>();
+        List<Runnable> finishers = new ArrayList<>();
+
+        for (Map.Entry<String, Consumer<List<InventoryItem>>> fresh : freshCatalogs.entrySet()) {
+            if (sheetsService.usesServer()) {
+                sheetsService.clearCache(fresh.getKey());
+            }
+            addCatalog(fresh.getKey(), fresh.getValue(), ranges, handlers, finishers);
+        }
+        for (String sheetName : catalogs) {
+            if (sheetsService.isCatalogCached(sheetName)) {
+                loadedCatalogs.put(sheetName, sheetsService.getCatalog(sheetName));
+            } else {
+                addCatalog(sheetName, null, ranges, handlers, finishers);
+            }
+        }
+
+        PagedLogSource.PageReader firstPage = null;
+        if (logSource != null) {
+            firstPage = logSource.prefetchFirstPage();
+            if (firstPage != null) {
+                ranges.add(logSource.getPageRange(0));
+                handlers.add(firstPage);
+                finishers.add(() -> { }); // the log source finishes the page when it opens
+            }
+        }
+
+        if (!ranges.isEmpty()) {
+            sheetsService.batchStreamValues(label, ranges, handlers, rangeIndex -> finishers.get(rangeIndex).run());
+        }
+        if (logSource != null) {
+            firstPages = logSource.open(firstPage);
+        }
+    }
+
+    private void addCatalog(String sheetName, Consumer<List<InventoryItem>> onBatch, List<String> ranges,
+                            List<GoogleSheetsService.RowHandler> handlers, List<Runnable> finishers) {
+        if (sheetsService.usesServer()) {
+            // Catalogs come from the inventory server before the batch; only the log page is left in it
+            loadedCatalogs.put(sheetName, sheetsService.getCatalog(sheetName, onBatch));
+            return;
+        }
+
+        InventoryCatalog.Reader reader = GoogleSheetsService.catalogReader(sheetName, onBatch);
+        ranges.add(GoogleSheetsService.inventoryRange(sheetName));
+        handlers.add(reader);
+        finishers.add(() -> {
+            InventoryCatalog catalog = reader.finish();
+            sheetsService.putCatalog(sheetName, catalog);
+            loadedCatalogs.put(sheetName, catalog);
+        });
+    }
+
+    /**
+     * @return The catalog of a sheet added to this bootstrap, empty if it wasn't in the response
+     */
+    public InventoryCatalog getCatalog(String sheetName) {
+        return loadedCatalogs.getOrDefault(sheetName, InventoryCatalog.EMPTY);
+    }
+
+    /**
+     * @return The first pages of the log, keyed by page number, for {@link PagedLogSource#putPage(int, List)}
+     */
+    public Map<Integer, List<LogEntry>> getFirstPages() {
+        return firstPages;
+    }
+}
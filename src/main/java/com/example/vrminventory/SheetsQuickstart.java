@@ -20,10 +20,6 @@ public class SheetsQuickstart {
             // Create the sheets service
             GoogleSheetsService sheetsService = new GoogleSheetsService();
 
-            // Find the next available row in Branch3
-            String branch3Range = sheetsService.findNextRow("Branch3!");
-            System.out.println("Next available range: " + branch3Range);
-
             // Prepare the data to write
             List<Object> dataToWrite = Arrays.asList(
                     LocalDate.now().format(DATE_FORMATTER),
@@ -34,9 +30,9 @@ public class SheetsQuickstart {
                     "SampleDesc"
             );
 
-            // Write the data
-            int cellsUpdated = sheetsService.writeData(branch3Range, dataToWrite);
-            System.out.printf("%d cells updated.%n", cellsUpdated);
+            // Append the data to the Branch3 log
+            int writtenRow = sheetsService.appendRow("Branch3!", dataToWrite);
+            System.out.printf("Log entry written to row %d.%n", writtenRow);
 
             // Demonstrate retrieving inventory items
             List<InventoryItem> items = sheetsService.getAllInventoryItems("Branch1");
@@ -0,0 +1,43 @@
+package com.example.vrminventory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records how long the application takes to reach each startup milestone.
+ * <p>
+ * Each milestone is logged once, with the time since {@link #begin()}, so time-to-interactive
+ * (login screen usable), time to a ready Sheets connection and time to the first data on screen
+ * can be read from the application log.
+ */
+public final class StartupMetrics {
+    public static final String LOGIN_SHOWN = "login screen interactive";
+    public static final String SHEETS_READY = "sheets service ready";
+    public static final String FIRST_DATA = "first data shown";
+
+    private static final Map<String, Long> MILESTONES = new ConcurrentHashMap<>();
+    private static volatile long startedNanos = System.nanoTime();
+
+    private StartupMetrics() {
+    }
+
+    /**
+     * Marks the start of the application; call first thing in main.
+     */
+    public static void begin() {
+        startedNanos = System.nanoTime();
+        MILESTONES.clear();
+    }
+
+    /**
+     * Records a milestone the first time it is reached; later calls are ignored.
+     *
+     * @param milestone One of the milestone names of this class
+     */
+    public static void mark(String milestone) {
+        long elapsedMillis = (System.nanoTime() - startedNanos) / 1_000_000;
+        if (MILESTONES.putIfAbsent(milestone, elapsedMillis) == null) {
+            Logger.log("startup: " + milestone + " after " + elapsedMillis + " ms");
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.example.vrminventory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Current stock per branch and SKU, kept up to date from the log rows in the {@link ChangeFeed}.
+ * <p>
+ * A branch is seeded with the quantities of its catalog when the catalog is first read. From then
+ * on each logged activity is applied as a delta as soon as the feed reports its row, so a stock
+ * query is a map lookup that already includes writes the sheet's formulas haven't been read back
+ * for.
+ * <p>
+ * Every {@code ledger.verifySeconds} the tracked branches' catalogs are read again, in one request,
+ * and compared with the ledger. A row still on its way through the feed makes a difference that
+ * goes away by the next check; a difference found twice in a row is drift, and the ledger takes
+ * the sheet's quantity.
+ * <p>
+ * Listeners are told the new stock of the items each batch of rows or check changed, and of no
+ * others.
+ */
+public class StockLedger {
+    private static final Set<String> BRANCHES = Set.of("Branch1", "Branch2", "Branch3", "Warehouse");
+
+    private final GoogleSheetsService sheetsService;
+
+    /**
+     * Receives stock changes.
+     */
+    public interface Listener {
+        /**
+         * Called on the feed or check thread after quantities of a branch changed.
+         *
+         * @param quantities The new stock of each changed item, by SKU
+         */
+        void onStockChanged(String branch, Map<Integer, Integer> quantities);
+    }
+
+    private record Key(String branch, int sku) {
+    }
+
+    private final Map<Key, Integer> stock = new ConcurrentHashMap<>();
+    private final Set<String> trackedBranches = ConcurrentHashMap.newKeySet();
+
+    // Differences found by the last check, ledger minus sheet; verifier thread only
+    private final Map<Key, Integer> suspectedDrift = new ConcurrentHashMap<>();
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private ChangeFeed.Subscription subscription;
+    private ScheduledExecutorService verifier;
+
+    StockLedger(GoogleSheetsService sheetsService) {
+        this.sheetsService = sheetsService;
+    }
+
+    /**
+     * @return The stock of an item at a branch, or null if the branch isn't tracked yet or has no
+     *         such item
+     */
+    public Integer getStock(String branch, int sku) {
+        return stock.get(new Key(branch, sku));
+    }
+
+    public boolean isTracking(String branch) {
+        return trackedBranches.contains(branch);
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * How a logged activity changes the quantity of the item at the branch.
+     *
+     * @param activityCode The code in the log row: 1 Supply and 2 Transfer-Out at the warehouse;
+     *                     1 Sale, 2 Transfer-In, 3 Transfer-Out and 4 Return/Refund at a branch
+     */
+    public static int quantityChange(String branch, int activityCode, int quantity) {
+        if (branch.equals("Warehouse")) {
+            return activityCode == 1 ? quantity : -quantity; // Supply, Transfer-Out
+        }
+        return switch (activityCode) {
+            case 2, 4 -> quantity; // Transfer-In, Return/Refund
+            default -> -quantity; // Sale, Transfer-Out
+        };
+    }
+
+    /**
+     * Starts following the change feed and checking against the sheets.
+     */
+    public synchronized void start() {
+        if (subscription != null) {
+            return;
+        }
+        subscription = sheetsService.getChangeFeed().subscribe(null, new ChangeFeed.Listener() {
+            @Override
+            public void onChanges(List<ChangeFeed.Change> changes) {
+                apply(changes);
+            }
+
+            @Override
+            public void onReset() {
+                // Rows may have been missed; take the sheets' quantities at the next check
+                verifier.execute(() -> verify(true));
+            }
+        });
+
+        verifier = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stock-ledger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduleVerify();
+    }
+
+    public synchronized void stop() {
+        if (subscription != null) {
+            subscription.close();
+            verifier.shutdownNow();
+        }
+    }
+
+    /**
+     * Seeds a branch from the first catalog read of it. Later reads are checks, not seeds.
+     */
+    void seed(String branch, InventoryCatalog catalog) {
+        if (!BRANCHES.contains(branch) || !trackedBranches.add(branch)) {
+            return;
+        }
+        for (InventoryItem item : catalog.getItems()) {
+            stock.putIfAbsent(new Key(branch, item.getSku()), item.getQuantity());
+        }
+    }
+
+    // Applies the log rows of tracked branches; called on the feed thread
+    private void apply(List<ChangeFeed.Change> changes) {
+        Map<Key, Integer> changed = new HashMap<>();
+        RowDecoder decoder = null;
+        for (ChangeFeed.Change change : changes) {
+            String branch = change.sheetName();
+            if (change.kind() != ChangeFeed.Kind.INSERT || change.row() == 0 || !trackedBranches.contains(branch)) {
+                continue;
+            }
+            if (decoder == null) {
+                decoder = new RowDecoder("stock ledger");
+            }
+
+            // Log rows: date, time, activity code, SKU, quantity and description
+            decoder.begin(change.values());
+            int activityCode = decoder.intAt(2);
+            int sku = decoder.intAt(3);
+            int quantity = decoder.intAt(4);
+            if (decoder.end()) {
+                Key key = new Key(branch, sku);
+                changed.put(key, stock.merge(key, quantityChange(branch, activityCode, quantity), Integer::sum));
+            }
+        }
+        if (decoder != null) {
+            decoder.report();
+        }
+        notifyListeners(changed);
+    }
+
+    private void notifyListeners(Map<Key, Integer> changed) {
+        if (changed.isEmpty() || listeners.isEmpty()) {
+            return;
+        }
+        Map<String, Map<Integer, Integer>> byBranch = new TreeMap<>();
+        changed.forEach((key, quantity) ->
+                byBranch.computeIfAbsent(key.branch(), branch -> new HashMap<>()).put(key.sku(), quantity));
+        for (Listener listener : listeners) {
+            byBranch.forEach((branch, quantities) -> {
+                try {
+                    listener.onStockChanged(branch, quantities);
+                } catch (RuntimeException e) {
+                    Logger.logError("Stock listener failed", e);
+                }
+            });
+        }
+    }
+
+    private void scheduleVerify() {
+        verifier.schedule(() -> {
+            try {
+                verify(false);
+            } finally {
+                if (!verifier.isShutdown()) {
+                    scheduleVerify();
+                }
+            }
+        }, Config.LEDGER_VERIFY_SECONDS.get(), TimeUnit.SECONDS);
+    }
+
+    /**
+     * Reads the tracked branches' catalogs again and compares them with the ledger.
+     *
+     * @param reset Whether to take every quantity from the sheets, rather than only drift
+     * @return The number of quantities corrected
+     */
+    public int verify(boolean reset) {
+        List<String> branches = new ArrayList<>(trackedBranches);
+        if (branches.isEmpty()) {
+            return 0;
+        }
+
+        ScreenBootstrap bootstrap = new ScreenBootstrap(sheetsService, "stock check");
+        branches.forEach(branch -> bootstrap.freshCatalog(branch, null));
+        try {
+            bootstrap.load();
+        } catch (IOException e) {
+            Logger.logError("Failed to check stock ledger against the sheets", e);
+            return 0;
+        }
+
+        int corrected = 0;
+        Map<Key, Integer> changed = new HashMap<>();
+        for (String branch : branches) {
+            for (InventoryItem item : bootstrap.getCatalog(branch).getItems()) {
+                Key key = new Key(branch, item.getSku());
+                Integer ledgerQuantity = stock.putIfAbsent(key, item.getQuantity());
+                if (ledgerQuantity == null) {
+                    changed.put(key, item.getQuantity()); // an item added since the branch was seeded
+                    continue;
+                }
+
+                int difference = ledgerQuantity - item.getQuantity();
+                if (difference == 0) {
+                    suspectedDrift.remove(key);
+                } else if (reset || Integer.valueOf(difference).equals(suspectedDrift.get(key))) {
+                    changed.put(key, stock.merge(key, -difference, Integer::sum));
+                    suspectedDrift.remove(key);
+                    corrected++;
+                } else {
+                    suspectedDrift.put(key, difference);
+                }
+            }
+        }
+        if (corrected > 0) {
+            Logger.log(Logger.Level.WARN, "stock ledger", "Corrected " + corrected + " quantities to match the sheets");
+        }
+        notifyListeners(changed);
+        return corrected;
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.vrminventory;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * Ids of log entries in time order, for finding the entries of a time range in O(log n + k).
+ * <p>
+ * Each entry is one {@code long}: its timestamp in seconds in the high bits and its id in the low
+ * {@value #ID_BITS}, kept in a sorted array, so a range is two binary searches and its entries are
+ * the positions between them. A table of where each day starts narrows the searches to one day,
+ * and answers ranges of whole days without searching.
+ * <p>
+ * Entries added in time order keep the array sorted; the first lookup after an older entry sorts
+ * it again, which happens mostly while the logs are first read, one sheet after another.
+ * Not thread-safe.
+ */
+final class TimeIndex {
+    private static final int ID_BITS = 24;
+    private static final long ID_MASK = (1L << ID_BITS) - 1;
+    // Seconds that still fit above the id, about 8,700 years either way of 1970
+    private static final long MAX_SECONDS = Long.MAX_VALUE >> ID_BITS;
+    private static final long SECONDS_PER_DAY = 86_400;
+    // A day table spanning more days than this, from a mistyped year, isn't kept
+    private static final int MAX_DAYS = 36_600;
+
+    private long[] keys = new long[1024];
+    private int size;
+    private boolean sorted = true;
+
+    // dayStarts[d] is the first position on day firstDay + d, for the days firstDay to lastDay;
+    // null if not built yet or the days span too long
+    private int[] dayStarts;
+    private long firstDay;
+    private long lastDay;
+
+    /**
+     * @param id The entry's id, below 2^24
+     */
+    void add(LocalDateTime timestamp, int id) {
+        if (id < 0 || id > ID_MASK) {
+            throw new IllegalArgumentException("Entry id out of range: " + id);
+        }
+        long key = keyOf(seconds(timestamp)) | id;
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+        }
+        if (size > 0 && key < keys[size - 1]) {
+            sorted = false;
+            dayStarts = null;
+        } else if (sorted && dayStarts != null) {
+            extendDays(key, size);
+        }
+        keys[size++] = key;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        size = 0;
+        sorted = true;
+        dayStarts = null;
+    }
+
+    /**
+     * @return The first position at or after a time
+     */
+    int lowerBound(LocalDateTime from) {
+        return positionOf(seconds(from));
+    }
+
+    /**
+     * @return The position after the last entry at or before a time
+     */
+    int upperBound(LocalDateTime to) {
+        long seconds = seconds(to);
+        return seconds >= MAX_SECONDS ? size : positionOf(seconds + 1);
+    }
+
+    /**
+     * @return The id of the entry at a position, from {@code 0} (oldest) to {@code size() - 1}
+     */
+    int idAt(int position) {
+        return (int) (keys[position] & ID_MASK);
+    }
+
+    // The first position at or after a second
+    private int positionOf(long seconds) {
+        ensureSorted();
+        if (size == 0) {
+            return 0;
+        }
+        long key = keyOf(seconds);
+        long day = Math.floorDiv(seconds, SECONDS_PER_DAY);
+        if (dayStarts == null) {
+            return search(0, size, key);
+        }
+        if (day < firstDay) {
+            return 0;
+        }
+        if (day > lastDay) {
+            return size;
+        }
+        int start = dayStarts[(int) (day - firstDay)];
+        int end = day == lastDay ? size : dayStarts[(int) (day + 1 - firstDay)];
+        // A whole day needs no search
+        return seconds == day * SECONDS_PER_DAY ? start : search(start, end, key);
+    }
+
+    // The first position from start to end whose key is at least key
+    private int search(int start, int end, long key) {
+        int low = start;
+        int high = end;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle] < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // Sorts the keys and builds the day table, if an older entry was added since the last lookup
+    private void ensureSorted() {
+        if (!sorted) {
+            Arrays.sort(keys, 0, size);
+            sorted = true;
+        }
+        if (dayStarts == null && size > 0) {
+            firstDay = dayOf(keys[0]);
+            lastDay = dayOf(keys[size - 1]);
+            if (lastDay - firstDay < MAX_DAYS) {
+                dayStarts = new int[(int) (lastDay - firstDay) + 1];
+                long day = firstDay;
+                for (int position = 0; position < size; position++) {
+                    long entryDay = dayOf(keys[position]);
+                    for (; day <= entryDay; day++) {
+                        dayStarts[(int) (day - firstDay)] = position;
+                    }
+                }
+            }
+        }
+    }
+
+    // Records a key added in order at a position
+    private void extendDays(long key, int position) {
+        long day = dayOf(key);
+        if (day <= lastDay) {
+            return;
+        }
+        if (day - firstDay >= MAX_DAYS) {
+            dayStarts = null;
+            return;
+        }
+        int length = (int) (day - firstDay) + 1;
+        if (length > dayStarts.length) {
+            dayStarts = Arrays.copyOf(dayStarts, Math.max(length, dayStarts.length * 2));
+        }
+        for (long next = lastDay + 1; next <= day; next++) {
+            dayStarts[(int) (next - firstDay)] = position;
+        }
+        lastDay = day;
+    }
+
+    private static long seconds(LocalDateTime time) {
+        long seconds = time.toEpochSecond(ZoneOffset.UTC);
+        return Math.max(-MAX_SECONDS, Math.min(MAX_SECONDS, seconds));
+    }
+
+    private static long keyOf(long seconds) {
+        return seconds << ID_BITS;
+    }
+
+    private static long dayOf(long key) {
+        return Math.floorDiv(key >> ID_BITS, SECONDS_PER_DAY);
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.vrminventory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * Pairs each Transfer-Out with the Transfer-In it became at another branch.
+ * <p>
+ * Transfers are joined on SKU and quantity through a hash map of the transfers not yet paired, with
+ * the candidates of each key kept in time order. A new row only looks at the unpaired transfers
+ * going the other way with the same key, logged at another sheet within
+ * {@code transfers.windowHours} of it, and takes the closest in time. Paired transfers leave the
+ * map, so a row costs the same however long the history grows.
+ * <p>
+ * An unpaired transfer is in transit while its window is open, including a Transfer-In logged
+ * before its Transfer-Out, and unmatched once the window has closed. Paired transfers are counted,
+ * and kept for listing for {@code transfers.matchedDays} after their Transfer-Out, so they don't
+ * accumulate either.
+ * <p>
+ * The logs are read once, for every engine built from the history, and followed through the
+ * service's {@link LogFollower}.
+ */
+public class TransferReconciler {
+    private static final List<String> SHEETS = List.of("Branch1", "Branch2", "Branch3", "Warehouse");
+
+    /**
+     * Where a transfer stands.
+     */
+    public enum Status { MATCHED, IN_TRANSIT, UNMATCHED }
+
+    /**
+     * One transfer row.
+     *
+     * @param sheetName The log it was logged in (e.g., "Warehouse")
+     * @param row The row's number in the sheet
+     * @param outgoing Whether it is a Transfer-Out
+     */
+    public record Transfer(String sheetName, int row, LocalDateTime timestamp, int sku, int quantity,
+                           boolean outgoing) {
+    }
+
+    /**
+     * A transfer and where it stands.
+     *
+     * @param counterpart The transfer it was paired with, or null if it hasn't been
+     */
+    public record Reconciliation(Transfer transfer, Status status, Transfer counterpart) {
+    }
+
+    private record Key(int sku, int quantity) {
+    }
+
+    private static final Comparator<Transfer> BY_TIME = Comparator.comparing(Transfer::timestamp)
+            .thenComparing(Transfer::sheetName).thenComparingInt(Transfer::row);
+
+    private final GoogleSheetsService sheetsService;
+
+    // Unpaired transfers by SKU and quantity, in time order; guarded by this
+    private final Map<Key, NavigableSet<Transfer>> openOut = new HashMap<>();
+    private final Map<Key, NavigableSet<Transfer>> openIn = new HashMap<>();
+    // Recent pairs in the time order of their Transfer-Outs, and how many there have been; guarded by this
+    private final NavigableSet<Reconciliation> matched =
+            new TreeSet<>(Comparator.comparing(Reconciliation::transfer, BY_TIME));
+    private long matchedCount;
+
+    TransferReconciler(GoogleSheetsService sheetsService) {
+        this.sheetsService = sheetsService;
+        sheetsService.getLogFollower().register(SHEETS, this::add, this::clear);
+    }
+
+    public boolean isLoaded() {
+        return sheetsService.getLogFollower().isLoaded();
+    }
+
+    /**
+     * Reads the logs and starts following new rows, unless already done. Belongs on a background
+     * thread.
+     *
+     * @throws IOException If an API error occurs
+     */
+    public void load() throws IOException {
+        sheetsService.getLogFollower().load();
+    }
+
+    /**
+     * @return The transfers not paired yet, in transit or unmatched as of now, oldest first
+     */
+    public synchronized List<Reconciliation> getOpen() {
+        LocalDateTime windowStart = LocalDateTime.now().minus(window());
+        List<Reconciliation> open = new ArrayList<>();
+        for (Map<Key, NavigableSet<Transfer>> side : List.of(openOut, openIn)) {
+            for (NavigableSet<Transfer> transfers : side.values()) {
+                for (Transfer transfer : transfers) {
+                    Status status = transfer.timestamp().isBefore(windowStart) ? Status.UNMATCHED : Status.IN_TRANSIT;
+                    open.add(new Reconciliation(transfer, status, null));
+                }
+            }
+        }
+        open.sort(Comparator.comparing(Reconciliation::transfer, BY_TIME));
+        return open;
+    }
+
+    /**
+     * @return The transfers paired whose Transfer-Out was logged within {@code transfers.matchedDays},
+     *         as their Transfer-Outs, oldest first
+     */
+    public synchronized List<Reconciliation> getMatched() {
+        dropOldMatches();
+        return new ArrayList<>(matched);
+    }
+
+    /**
+     * @return How many transfers have been paired, however long ago
+     */
+    public synchronized long getMatchedCount() {
+        return matchedCount;
+    }
+
+    public void shutdown() {
+        clear();
+    }
+
+    private synchronized void clear() {
+        openOut.clear();
+        openIn.clear();
+        matched.clear();
+        matchedCount = 0;
+    }
+
+    // Joins one log row: date, time, activity code, SKU, quantity and description
+    private synchronized void add(RowDecoder decoder, String sheetName, int rowNumber, List<Object> row) {
+        decoder.begin(row);
+        LocalDateTime timestamp = LocalDateTime.of(decoder.dateAt(0), decoder.timeAt(1));
+        int activityCode = decoder.intAt(2);
+        int sku = decoder.intAt(3);
+        int quantity = decoder.intAt(4);
+        if (!decoder.end()) {
+            return;
+        }
+
+        // Transfer-Out is code 2 at the warehouse and 3 at a branch; Transfer-In is 2 at a branch
+        boolean warehouse = sheetName.equals("Warehouse");
+        boolean outgoing = warehouse ? activityCode == 2 : activityCode == 3;
+        boolean incoming = !warehouse && activityCode == 2;
+        if (!outgoing && !incoming) {
+            return;
+        }
+
+        Transfer transfer = new Transfer(sheetName, rowNumber, timestamp, sku, quantity, outgoing);
+        Key key = new Key(sku, quantity);
+        Map<Key, NavigableSet<Transfer>> opposite = outgoing ? openIn : openOut;
+        Transfer counterpart = takeClosest(opposite.get(key), transfer);
+        opposite.computeIfPresent(key, (k, candidates) -> candidates.isEmpty() ? null : candidates);
+        if (counterpart == null) {
+            (outgoing ? openOut : openIn).computeIfAbsent(key, k -> new TreeSet<>(BY_TIME)).add(transfer);
+        } else {
+            matchedCount++;
+            matched.add(outgoing ? new Reconciliation(transfer, Status.MATCHED, counterpart)
+                    : new Reconciliation(counterpart, Status.MATCHED, transfer));
+            dropOldMatches();
+        }
+    }
+
+    // Forgets the pairs whose Transfer-Out is older than transfers.matchedDays
+    private void dropOldMatches() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(Config.TRANSFER_MATCHED_DAYS.get());
+        while (!matched.isEmpty() && matched.first().transfer().timestamp().isBefore(cutoff)) {
+            matched.pollFirst();
+        }
+    }
+
+    // Removes and returns the candidate from another sheet closest in time within the window
+    private Transfer takeClosest(NavigableSet<Transfer> candidates, Transfer transfer) {
+        if (candidates == null) {
+            return null;
+        }
+        // Bounds of the window in the candidates' order
+        Duration window = window();
+        Transfer from = new Transfer("", 0, transfer.timestamp().minus(window), 0, 0, false);
+        Transfer to = new Transfer("\uffff", Integer.MAX_VALUE, transfer.timestamp().plus(window), 0, 0, false);
+
+        Transfer closest = null;
+        Duration closestGap = null;
+        for (Transfer candidate : candidates.subSet(from, true, to, true)) {
+            if (candidate.sheetName().equals(transfer.sheetName())) {
+                continue;
+            }
+            Duration gap = Duration.between(candidate.timestamp(), transfer.timestamp()).abs();
+            if (closestGap == null || gap.compareTo(closestGap) < 0) {
+                closest = candidate;
+                closestGap = gap;
+            }
+        }
+        if (closest != null) {
+            candidates.remove(closest);
+        }
+        return closest;
+    }
+
+    private static Duration window() {
+        return Duration.ofHours(Config.TRANSFER_WINDOW_HOURS.get());
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.vrminventory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fixed-size thread pools whose size follows a {@link Config} setting, so it can be tuned while
+ * the application runs.
+ */
+public final class TunableThreadPool {
+
+    private TunableThreadPool() {
+    }
+
+    /**
+     * Like {@link Executors#newFixedThreadPool(int)}, sized by {@code threads}.
+     */
+    public static ExecutorService newFixedThreadPool(Config.Setting<Integer> threads) {
+        return newFixedThreadPool(threads, Executors.defaultThreadFactory());
+    }
+
+    /**
+     * Like {@link Executors#newFixedThreadPool(int, ThreadFactory)}, sized by {@code threads}.
+     */
+    public static ExecutorService newFixedThreadPool(Config.Setting<Integer> threads, ThreadFactory threadFactory) {
+        int size = threads.get();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), threadFactory);
+        threads.onChange(newSize -> resize(pool, newSize));
+        return pool;
+    }
+
+    // Core and maximum size must never cross, so the order depends on the direction
+    private static synchronized void resize(ThreadPoolExecutor pool, int size) {
+        if (pool.isShutdown()) {
+            return;
+        }
+        if (size > pool.getMaximumPoolSize()) {
+            pool.setMaximumPoolSize(size);
+            pool.setCorePoolSize(size);
+        } else {
+            pool.setCorePoolSize(size);
+            pool.setMaximumPoolSize(size);
+        }
+    }
+}
@@ -7,12 +7,16 @@ import javafx.scene.Scene;
 import javafx.stage.Stage;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 public class VRMInventory extends Application {
     private LoginController loginController;
 
     @Override
     public void start(Stage stage) throws IOException {
+        // Sign in and set up the transport in the background while the login screen comes up
+        GoogleSheetsService.startAsync();
+
         FXMLLoader fxmlLoader = new FXMLLoader(VRMInventory.class.getResource("login.fxml"));
         Scene scene = new Scene(fxmlLoader.load(), 720, 720);
 
@@ -25,6 +29,10 @@ public class VRMInventory extends Application {
             if (loginController != null) {
                 loginController.shutdownExecutor();
             }
+            SceneNavigator.shutdown();
+
+            // Write out any buffered log records
+            Logger.shutdown();
 
             // Force exit the application
             Platform.exit();
@@ -34,7 +42,12 @@ public class VRMInventory extends Application {
         stage.setTitle("VRM Inventory System - Login");
         stage.setResizable(false);
         stage.setScene(scene);
+
+        // All screens are shown in this stage from here on
+        SceneNavigator.init(stage, SceneNavigator.Screen.LOGIN, loginController);
+
         stage.show();
+        StartupMetrics.mark(StartupMetrics.LOGIN_SHOWN);
     }
 
     @Override
@@ -43,12 +56,19 @@ public class VRMInventory extends Application {
         if (loginController != null) {
             loginController.shutdownExecutor();
         }
+        Logger.shutdown();
 
         // Force exit to ensure complete termination
         System.exit(0);
     }
 
     public static void main(String[] args) {
+        StartupMetrics.begin();
+        Config.startWatching(); // settings changed in config.properties apply without a restart
+        if (Arrays.asList(args).contains("--server")) {
+            InventoryServer.run(); // headless: serve the other terminals instead of showing screens
+            return;
+        }
         launch();
     }
 }
\ No newline at end of file
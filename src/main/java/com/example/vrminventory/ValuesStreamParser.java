@@ -0,0 +1,120 @@
+package com.example.vrminventory;
+
+import com.google.api.client.json.JsonParser;
+import com.google.api.client.json.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Reads the rows of a {@code values.get} or {@code values.batchGet} response straight from the
+ * JSON stream.
+ * <p>
+ * Unlike parsing into a ValueRange, no tree of the whole response is built: each row is read into
+ * one reused list and handed to the handler before the next row is read. Strings stay strings,
+ * whole numbers become Long and other numbers Double.
+ */
+class ValuesStreamParser {
+
+    private ValuesStreamParser() {
+    }
+
+    /**
+     * @return The number of rows passed to the handler
+     */
+    static int parse(JsonParser parser, GoogleSheetsService.RowHandler handler) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Unexpected values response");
+        }
+        return readValueRange(parser, handler, new ArrayList<>());
+    }
+
+    /**
+     * Reads a {@code values.batchGet} response, passing the rows of the n-th range to the n-th
+     * handler and calling {@code onRangeEnd} with the index of each range once all its rows are read.
+     *
+     * @return The number of rows passed to the handlers
+     */
+    static int parseBatch(JsonParser parser, List<? extends GoogleSheetsService.RowHandler> handlers,
+                          IntConsumer onRangeEnd) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Unexpected batch values response");
+        }
+
+        int rows = 0;
+        List<Object> row = new ArrayList<>();
+        JsonToken token;
+        while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            token = parser.nextToken();
+
+            if (!"valueRanges".equals(field) || token != JsonToken.START_ARRAY) {
+                parser.skipChildren(); // spreadsheetId
+                continue;
+            }
+
+            int rangeIndex = 0;
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                if (rangeIndex >= handlers.size()) {
+                    throw new IOException("More ranges in batch values response than requested");
+                }
+                rows += readValueRange(parser, handlers.get(rangeIndex), row);
+                onRangeEnd.accept(rangeIndex++);
+            }
+        }
+
+        if (token != JsonToken.END_OBJECT) {
+            throw new IOException("Truncated batch values response");
+        }
+        return rows;
+    }
+
+    // Reads the fields of one ValueRange object, its start already consumed, up to its end
+    private static int readValueRange(JsonParser parser, GoogleSheetsService.RowHandler handler,
+                                      List<Object> row) throws IOException {
+        int rowIndex = 0;
+        JsonToken token;
+        while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            token = parser.nextToken();
+
+            if (!"values".equals(field) || token != JsonToken.START_ARRAY) {
+                parser.skipChildren(); // range, majorDimension
+                continue;
+            }
+
+            while (parser.nextToken() == JsonToken.START_ARRAY) {
+                row.clear();
+                readRow(parser, row);
+                handler.onRow(row, rowIndex++);
+            }
+        }
+
+        if (token != JsonToken.END_OBJECT) {
+            throw new IOException("Truncated values response");
+        }
+        return rowIndex;
+    }
+
+    // Reads the cells of one row, its start already consumed, up to its end
+    static void readRow(JsonParser parser, List<Object> row) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            switch (token) {
+                case VALUE_STRING -> row.add(parser.getText());
+                case VALUE_NUMBER_INT -> row.add(parser.getLongValue());
+                case VALUE_NUMBER_FLOAT -> row.add(parser.getDoubleValue());
+                case VALUE_TRUE -> row.add(Boolean.TRUE);
+                case VALUE_FALSE -> row.add(Boolean.FALSE);
+                case VALUE_NULL -> row.add("");
+                case START_ARRAY, START_OBJECT -> {
+                    parser.skipChildren();
+                    row.add("");
+                }
+                default -> throw new IOException("Unexpected token in row: " + token);
+            }
+        }
+    }
+}